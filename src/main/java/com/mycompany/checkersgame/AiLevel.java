@@ -0,0 +1,90 @@
+/**
+ * AiLevel.java
+ * The difficulty ladder. Each level is a small strength model:
+ * - how the move is chosen (random, capture-greedy, or a Search),
+ * - how far the search may go (depth, node cap, time cap),
+ * - how much random noise is added to the root move scores (weak levels make human-like slips).
+ * The lowest levels never search, and the weak search levels (3 to 6) have no node cap but
+ * only search 1 to 3 plies, so hosting many weak bots costs little. The node caps of levels 7
+ * and 8 are only checked every 1024 nodes (as is the clock), so a search can go up to that
+ * far past its cap.
+ * Levels 1, 2 and 6 are the old EZ, Medium and Hardcore modes.
+ * Level 11 is not a step up the ladder but the other engine: Monte Carlo Tree Search
+ * (MctsSearch) with the same one second as level 10, for comparison.
+ */
+public class AiLevel {
+
+    // How the move is chosen
+    public static final int RANDOM = 1; // Any legal move
+    public static final int GREEDY = 2; // A random capture if there is one, else any move
+    public static final int SEARCH = 3; // Alpha-beta Search within the limits below
+    public static final int MCTS = 4;   // MctsSearch for the time (and playout cap, in nodeLimit) below
+
+    public static final int MIN = 1;
+    public static final int MAX = 11;
+    public static final int HARDCORE = 6;
+
+    private static final AiLevel[] LEVELS = {
+        //          level  name           kind    depth           nodes     ms  noise
+        new AiLevel(1,  "EZ",          RANDOM, 0,              0,        0,    0),
+        new AiLevel(2,  "Medium",      GREEDY, 0,              0,        0,    0),
+        new AiLevel(3,  "Casual",      SEARCH, 1,              0,        0,    30),
+        new AiLevel(4,  "Club",        SEARCH, 2,              0,        0,    15),
+        new AiLevel(5,  "Tricky",      SEARCH, 3,              0,        0,    6),
+        new AiLevel(6,  "Hardcore!",   SEARCH, 3,              0,        0,    0),
+        new AiLevel(7,  "Expert",      SEARCH, 6,              20_000,   0,    0),
+        new AiLevel(8,  "Master",      SEARCH, 10,             100_000,  0,    0),
+        new AiLevel(9,  "Grandmaster", SEARCH, Search.MAX_PLY, 0,        300,  0),
+        new AiLevel(10, "Unlimited",   SEARCH, Search.MAX_PLY, 0,        1000, 0),
+        new AiLevel(11, "Monte Carlo", MCTS,   0,              0,        1000, 0),
+    };
+
+    private final int level;
+    private final String name;
+    private final int kind;
+    private final int depth;
+    private final long nodeLimit;   // 0 = no cap (playouts for MCTS)
+    private final long timeMillis;  // 0 = no cap
+    private final int rootNoise;    // Up to this much (a man is 10) is added to each root move's score
+
+    public AiLevel(int level, String name, int kind, int depth, long nodeLimit, long timeMillis, int rootNoise) {
+        this.level = level;
+        this.name = name;
+        this.kind = kind;
+        this.depth = depth;
+        this.nodeLimit = nodeLimit;
+        this.timeMillis = timeMillis;
+        this.rootNoise = rootNoise;
+    }
+
+    /** The ladder level (clamped to MIN..MAX). */
+    public static AiLevel of(int level) {
+        return LEVELS[Math.max(MIN, Math.min(MAX, level)) - 1];
+    }
+
+    /** A plain fixed-depth search, for callers that only know a depth. */
+    public static AiLevel fixedDepth(int depth) {
+        return new AiLevel(0, "depth " + depth, SEARCH, depth, 0, 0, 0);
+    }
+
+    public static AiLevel[] all() { return LEVELS.clone(); }
+
+    public static boolean isValid(int level) { return level >= MIN && level <= MAX; }
+
+    public int getLevel() { return level; }
+    public String getName() { return name; }
+    public int getKind() { return kind; }
+    public int getDepth() { return depth; }
+    public long getNodeLimit() { return nodeLimit; }
+    public long getTimeMillis() { return timeMillis; }
+    public int getRootNoise() { return rootNoise; }
+    public boolean isSearch() { return kind == SEARCH; }
+
+    /** True for searching levels without noise at or above Hardcore: worth a hash table and pondering. */
+    public boolean isStrong() { return isSearch() && rootNoise == 0 && depth >= 3; }
+
+    @Override
+    public String toString() {
+        return level + ". " + name;
+    }
+}
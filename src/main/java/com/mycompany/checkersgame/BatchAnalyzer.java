@@ -0,0 +1,125 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BatchAnalyzer.java
+ * Headless analysis of many positions: best move, score and principal variation for each FEN line.
+ * Positions are read as a stream and spread over a work-stealing ForkJoinPool; a semaphore caps
+ * the number in flight, so memory stays flat no matter how big the input is.
+ * Results are printed as soon as each position finishes (so not necessarily in input order):
+ *   <line>\t<fen>\tbest=<move>\tscore=<cp>\tdepth=<n>\tnodes=<n>\tnps=<n>\tpv=<moves>
+ * A line that cannot be analysed (bad FEN, or the analysis failed) gets <line>\t<fen>\terror=<reason>,
+ * so every input position has exactly one output line.
+ * The score is from the side to move's point of view.
+ *
+ * Usage: java BatchAnalyzer [--depth N | --time MS] [--threads N] [file | -]
+ * Default: depth 6, one thread per core, read stdin.
+ */
+public class BatchAnalyzer {
+
+    private final int depth;
+    private final long timeMillis;
+    private final PrintStream out;
+
+    public BatchAnalyzer(int depth, long timeMillis, PrintStream out) {
+        this.depth = depth;
+        this.timeMillis = timeMillis;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int depth = 6;
+        long timeMillis = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String input = "-";
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--time" -> timeMillis = Long.parseLong(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                default -> input = args[i];
+            }
+        }
+
+        BatchAnalyzer analyzer = new BatchAnalyzer(depth, timeMillis, System.out);
+        try (BufferedReader in = input.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(input), StandardCharsets.UTF_8)) {
+            analyzer.run(in, threads);
+        }
+    }
+
+    /** Analyses every position line of in on a pool of the given size; returns when all are printed. */
+    public void run(BufferedReader in, int threads) throws IOException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Semaphore inFlight = new Semaphore(threads * 4);
+        try {
+            String line;
+            long lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                String fen = Notation.fenPart(line);
+                if (fen == null) continue;
+
+                inFlight.acquire();
+                long n = lineNo;
+                pool.execute(() -> {
+                    try {
+                        String result;
+                        try {
+                            result = analyze(n, fen);
+                        } catch (RuntimeException e) { // Else the pool swallows it and the line goes missing
+                            result = n + "\t" + fen + "\terror=" + e;
+                        }
+                        out.println(result);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** Analyses one FEN and returns its result line. */
+    public String analyze(long lineNo, String fen) {
+        Position pos;
+        try {
+            pos = Notation.parseFen(fen);
+        } catch (IllegalArgumentException e) {
+            return lineNo + "\t" + fen + "\terror=" + e.getMessage();
+        }
+
+        GameEngine engine = pos.toEngine();
+        Search search = new Search(engine);
+        int side = pos.getSideToMove();
+        int[] best = timeMillis > 0
+                ? search.search(engine.getBoard(), side, Search.MAX_PLY, System.nanoTime() + timeMillis * 1_000_000L)
+                : search.search(engine.getBoard(), side, depth, Search.NO_DEADLINE);
+
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(lineNo).append('\t').append(fen).append('\t');
+        if (best == null) {
+            return sb.append("best=none\tscore=-inf\tdepth=0\tpv=").toString();
+        }
+        int score = side == Piece.WHITE ? search.getBestScore() : -search.getBestScore();
+        sb.append("best=").append(Notation.moveToText(engine.getBoard(), best));
+        sb.append("\tscore=").append(score);
+        sb.append("\tdepth=").append(search.getCompletedDepth());
+        sb.append("\tnodes=").append(search.getStats().getNodes());
+        sb.append("\tnps=").append(search.getStats().getNps());
+        sb.append("\tpv=").append(Notation.lineToText(engine, engine.getBoard(), search.getPrincipalVariation()));
+        return sb.toString();
+    }
+}
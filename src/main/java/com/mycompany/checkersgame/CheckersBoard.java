@@ -1,9 +1,8 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ExecutionException;
 
 /**
  * CheckersBoard.java
@@ -11,15 +10,21 @@ import java.util.Random;
  * UPDATE: Non-King pieces (including AI) can only move/capture forward.
  * ADDED: Static variables for Piece Style, Board Theme, and AI Delay, and multiple rules options.
  * FIX: Improved visibility of valid move highlights for all themes.
+ * REFACTOR: Rules and AI moved to GameEngine; this class is now the Swing view/controller.
+ * ADDED: Optional game clock (base + increment); the AI's time per move then comes from a TimeManager.
+ * ADDED: The game is saved after every move (LocalStore) and can be resumed from the main menu.
+ * ADDED: Hint mode (MoveHints): best move, pieces under attack and mandatory captures, computed off the Swing thread.
+ * FIX: The AI searches on a SwingWorker; its move, the clock and the win check are applied back on the Swing thread.
  */
 public class CheckersBoard extends JPanel {
 
     // Constants
     private final int TILE_SIZE = 80;
-    private final int ROWS = 8;
-    private final int COLS = 8;
+    private final int ROWS; // From the game's Variant
+    private final int COLS;
     
-    // Game State
+    // Game State (rules and AI live in GameEngine)
+    private final GameEngine engine;
     private Piece[][] board;
     private int currentPlayer = Piece.RED; // RED starts
     private int selectedRow = -1;
@@ -36,15 +41,84 @@ public class CheckersBoard extends JPanel {
     public static boolean enableSound = true; // Global sound control
     public static float soundVolume = 0.8f; // Sound volume 
     public static int kingMoveRule = 1; // 1=Flying King, 2=Short King
-
-    // AI Difficulty (1=Easy, 2=Normal, 3=Hard)
+    public static boolean showSearchStats = false; // Overlay with the last AI search's numbers
+    public static boolean pondering = true; // Strong AI levels keep thinking during the player's turn
+    public static boolean neuralEval = false; // Score positions with the bundled NnueNetwork instead of the hand-written evaluator
+    public static int clockMinutes = 0; // Game clock per side, 0 = no clock
+    public static int clockIncrement = 0; // Seconds added after each move
+    public static boolean showHints = false; // Best move, threatened pieces and forced captures on the player's turn
+
+    // AI Difficulty (ladder level, see AiLevel)
     private int difficultyLevel;
+    private final AiLevel aiLevel;
+
+    // Last minimax search (for the stats overlay); the AI's search thread sets it
+    private volatile SearchStats lastSearchStats;
+
+    // Game clock (null = untimed) and the timer that repaints it and watches the player's flag
+    private final GameClock clock;
+    private Timer clockTimer;
+
+    // Hardcore and up: background search on the player's time, and whether the player made the predicted move
+    private Ponderer ponderer;
+    private boolean ponderHit;
+
+    // Hint mode: computed in the background per position (positionHash, with RED to move); paint only reads them
+    private final MoveHints hints;
+    private long positionHash;
+
+    // Squares the selected piece may move to, worked out once when it is selected
+    private boolean[] selectedTargets;
 
     public CheckersBoard(int difficulty) {
+        this(difficulty, null);
+    }
+
+    /** Starts from a loaded position (see Notation) instead of the opening when start is not null. */
+    public CheckersBoard(int difficulty, Position start) {
+        this(difficulty, start != null ? start.toEngine() : GameEngine.fromSettings(),
+                start != null ? start.getSideToMove() : Piece.RED,
+                clockMinutes > 0 ? new GameClock(clockMinutes * 60_000L, clockIncrement * 1000L) : null);
+    }
+
+    /** Continues a game saved by LocalStore, from its board and clocks (no moves are replayed). */
+    public CheckersBoard(LocalStore.SavedGame saved) {
+        this(saved.getLevel(), saved.toEngine(), saved.getSideToMove(), saved.getClock());
+    }
+
+    private CheckersBoard(int difficulty, GameEngine engine, int sideToMove, GameClock clock) {
         this.difficultyLevel = difficulty;
+        this.aiLevel = AiLevel.of(difficulty);
+        this.engine = engine;
+        this.clock = clock;
+        board = engine.getBoard();
+        ROWS = COLS = engine.getVariant().getSize();
         setPreferredSize(new Dimension(COLS * TILE_SIZE, ROWS * TILE_SIZE));
-        board = new Piece[ROWS][COLS];
-        initBoard();
+        engine.setEngineListener(new EngineListener() {
+            @Override
+            public void onIteration(SearchStats stats) { }
+
+            @Override
+            public void onSearchFinished(SearchStats stats) {
+                lastSearchStats = stats.copy();
+            }
+        });
+        if (neuralEval) engine.setNetwork(NnueNetwork.getDefault()); // Stays hand-written if there is no network
+        if (aiLevel.isStrong()) {
+            engine.setTranspositionTable(new TranspositionTable(16));
+            ponderer = new Ponderer(engine);
+        }
+        hints = new MoveHints(engine, this::repaint);
+        if (clock != null) {
+            clockTimer = new Timer(100, e -> checkPlayerFlag());
+            clockTimer.start();
+        }
+        if (sideToMove == Piece.WHITE) {
+            startAiTurn();
+        } else {
+            if (clock != null) clock.start(Piece.RED);
+            startPlayerHints();
+        }
         
         addMouseListener(new MouseAdapter() {
             @Override
@@ -56,17 +130,6 @@ public class CheckersBoard extends JPanel {
         });
     }
 
-    private void initBoard() {
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                if ((r + c) % 2 != 0) {
-                    if (r < 2) board[r][c] = new Piece(Piece.WHITE); // AI
-                    else if (r > 5) board[r][c] = new Piece(Piece.RED); // Player
-                }
-            }
-        }
-    }
-
     private void handleMouseClick(int x, int y) {
         int c = x / TILE_SIZE;
         int r = y / TILE_SIZE;
@@ -76,41 +139,30 @@ public class CheckersBoard extends JPanel {
         if (selectedRow == -1) {
             // Select a piece
             if (board[r][c] != null && board[r][c].getColor() == currentPlayer) {
-                selectedRow = r;
-                selectedCol = c;
+                select(r, c);
             }
         } else {
             // Move piece
-            if (isValidMove(board, selectedRow, selectedCol, r, c)) {
-                executeMove(board, selectedRow, selectedCol, r, c);
+            if (engine.isValidMove(board, selectedRow, selectedCol, r, c)) {
+                if (ponderer != null) {
+                    ponderHit = ponderer.isPredicted(selectedRow, selectedCol, r, c);
+                    if (!ponderHit) ponderer.stop(); // Ponder miss: free the CPU for the real search
+                }
+                executeMove(Piece.RED, selectedRow, selectedCol, r, c);
+                if (clock != null) clock.moveDone();
+                saveGame(Piece.WHITE);
                 selectedRow = -1;
                 selectedCol = -1;
                 
-                checkWinCondition(); // Check immediately after player move
+                checkWinCondition(Piece.WHITE); // Check immediately after player move
                 
                 if (!gameover) {
-                    currentPlayer = Piece.WHITE;
-                    gameStatus = "AI is thinking...";
-                    repaint();
-                    
-                    // Small delay for AI (ใช้ค่า aiDelay ที่ตั้งค่าไว้)
-                    Timer timer = new Timer(aiDelay, evt -> {
-                        aiMove();
-                        checkWinCondition(); // Check immediately after AI move
-                        if (!gameover) {
-                            currentPlayer = Piece.RED;
-                            gameStatus = "Your Turn (Red)";
-                        }
-                        repaint();
-                    });
-                    timer.setRepeats(false);
-                    timer.start();
+                    startAiTurn();
                 }
             } else {
                 // Change selection
                 if (board[r][c] != null && board[r][c].getColor() == currentPlayer) {
-                    selectedRow = r;
-                    selectedCol = c;
+                    select(r, c);
                 } else {
                     selectedRow = -1;
                     selectedCol = -1;
@@ -120,303 +172,235 @@ public class CheckersBoard extends JPanel {
         repaint();
     }
 
-    // --- AI MAIN LOGIC ---
-    private void aiMove() {
-        if (difficultyLevel == 1) {
-            makeRandomMove(); 
-        } else if (difficultyLevel == 2) {
-            makeHeuristicMove(); 
-        } else {
-            makeMinimaxMove(); 
+    private void select(int r, int c) {
+        selectedRow = r;
+        selectedCol = c;
+        selectedTargets = new boolean[ROWS * COLS];
+        for (int t : engine.getVariant().targets(board[r][c], r, c)) {
+            int tr = t & 15, tc = t >>> 4;
+            selectedTargets[tr * COLS + tc] = engine.isValidMove(board, r, c, tr, tc);
         }
     }
 
-    private void makeRandomMove() {
-        List<int[]> moves = getAllLegalMoves(board, Piece.WHITE);
-        if (!moves.isEmpty()) {
-            int[] m = moves.get(new Random().nextInt(moves.size()));
-            executeMove(board, m[0], m[1], m[2], m[3]);
-        }
+    // The player's turn has begun on a new position: its hints are asked for (if shown)
+    private void startPlayerHints() {
+        positionHash = engine.getVariant().hash(board, Piece.RED);
+        if (showHints) hints.request(board, Piece.RED, positionHash);
     }
 
-    private void makeHeuristicMove() {
-        List<int[]> moves = getAllLegalMoves(board, Piece.WHITE);
-        List<int[]> captures = new ArrayList<>();
-        for (int[] m : moves) {
-            if (Math.abs(m[2] - m[0]) >= 2) captures.add(m);
-        }
+    private void startAiTurn() {
+        hints.cancel(); // The AI needs the CPU now
+        currentPlayer = Piece.WHITE;
+        gameStatus = "AI is thinking...";
+        repaint();
         
-        if (!captures.isEmpty()) {
-            int[] m = captures.get(new Random().nextInt(captures.size()));
-            executeMove(board, m[0], m[1], m[2], m[3]);
-        } else if (!moves.isEmpty()) {
-            int[] m = moves.get(new Random().nextInt(moves.size()));
-            executeMove(board, m[0], m[1], m[2], m[3]);
-        }
-    }
+        // Small delay for AI (ใช้ค่า aiDelay ที่ตั้งค่าไว้); a forced move is played at once
+        boolean forced = engine.getAllLegalMoves(board, Piece.WHITE).size() <= 1;
+        Timer timer = new Timer(forced ? 0 : aiDelay, evt -> {
+            if (gameover || !isDisplayable()) return; // Closed during the delay
+            if (clock != null) clock.start(Piece.WHITE); // The cosmetic delay is not on the AI's clock
+            int[] m = takePonderMove();
+            if (m != null) {
+                finishAiTurn(m);
+                return;
+            }
+            TimeManager time = clock != null ? clock.newTimeManager(Piece.WHITE) : null;
+            Piece[][] position = engine.cloneBoard(board);
+            new SwingWorker<int[], Void>() {
+                @Override
+                protected int[] doInBackground() {
+                    return aiMove(position, time);
+                }
 
-    private void makeMinimaxMove() {
-        int depth = 3; 
-        int[] bestMove = null;
-        int maxEval = Integer.MIN_VALUE;
-        
-        List<int[]> moves = getAllLegalMoves(board, Piece.WHITE);
-        
-        if (forceCapture) { 
-            List<int[]> captures = new ArrayList<>();
-            for (int[] m : moves) if (Math.abs(m[2] - m[0]) >= 2) captures.add(m);
-            if (!captures.isEmpty()) moves = captures; 
-        }
+                @Override
+                protected void done() {
+                    if (gameover || !isDisplayable()) return; // Closed while the AI was thinking
+                    try {
+                        finishAiTurn(get());
+                    } catch (InterruptedException | ExecutionException e) {
+                        throw new IllegalStateException("AI search failed", e);
+                    }
+                }
+            }.execute();
+        });
+        timer.setRepeats(false);
+        timer.start();
+    }
 
-        for (int[] move : moves) {
-            Piece[][] tempBoard = cloneBoard(board);
-            executeMove(tempBoard, move[0], move[1], move[2], move[3]);
-            
-            int eval = minimax(tempBoard, depth - 1, false, Integer.MIN_VALUE, Integer.MAX_VALUE);
-            
-            if (eval > maxEval) {
-                maxEval = eval;
-                bestMove = move;
+    // Back on the Swing thread with the AI's move: plays it, then hands the turn (and the clock) over
+    private void finishAiTurn(int[] m) {
+        if (m != null) executeMove(Piece.WHITE, m[0], m[1], m[2], m[3]);
+        if (clock != null) {
+            clock.moveDone();
+            if (clock.isFlagged(Piece.WHITE)) {
+                endOnTime("Time's up - You Win!");
+                return;
             }
         }
-
-        if (bestMove != null) {
-            executeMove(board, bestMove[0], bestMove[1], bestMove[2], bestMove[3]);
-        } else {
-            makeRandomMove(); 
+        checkWinCondition(Piece.RED); // Check immediately after AI move
+        if (!gameover) {
+            saveGame(Piece.RED);
+            currentPlayer = Piece.RED;
+            gameStatus = "Your Turn (Red)";
+            if (clock != null) clock.start(Piece.RED);
+            startPondering();
+            startPlayerHints();
         }
+        repaint();
     }
 
-    private int minimax(Piece[][] currentBoard, int depth, boolean isMaximizing, int alpha, int beta) {
-        if (depth == 0) {
-            return evaluateBoard(currentBoard);
-        }
-
-        int color = isMaximizing ? Piece.WHITE : Piece.RED;
-        List<int[]> moves = getAllLegalMoves(currentBoard, color);
-        
-        // Force capture in Minimax (Uses global setting)
-        if (forceCapture) { 
-            List<int[]> captures = new ArrayList<>();
-            for (int[] m : moves) if (Math.abs(m[2] - m[0]) >= 2) captures.add(m);
-            if (!captures.isEmpty()) moves = captures;
-        }
+    // Snapshot for LocalStore after every move, so a restart can resume here (the clock is stopped between moves)
+    private void saveGame(int sideToMove) {
+        LocalStore.saveGame(new LocalStore.SavedGame(difficultyLevel, engine, sideToMove, clock));
+    }
 
-        if (moves.isEmpty()) return evaluateBoard(currentBoard);
-
-        if (isMaximizing) {
-            int maxEval = Integer.MIN_VALUE;
-            for (int[] move : moves) {
-                Piece[][] tempBoard = cloneBoard(currentBoard);
-                executeMove(tempBoard, move[0], move[1], move[2], move[3]);
-                int eval = minimax(tempBoard, depth - 1, false, alpha, beta);
-                maxEval = Math.max(maxEval, eval);
-                alpha = Math.max(alpha, eval);
-                if (beta <= alpha) break;
-            }
-            return maxEval;
-        } else {
-            int minEval = Integer.MAX_VALUE;
-            for (int[] move : moves) {
-                Piece[][] tempBoard = cloneBoard(currentBoard);
-                executeMove(tempBoard, move[0], move[1], move[2], move[3]);
-                int eval = minimax(tempBoard, depth - 1, true, alpha, beta);
-                minEval = Math.min(minEval, eval);
-                beta = Math.min(beta, eval);
-                if (beta <= alpha) break;
-            }
-            return minEval;
-        }
+    /** Current position in FEN (see Notation; 8x8 boards only). */
+    public String getFen() {
+        return Notation.toFen(Position.of(engine, currentPlayer));
     }
 
-    private int evaluateBoard(Piece[][] b) {
-        int score = 0;
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                Piece p = b[r][c];
-                if (p != null) {
-                    int val = 10;
-                    if (p.isKing()) val = 50;
-                    if (c == 0 || c == 7) val += 2; 
-                    if (p.getColor() == Piece.WHITE && r == 0) val += 5;
+    // --- AI MAIN LOGIC ---
+    // Runs on the AI's worker thread on a copy of the board; the caller plays the move it returns
+    private int[] aiMove(Piece[][] position, TimeManager time) {
+        FlightEvents.AiMoveEvent event = new FlightEvents.AiMoveEvent();
+        event.begin();
+        long start = System.nanoTime();
 
-                    if (p.getColor() == Piece.WHITE) score += val;
-                    else score -= val;
-                }
-            }
-        }
-        return score;
+        int[] m = engine.findMoveForLevel(position, Piece.WHITE, aiLevel, time);
+
+        recordAiMove(event, start, m, false);
+        return m;
     }
 
-    private Piece[][] cloneBoard(Piece[][] src) {
-        Piece[][] dest = new Piece[ROWS][COLS];
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                if (src[r][c] != null) {
-                    Piece p = new Piece(src[r][c].getColor());
-                    if (src[r][c].isKing()) p.promote();
-                    dest[r][c] = p;
-                }
-            }
+    // On a ponder hit, returns the move the ponder search found (if it searched enough for this level)
+    private int[] takePonderMove() {
+        if (!ponderHit) return null;
+        // The ponder search has been on this exact position since the AI's last move
+        ponderHit = false;
+        FlightEvents.AiMoveEvent event = new FlightEvents.AiMoveEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int[] m = ponderer.keep(aiLevel);
+        if (m != null) {
+            lastSearchStats = ponderer.getLastSearch().getStats().copy();
+            lastSearchStats.pvText = Notation.lineToText(engine, board, lastSearchStats.getPrincipalVariation());
+            recordAiMove(event, start, m, true);
         }
-        return dest;
+        return m;
     }
 
-    private List<int[]> getAllLegalMoves(Piece[][] b, int color) {
-        List<int[]> moves = new ArrayList<>();
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                if (b[r][c] != null && b[r][c].getColor() == color) {
-                    for (int tr = 0; tr < ROWS; tr++) {
-                        for (int tc = 0; tc < COLS; tc++) {
-                            if (isValidMove(b, r, c, tr, tc)) {
-                                moves.add(new int[]{r, c, tr, tc});
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        
-        // CHECK MANDATORY CAPTURE (if forceCapture is ON)
-        List<int[]> captures = new ArrayList<>();
-        for (int[] m : moves) {
-            if (Math.abs(m[2] - m[0]) >= 2) captures.add(m);
+    // One AI turn's game.ai.move sample and AiMoveEvent, whether it searched or took the ponder result
+    private void recordAiMove(FlightEvents.AiMoveEvent event, long start, int[] m, boolean pondered) {
+        Metrics.recordSince("game.ai.move", start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tag(difficultyLevel, engine);
+            event.move = m != null ? moveText(m) : "none";
+            event.ponderHit = pondered;
+            event.commit();
         }
-        
-        if (forceCapture && !captures.isEmpty()) { 
-            return captures;
-        }
-        
-        return moves;
     }
 
-    private boolean isValidMove(Piece[][] b, int r1, int c1, int r2, int c2) {
-        // 1. Basic checks
-        if (r2 < 0 || r2 >= ROWS || c2 < 0 || c2 >= COLS) return false;
-        if (b[r2][c2] != null) return false; // Target must be empty
-        if ((r2 + c2) % 2 == 0) return false; // Must be on dark tile
-
-        Piece p = b[r1][c1];
-        int dr = r2 - r1;
-        int dc = c2 - c1;
-        
-        if (Math.abs(dr) != Math.abs(dc)) return false; // Must move diagonally
-
-        // 2. King Logic (Flying King / Short King)
-        if (p.isKing()) {
-            
-            if (kingMoveRule == 1) { // Flying King (Long Jump)
-                
-                int rDir = Integer.signum(dr);
-                int cDir = Integer.signum(dc);
-                
-                int obstacleCount = 0;
-                int cr = r1 + rDir;
-                int cc = c1 + cDir;
-                
-                while (cr != r2) {
-                    Piece obs = b[cr][cc];
-                    if (obs != null) {
-                        if (obs.getColor() == p.getColor()) return false; 
-                        obstacleCount++;
-                    }
-                    cr += rDir; 
-                    cc += cDir;
-                }
-                
-                if (obstacleCount == 0) return true;
-                if (obstacleCount == 1) return true;
-                return false;
-
-            } else { // Short King (kingMoveRule == 2)
-                // Short King logic: Can move/capture 1 or 2 steps backward/forward
-                int absDr = Math.abs(dr);
-                if (absDr == 1) { // Move 1 step
-                    return true;
-                }
-                if (absDr == 2) { // Capture 1 piece
-                    Piece mid = b[(r1 + r2) / 2][(c1 + c2) / 2];
-                    return mid != null && mid.getColor() != p.getColor();
-                }
-                return false;
-            }
-        } 
-        // 3. Normal Piece Logic
-        else {
-            // RED (Player) moves FORWARD (up the board) -> dr < 0
-            // WHITE (AI) moves FORWARD (down the board) -> dr > 0
-            boolean forward = (p.getColor() == Piece.RED) ? (dr < 0) : (dr > 0);
-            
-            // Move 1 step
-            if (Math.abs(dr) == 1) {
-                // Must be forward move
-                return forward;
-            }
-            // Capture (Move 2 steps)
-            if (Math.abs(dr) == 2) {
-                // Must be forward capture
-                if (!forward) return false; 
+    // Ponders on the player's reply predicted by the last search's principal variation
+    private void startPondering() {
+        if (ponderer == null || !pondering || lastSearchStats == null) return;
+        List<int[]> pv = lastSearchStats.getPrincipalVariation();
+        if (pv.size() < 2) return;
+        int[] reply = pv.get(1);
+        Piece p = board[reply[0]][reply[1]];
+        if (p == null || p.getColor() != Piece.RED || !engine.isValidMove(board, reply[0], reply[1], reply[2], reply[3])) return;
+        ponderer.start(board, reply, Piece.WHITE);
+    }
 
-                Piece mid = b[(r1 + r2) / 2][(c1 + c2) / 2];
-                return mid != null && mid.getColor() != p.getColor();
-            }
+    // Runs every 100 ms on a clock: repaints it and ends the game if the player's time is up
+    private void checkPlayerFlag() {
+        if (gameover) return;
+        if (currentPlayer == Piece.RED && clock.isFlagged(Piece.RED)) {
+            endOnTime("Time's up - AI Wins!");
+            return;
         }
-        return false;
+        repaint();
     }
 
-    private void executeMove(Piece[][] b, int r1, int c1, int r2, int c2) {
-        Piece p = b[r1][c1];
-        b[r1][c1] = null;
-        b[r2][c2] = p;
+    private void endOnTime(String message) {
+        gameover = true;
+        clock.stop();
+        LocalStore.deleteGame();
+        if (ponderer != null) ponderer.stop();
+        repaint();
+        JOptionPane.showMessageDialog(this, message);
+        returnToMenu();
+    }
 
-        // Handle Capturing
-        int dr = r2 - r1;
-        int dc = c2 - c1;
-        
-        // If moved more than 1 square, check for captures (works for both Normal and King)
-        if (Math.abs(dr) >= 2) {
-            int rDir = Integer.signum(dr);
-            int cDir = Integer.signum(dc);
-            int cr = r1 + rDir;
-            int cc = c1 + cDir;
-            
-            while (cr != r2) {
-                if (b[cr][cc] != null) {
-                    b[cr][cc] = null; // Remove captured piece
-                }
-                cr += rDir; 
-                cc += cDir;
-            }
-        }
+    @Override
+    public void removeNotify() {
+        if (ponderer != null) ponderer.stop(); // Game closed or replaced
+        hints.shutdown();
+        if (clockTimer != null) clockTimer.stop();
+        super.removeNotify();
+    }
 
-        // Promotion
-        if ((p.getColor() == Piece.RED && r2 == 0) || (p.getColor() == Piece.WHITE && r2 == ROWS - 1)) {
-            p.promote();
+    // Every move on the game board, the player's and the AI's, goes through here to be timed and traced
+    private void executeMove(int player, int r1, int c1, int r2, int c2) {
+        FlightEvents.MoveExecuteEvent event = new FlightEvents.MoveExecuteEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        engine.executeMove(board, r1, c1, r2, c2);
+
+        Metrics.recordSince("game.move.execute", start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tag(difficultyLevel, engine);
+            event.player = player;
+            event.move = moveText(new int[]{r1, c1, r2, c2});
+            event.commit();
         }
     }
 
+    // "22-18" style text from square numbers only (the board has already changed)
+    private String moveText(int[] m) {
+        return ((m[0] * COLS + m[1]) / 2 + 1) + "-" + ((m[2] * COLS + m[3]) / 2 + 1);
+    }
+
     /**
      * Check Win Condition
      * Fix: Checks if the player has NO LEGAL MOVES left.
+     * A solved ending that neither side can win ends the game as a draw straight away.
      */
-    private void checkWinCondition() {
-        // Check Red
-        List<int[]> redMoves = getAllLegalMoves(board, Piece.RED);
-        if (redMoves.isEmpty()) {
+    private void checkWinCondition(int sideToMove) {
+        FlightEvents.WinCheckEvent event = new FlightEvents.WinCheckEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        int winner = engine.getWinner();
+        // Only what is worked out already; unlike probe() this does not queue an analysis
+        boolean draw = winner == 0 && engine.getEndgameSolver().solvedValue(board, sideToMove) == EndgameSolver.DRAW;
+
+        Metrics.recordSince("game.win.check", start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tag(difficultyLevel, engine);
+            event.winner = winner;
+            event.commit();
+        }
+
+        if (winner != 0 || draw) {
+            if (clock != null) clock.stop();
+            LocalStore.deleteGame(); // Nothing left to resume
+        }
+        if (winner == Piece.WHITE) {
             gameover = true;
             JOptionPane.showMessageDialog(this, "Game Over - AI Wins!");
             returnToMenu();
-            return;
-        }
-
-        // Check White
-        List<int[]> whiteMoves = getAllLegalMoves(board, Piece.WHITE);
-        if (whiteMoves.isEmpty()) {
+        } else if (winner == Piece.RED) {
             gameover = true;
             JOptionPane.showMessageDialog(this, "You Win!");
             returnToMenu();
-            return;
+        } else if (draw) {
+            gameover = true;
+            JOptionPane.showMessageDialog(this, "Draw - neither side can force a win.");
+            returnToMenu();
         }
     }
     
@@ -427,6 +411,23 @@ public class CheckersBoard extends JPanel {
 
     @Override
     protected void paintComponent(Graphics g) {
+        FlightEvents.PaintEvent event = new FlightEvents.PaintEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        paintBoard(g);
+
+        Metrics.recordSince("game.paint", start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tag(difficultyLevel, engine);
+            event.boardTheme = boardTheme;
+            event.pieceStyle = pieceStyle;
+            event.commit();
+        }
+    }
+
+    private void paintBoard(Graphics g) {
         super.paintComponent(g);
         Graphics2D g2 = (Graphics2D) g;
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
@@ -466,6 +467,8 @@ public class CheckersBoard extends JPanel {
             whitePiece = new Color(240, 240, 240);
         }
 
+        MoveHints.Hints hint = currentHints();
+
         // Draw Board
         for (int r = 0; r < ROWS; r++) {
             for (int c = 0; c < COLS; c++) {
@@ -479,7 +482,7 @@ public class CheckersBoard extends JPanel {
                 }
                 
                 // Highlight Valid Moves for Selected Piece (FIXED visibility)
-                if (showLegalMoves && selectedRow != -1 && isValidMove(board, selectedRow, selectedCol, r, c)) { 
+                if (showLegalMoves && selectedRow != -1 && selectedTargets[r * COLS + c]) {
                     
                     // Use a bright, semi-transparent color that contrasts well
                     g2.setColor(new Color(102, 255, 204, 150)); 
@@ -493,6 +496,12 @@ public class CheckersBoard extends JPanel {
                     g2.fillOval(dotX, dotY, dotSize, dotSize);
                 }
 
+                // Hint: this piece has a capture it must take
+                if (hint != null && hint.mustCapture(r * COLS + c)) {
+                    g2.setColor(new Color(255, 165, 0, 130));
+                    g2.fillRect(c * TILE_SIZE, r * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+                }
+
                 // Draw Pieces
                 Piece p = board[r][c];
                 if (p != null) {
@@ -556,13 +565,97 @@ public class CheckersBoard extends JPanel {
                         int ty = y + (s - fm.getHeight()) / 2 + fm.getAscent();
                         g2.drawString("K", tx, ty);
                     }
+
+                    // Hint: the AI could take this piece
+                    if (hint != null && hint.isUnderAttack(r * COLS + c)) {
+                        g2.setColor(new Color(255, 0, 0, 200));
+                        g2.setStroke(new BasicStroke(4));
+                        g2.drawOval(x - 4, y - 4, s + 8, s + 8);
+                        g2.setStroke(new BasicStroke(1));
+                    }
                 }
             }
         }
+
+        if (hint != null) drawHint(g2, hint);
         
         // Draw Status Text
         g2.setColor(Color.BLACK);
         g2.setFont(new Font("Arial", Font.BOLD, 18));
         g2.drawString(gameStatus, 10, 25);
+        if (clock != null) {
+            String time = "You " + GameClock.format(clock.getRemainingMillis(Piece.RED))
+                    + "   AI " + GameClock.format(clock.getRemainingMillis(Piece.WHITE));
+            g2.drawString(time, COLS * TILE_SIZE - g2.getFontMetrics().stringWidth(time) - 10, 25);
+        }
+
+        if (showSearchStats && lastSearchStats != null) {
+            drawSearchStats(g2, lastSearchStats);
+        }
+    }
+
+    // The hints for the position on the board, if hint mode is on and it is the player's turn.
+    // Only reads the cache, never starts or stops a search: startPlayerHints asks for them when
+    // the turn begins (showHints only changes in SettingsMenu, while no game is on screen)
+    private MoveHints.Hints currentHints() {
+        if (!showHints || currentPlayer != Piece.RED || gameover) return null;
+        return hints.get(positionHash);
+    }
+
+    // Arrow for the hinted move and a line with its score in the bottom-right corner
+    private void drawHint(Graphics2D g2, MoveHints.Hints hint) {
+        String text;
+        int[] m = hint.getBestMove();
+        if (m != null) {
+            int half = TILE_SIZE / 2;
+            int x1 = m[1] * TILE_SIZE + half, y1 = m[0] * TILE_SIZE + half;
+            int x2 = m[3] * TILE_SIZE + half, y2 = m[2] * TILE_SIZE + half;
+            g2.setColor(new Color(30, 144, 255, 190));
+            g2.setStroke(new BasicStroke(6, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            g2.drawLine(x1, y1, x2, y2);
+            g2.fillOval(x2 - 10, y2 - 10, 20, 20);
+            g2.setStroke(new BasicStroke(1));
+
+            int score = hint.getScore();
+            String value = Math.abs(score) >= Search.WIN_SCORE - Search.MAX_PLY
+                    ? (score > 0 ? "winning" : "losing")
+                    : String.format("%+.1f", score / 10.0); // A man is 10
+            text = "Hint " + ((m[0] * COLS + m[1]) / 2 + 1) + "-" + ((m[2] * COLS + m[3]) / 2 + 1)
+                    + "  " + value + "  (depth " + hint.getDepth() + ")";
+        } else {
+            text = "Hint: thinking...";
+        }
+        g2.setFont(new Font("Arial", Font.BOLD, 14));
+        FontMetrics fm = g2.getFontMetrics();
+        int w = fm.stringWidth(text) + 12, h = fm.getHeight() + 6;
+        int x = COLS * TILE_SIZE - w - 6, y = ROWS * TILE_SIZE - h - 6;
+        g2.setColor(new Color(0, 0, 0, 160));
+        g2.fillRoundRect(x, y, w, h, 8, 8);
+        g2.setColor(Color.WHITE);
+        g2.drawString(text, x + 6, y + 3 + fm.getAscent());
+    }
+
+    // Small translucent box in the bottom-left corner with the last search's numbers
+    private void drawSearchStats(Graphics2D g2, SearchStats s) {
+        String[] lines = {
+            "Depth " + s.getDepth() + "  Sel " + s.getSelDepth() + "  Score " + s.getScore(),
+            "Nodes " + s.getNodes() + "  NPS " + s.getNps(),
+            "Evals " + s.getLeafEvals() + "  Cutoffs " + s.getBetaCutoffs() + "  TT " + s.getTtHits(),
+            "Time " + s.getElapsedNanos() / 1_000_000 + " ms",
+            "PV " + s.getPvText()
+        };
+        g2.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        FontMetrics fm = g2.getFontMetrics();
+        int w = 0;
+        for (String line : lines) w = Math.max(w, fm.stringWidth(line));
+        int h = lines.length * fm.getHeight() + 8;
+        int x = 6, y = ROWS * TILE_SIZE - h - 6;
+
+        g2.setColor(new Color(0, 0, 0, 160));
+        g2.fillRoundRect(x, y, w + 12, h, 8, 8);
+        g2.setColor(Color.WHITE);
+        for (int i = 0; i < lines.length; i++) {
+            g2.drawString(lines[i], x + 6, y + 4 + fm.getAscent() + i * fm.getHeight());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,548 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * EndgameSolver.java
+ * Exact play once only a few pieces are left (at most MAX_PIECES, both sides together).
+ * Fixed-depth search cannot see the end of such endings, kings above all (flying kings
+ * under kingMoveRule 1 can shuffle forever), so the solver works them out completely:
+ * - From the position it finds every position reachable from it (both sides' moves,
+ *   captures and crownings included) and keeps them in its own table, keyed by an exact
+ *   encoding of the pieces rather than a hash, so it never confuses two positions.
+ * - Retrograde analysis over that set: a finished game (a side without moves, by the same
+ *   rule as GameEngine.getWinner) is won or lost in 0 for the side to move; a position
+ *   with a move to a lost one is won in one more ply; one whose moves all lead to won
+ *   positions is lost in one more than the longest of them. What is left is a draw:
+ *   neither side can force a win, however long it plays.
+ * So every answer is exact, win/loss/draw with the distance in plies, and probe() picks
+ * the shortest win, the longest loss, or a move that keeps the draw.
+ * One analysis covers every later position of the same game, so the next moves are
+ * lookups. Too many positions (MAX_STATES) and the solver gives up on that material; the
+ * caller then searches as usual. Material whose kings alone have more placements than that
+ * (e.g. four kings on 10x10) is given up on at once; men that still have far to go are only
+ * found out while enumerating.
+ * probe() never waits: an ending it has not worked out yet is queued for the one background
+ * solver thread (shared by every game) and probe() answers null until the analysis is done,
+ * so the AI, clocks, the Swing thread and the server never stall on it. solve() does the work
+ * on the caller's thread instead, for tools and tests.
+ *
+ * Cost: a table takes about 12 bytes per slot of its index (two to four slots per position)
+ * plus 3 per position, up to about 13.5 MB for two kings against two on 8x8, and a few seconds
+ * of the solver thread to build. So finished tables are not kept per game: they are shared by
+ * every game with the same rules (variant and forceCapture), found by the material they were
+ * worked out from, and a game only queues an ending no table has yet. The shared tables hold
+ * TABLE_BUDGET bytes at most in all (the oldest are dropped first, and a game lets go of a
+ * dropped one at its next probe), however many games a server runs; a solver on its own is a
+ * few fields. Material given up on is given up on for every game with the same rules.
+ * Thread-safe: a finished analysis is published whole and lookups read it without a lock.
+ */
+public class EndgameSolver {
+
+    public static final int MAX_PIECES = 4;
+    private static final int MAX_STATES = 1 << 19; // Two kings against two on 8x8 fit, just
+    private static final long TABLE_BUDGET = 64L << 20; // Bytes of shared tables, all games together
+
+    // Works out every solver's queued endings, one at a time, below the game threads
+    private static final ExecutorService SOLVER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "endgame-solver");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    public static final int DRAW = 0;
+    public static final int WIN = 1;  // For the side to move
+    public static final int LOSS = 2;
+
+    /** The solver's verdict on a position, for the side to move, with the move to play. */
+    public static final class Result {
+        private final int value;
+        private final int distance;
+        private final int[] move;
+
+        private Result(int value, int distance, int[] move) {
+            this.value = value;
+            this.distance = distance;
+            this.move = move;
+        }
+
+        /** WIN, LOSS or DRAW. */
+        public int getValue() { return value; }
+        /** Plies to the end of the game with best play on both sides (0 for a draw). */
+        public int getDistance() { return distance; }
+        /** The move to play (null if the side to move has none). */
+        public int[] getMove() { return move; }
+
+        /** As a Search score from WHITE's point of view (color to move): wins and losses like Search's, a draw 0. */
+        public int toSearchScore(int color) {
+            int score = value == WIN ? Search.WIN_SCORE - distance : value == LOSS ? -(Search.WIN_SCORE - distance) : 0;
+            return color == Piece.WHITE ? score : -score;
+        }
+    }
+
+    // One finished analysis: code -> index, and per index the value and distance. Never changed
+    // once published, so lookups need no lock; dropped once it has left the shared tables
+    private static final class Table {
+        final int key; // rules << 12 | the material it was worked out from
+        final LongIntMap index;
+        final byte[] values;
+        final short[] distances;
+        final long bytes;
+        volatile boolean dropped;
+
+        Table(int key, LongIntMap index, byte[] values, short[] distances) {
+            this.key = key;
+            this.index = index;
+            this.values = values;
+            this.distances = distances;
+            this.bytes = index.bytes() + 3L * values.length;
+        }
+    }
+
+    // Every game's finished tables by key, read without a lock; changed (with AGE, oldest first,
+    // and sharedBytes, their size in all) under AGE's lock
+    private static final ConcurrentHashMap<Integer, Table[]> SHARED = new ConcurrentHashMap<>();
+    private static final ArrayDeque<Table> AGE = new ArrayDeque<>();
+    private static long sharedBytes;
+
+    // rules << 12 | material (see material()) for endings given up on; they are not tried again
+    private static final Set<Integer> GIVEN_UP = ConcurrentHashMap.newKeySet();
+
+    private final GameEngine engine;
+    private final Variant variant;
+    private final int size;
+    private final int rules; // Variant id and forceCapture: tables are shared between games with the same
+
+    private volatile Table table; // The last one this game found a position in, tried first
+    private boolean queued; // An analysis of this game's is waiting for or running on SOLVER; guarded by this
+
+    private final Piece[] kinds = new Piece[4]; // By kind; shared by every decoded board (nothing moves or crowns them)
+
+    public EndgameSolver(GameEngine engine) {
+        this.engine = engine;
+        this.variant = engine.getVariant();
+        this.size = variant.getSize();
+        this.rules = variant.getId() << 1 | (engine.isForceCapture() ? 1 : 0);
+        for (int kind = 0; kind < 4; kind++) {
+            kinds[kind] = new Piece((kind & 2) != 0 ? Piece.WHITE : Piece.RED);
+            if ((kind & 1) != 0) kinds[kind].promote();
+        }
+    }
+
+    /**
+     * The exact result for color to move on b if it is worked out already, else null. Never waits:
+     * a new ending with few enough pieces is queued for the background solver, so a later probe
+     * (the next move, or a later iteration) finds it.
+     */
+    public Result probe(Piece[][] b, int color) {
+        int material = material(b);
+        if (material < 0) return null;
+        long code = encode(b, color);
+        Table t = find(code, material);
+        if (t == null) queue(code, material);
+        return lookup(t, b, color, code);
+    }
+
+    /**
+     * The same, but works a new ending out on the calling thread (a second or two at most) rather
+     * than in the background: for tools and tests, never for a game's own threads.
+     * Null if b has too many pieces or its ending too many positions.
+     */
+    public Result solve(Piece[][] b, int color) {
+        int material = material(b);
+        if (material < 0 || GIVEN_UP.contains(rules << 12 | material) || kingPlacements(material) > MAX_STATES) return null;
+        long code = encode(b, color);
+        Table t = find(code, material);
+        if (t == null) t = publish(analyse(code, material), material);
+        return lookup(t, b, color, code);
+    }
+
+    /**
+     * WIN, LOSS or DRAW for color to move on b if b is already worked out (by an earlier probe
+     * of this game or any other with the same rules), else -1. Never queues anything either.
+     */
+    public int solvedValue(Piece[][] b, int color) {
+        int material = material(b);
+        if (material < 0) return -1;
+        long code = encode(b, color);
+        Table t = find(code, material);
+        return t == null ? -1 : t.values[t.index.get(code)];
+    }
+
+    /** The line the solver expects from b (the shortest win or longest loss; a few moves of a draw), as far as it is worked out. */
+    public List<int[]> principalVariation(Piece[][] b, int color, int maxPlies) {
+        List<int[]> line = new ArrayList<>();
+        int material = material(b);
+        if (material < 0) return line;
+        Piece[][] pos = engine.cloneBoard(b);
+        long code = encode(pos, color);
+        Table t = find(code, material); // One analysis for the whole line: every position of it is in there if b is
+        Result r = lookup(t, pos, color, code);
+        while (r != null && r.move != null && line.size() < maxPlies) {
+            line.add(r.move);
+            engine.executeMove(pos, r.move[0], r.move[1], r.move[2], r.move[3]);
+            color = color == Piece.RED ? Piece.WHITE : Piece.RED;
+            r = lookup(t, pos, color, encode(pos, color));
+        }
+        return line;
+    }
+
+    private Result lookup(Table t, Piece[][] b, int color, long code) {
+        int i = t != null ? t.index.get(code) : -1;
+        if (i < 0) return null;
+        int value = t.values[i];
+        return new Result(value, value == DRAW ? 0 : t.distances[i], bestMove(t, b, color, code, value));
+    }
+
+    // The table with code in it: this game's last one, else a shared one worked out from the same material
+    private Table find(long code, int material) {
+        Table t = table;
+        if (t != null) {
+            if (!t.dropped && t.index.get(code) >= 0) return t;
+            if (t.dropped) table = null; // Let it go
+        }
+        Table[] shared = SHARED.get(rules << 12 | material);
+        if (shared == null) return null;
+        for (Table s : shared) {
+            if (s.index.get(code) >= 0) {
+                table = s;
+                return s;
+            }
+        }
+        return null;
+    }
+
+    // --- Background analysis ---
+
+    // Hands the ending from code to SOLVER, unless that material is hopeless or this solver has one queued already
+    private synchronized void queue(long code, int material) {
+        if (queued || GIVEN_UP.contains(rules << 12 | material)) return;
+        if (kingPlacements(material) > MAX_STATES) {
+            GIVEN_UP.add(rules << 12 | material);
+            return;
+        }
+        queued = true;
+        SOLVER.execute(() -> {
+            try {
+                // Another game may have had the same ending worked out while this one waited
+                if (find(code, material) == null) {
+                    Table t = null;
+                    try {
+                        t = analyse(code, material);
+                    } finally {
+                        publish(t, material);
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    queued = false;
+                }
+            }
+        });
+    }
+
+    // Shares a new table, dropping the oldest ones above TABLE_BUDGET, and returns it; null gives the material up
+    private Table publish(Table t, int material) {
+        if (t == null) {
+            GIVEN_UP.add(rules << 12 | material);
+            return null;
+        }
+        synchronized (AGE) {
+            SHARED.merge(t.key, new Table[] {t}, (old, one) -> {
+                Table[] more = Arrays.copyOf(old, old.length + 1);
+                more[old.length] = one[0];
+                return more;
+            });
+            AGE.addLast(t);
+            sharedBytes += t.bytes;
+            while (sharedBytes > TABLE_BUDGET && AGE.size() > 1) {
+                Table old = AGE.removeFirst();
+                old.dropped = true;
+                sharedBytes -= old.bytes;
+                SHARED.computeIfPresent(old.key, (key, tables) -> {
+                    Table[] rest = Arrays.stream(tables).filter(s -> s != old).toArray(Table[]::new);
+                    return rest.length == 0 ? null : rest;
+                });
+            }
+        }
+        table = t;
+        return t;
+    }
+
+    // Positions of material's kings alone with every man held still, both sides to move: a floor
+    // for what analyse() would meet (kings can reach any free dark square), so above MAX_STATES it cannot fit
+    private long kingPlacements(int material) {
+        int men = (material & 7) + (material >>> 6 & 7);
+        int free = size * size / 2 - men;
+        int redKings = material >>> 3 & 7, whiteKings = material >>> 9 & 7;
+        return 2 * choose(free, redKings) * choose(free - redKings, whiteKings);
+    }
+
+    private static long choose(int n, int k) {
+        long c = 1;
+        for (int i = 0; i < k; i++) c = c * (n - i) / (i + 1);
+        return c;
+    }
+
+    // The move that keeps the value: to the fastest lost position, the slowest won one, or a drawn one
+    private int[] bestMove(Table t, Piece[][] b, int color, long code, int value) {
+        MoveList moves = new MoveList();
+        int[] pieces = new int[MAX_PIECES];
+        engine.generateMoves(b, color, moves);
+        int best = -1, bestDistance = 0;
+        for (int k = 0; k < moves.size(); k++) {
+            int m = moves.get(k);
+            int j = t.index.get(childCode(code, b, m, color, pieces));
+            if (j < 0) continue; // b itself is a finished game
+            int v = t.values[j], d = t.distances[j];
+            boolean better = switch (value) {
+                case WIN -> v == LOSS && (best < 0 || d < bestDistance);
+                case LOSS -> best < 0 || d > bestDistance;
+                default -> v == DRAW && best < 0;
+            };
+            if (better) {
+                best = m;
+                bestDistance = d;
+            }
+        }
+        return best < 0 ? null : MoveList.toArray(best);
+    }
+
+    // --- Analysis ---
+
+    // Finds every position reachable from root (of material) and solves them all; null if there
+    // are too many. Any thread: it only touches its own buffers and publishes nothing
+    private Table analyse(long root, int material) {
+        MoveList moves = new MoveList();
+        Piece[][] work = variant.newBoard();
+        int[] pieces = new int[MAX_PIECES];
+        LongIntMap map = new LongIntMap(1 << 12);
+        long[] codes = new long[1 << 12];
+        int[] succStart = new int[(1 << 12) + 1];
+        int[] succ = new int[1 << 14];
+        int count = 1, edges = 0;
+        codes[0] = root;
+        map.put(root, 0);
+
+        // Breadth-first: each position's moves, numbering the new positions they lead to.
+        // A finished game has none, only its result for the side to move (0 = none yet)
+        byte[] ended = new byte[1 << 12];
+        for (int i = 0; i < count; i++) {
+            succStart[i] = edges;
+            if (ended.length < codes.length) ended = Arrays.copyOf(ended, codes.length);
+            long code = codes[i];
+            int color = (code & 8) != 0 ? Piece.WHITE : Piece.RED;
+            decode(code, work);
+            int winner = winner(work);
+            if (winner != 0) {
+                ended[i] = (byte) (winner == color ? WIN : LOSS);
+                continue;
+            }
+            engine.generateMoves(work, color, moves);
+            for (int k = 0; k < moves.size(); k++) {
+                long c = childCode(code, work, moves.get(k), color, pieces);
+                int j = map.get(c);
+                if (j < 0) {
+                    if (count == MAX_STATES) return null;
+                    if (count == codes.length) {
+                        codes = Arrays.copyOf(codes, count * 2);
+                        succStart = Arrays.copyOf(succStart, count * 2 + 1);
+                    }
+                    j = count++;
+                    codes[j] = c;
+                    map.put(c, j);
+                }
+                if (edges == succ.length) succ = Arrays.copyOf(succ, edges * 2);
+                succ[edges++] = j;
+            }
+        }
+        succStart[count] = edges;
+
+        // Predecessor lists, the same edges the other way round
+        int[] predStart = new int[count + 1];
+        for (int e = 0; e < edges; e++) predStart[succ[e] + 1]++;
+        for (int i = 0; i < count; i++) predStart[i + 1] += predStart[i];
+        int[] pred = new int[edges];
+        int[] fill = Arrays.copyOf(predStart, count);
+        for (int i = 0; i < count; i++) {
+            for (int e = succStart[i]; e < succStart[i + 1]; e++) pred[fill[succ[e]]++] = i;
+        }
+
+        // Retrograde: positions are settled in order of distance, so a win gets its shortest
+        // distance and a loss its longest (its last move to be refuted is the slowest)
+        byte[] value = new byte[count];
+        short[] distance = new short[count];
+        int[] open = new int[count]; // Moves of a position not yet known to lose for the mover
+        int[] queue = new int[count];
+        int tail = 0;
+        for (int i = 0; i < count; i++) {
+            open[i] = succStart[i + 1] - succStart[i];
+            if (ended[i] != 0) {
+                value[i] = ended[i];
+                queue[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int s = queue[head];
+            for (int e = predStart[s]; e < predStart[s + 1]; e++) {
+                int p = pred[e];
+                if (value[p] != DRAW) continue; // Settled already
+                if (value[s] == LOSS) {
+                    value[p] = WIN;
+                } else if (--open[p] == 0) {
+                    value[p] = LOSS;
+                } else {
+                    continue;
+                }
+                distance[p] = (short) (distance[s] + 1);
+                queue[tail++] = p;
+            }
+        }
+
+        return new Table(rules << 12 | material, map, value, distance);
+    }
+
+    // The code after move m on b (whose code is parent), built from parent's pieces without
+    // touching b: the mover goes to its target, crowned there as executeMove would, the captured
+    // piece (one at most, no multi-jumps) goes away, and the pieces stay in square order.
+    // pieces is the caller's scratch buffer
+    private long childCode(long parent, Piece[][] b, int m, int color, int[] pieces) {
+        int r1 = m & 15, c1 = m >>> 4 & 15, r2 = m >>> 8 & 15, c2 = m >>> 12 & 15;
+        int from = r1 * size + c1, to = r2 * size + c2, captured = -1;
+        if ((m & MoveList.CAPTURE) != 0) {
+            int rDir = Integer.signum(r2 - r1), cDir = Integer.signum(c2 - c1);
+            for (int r = r1 + rDir, c = c1 + cDir; r != r2; r += rDir, c += cDir) {
+                if (b[r][c] != null) captured = r * size + c;
+            }
+        }
+        int n = (int) (parent & 7), k = 0;
+        int moved = -1;
+        long fields = parent >>> 4;
+        for (int i = 0; i < n; i++, fields >>>= 9) {
+            int piece = (int) (fields & 511), sq = piece >>> 2;
+            if (sq == captured) continue;
+            if (sq == from) {
+                moved = to << 2 | (piece & 3) | (r2 == variant.promotionRow(color) ? 1 : 0);
+                continue;
+            }
+            pieces[k++] = piece;
+        }
+        long code = 0;
+        boolean placed = false;
+        for (int i = k - 1; i >= 0; i--) { // Highest square first, so it ends up in the top bits
+            if (!placed && pieces[i] < moved) {
+                code = code << 9 | moved;
+                placed = true;
+            }
+            code = code << 9 | pieces[i];
+        }
+        if (!placed) code = code << 9 | moved;
+        return code << 4 | (color == Piece.RED ? 8 : 0) | (k + 1); // The opponent to move
+    }
+
+    // --- Position codes ---
+
+    // Bits 0-2 piece count, bit 3 side to move (WHITE), then 9 bits per piece in board order:
+    // square (r * size + c, 7 bits) and kind (bit 0 king, bit 1 WHITE)
+    private long encode(Piece[][] b, int color) {
+        long code = 0;
+        int n = 0;
+        for (int r = size - 1; r >= 0; r--) {
+            for (int c = size - 1; c >= 0; c--) {
+                Piece p = b[r][c];
+                if (p == null) continue;
+                int kind = (p.getColor() == Piece.WHITE ? 2 : 0) | (p.isKing() ? 1 : 0);
+                code = code << 9 | (r * size + c) << 2 | kind;
+                n++;
+            }
+        }
+        return code << 4 | (color == Piece.WHITE ? 8 : 0) | n;
+    }
+
+    // Sets up b as the position of code
+    private void decode(long code, Piece[][] b) {
+        for (Piece[] row : b) Arrays.fill(row, null);
+        int n = (int) (code & 7);
+        code >>>= 4;
+        for (int i = 0; i < n; i++, code >>>= 9) {
+            int sq = (int) (code >>> 2 & 127);
+            b[sq / size][sq % size] = kinds[(int) (code & 3)];
+        }
+    }
+
+    // The game's own end rule (GameEngine.getWinner): a side without moves loses, whoever is to move, RED checked first
+    private int winner(Piece[][] b) {
+        if (!engine.hasAnyLegalMove(b, Piece.RED)) return Piece.WHITE;
+        if (!engine.hasAnyLegalMove(b, Piece.WHITE)) return Piece.RED;
+        return 0;
+    }
+
+    // The number of pieces of each kind, 3 bits per kind; -1 if more than MAX_PIECES in all
+    private int material(Piece[][] b) {
+        int n = 0, material = 0;
+        for (Piece[] row : b) {
+            for (Piece p : row) {
+                if (p == null) continue;
+                if (++n > MAX_PIECES) return -1;
+                material += 1 << 3 * ((p.getColor() == Piece.WHITE ? 2 : 0) | (p.isKing() ? 1 : 0));
+            }
+        }
+        return material;
+    }
+
+    // Open-addressing long -> int map (codes are never 0), so half a million positions need no boxing
+    private static final class LongIntMap {
+        private long[] keys;
+        private int[] vals;
+        private int size;
+
+        LongIntMap(int capacity) {
+            keys = new long[capacity];
+            vals = new int[capacity];
+        }
+
+        long bytes() {
+            return 12L * keys.length;
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == key) return vals[i];
+                if (keys[i] == 0) return -1;
+            }
+        }
+
+        void put(long key, int val) {
+            if ((size + 1) * 2 > keys.length) grow();
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+            if (keys[i] == 0) size++;
+            keys[i] = key;
+            vals[i] = val;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldVals = vals;
+            keys = new long[oldKeys.length * 2];
+            vals = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) put(oldKeys[i], oldVals[i]);
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & mask;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * EngineListener.java
+ * Callback for watching a Search while it runs.
+ * Called on the searching thread, so implementations must be quick and copy what they keep.
+ */
+public interface EngineListener {
+
+    /** After every finished iteration of iterative deepening. */
+    void onIteration(SearchStats stats);
+
+    /** Once per search, with the final numbers. */
+    default void onSearchFinished(SearchStats stats) { }
+}
@@ -0,0 +1,345 @@
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * EngineMain.java
+ * Runs the AI as a text engine on stdin/stdout (UCI-like), so tournament managers and other
+ * GUIs can drive it; started instead of Main, without any Swing.
+ *
+ * Commands (one per line):
+ *   uci                     -> id ..., option ..., uciok
+ *   isready                 -> readyok (answered at once, even while searching)
+ *   setoption name <Hash|Network|ForceCapture|KingRule|Variant> value <v>
+ *                           (Variant by key: makhos or makhos-short, see Variant)
+ *   ucinewgame              clears the hash table
+ *   position startpos|fen <FEN> [moves 22-18 11x18 ...]   (FEN and moves as in Notation; a FEN's
+ *                           K or V field sets the variant)
+ *   go [depth N] [nodes N] [movetime MS] [wtime MS] [rtime MS] [winc MS] [rinc MS] [movestogo N] [infinite]
+ *                           (btime / binc are taken as RED's, for GUIs that only know black and white)
+ *   stop                    ends the search; it answers with bestmove
+ *   d                       -> info string fen ...
+ *   quit
+ * While searching it sends one line per finished depth:
+ *   info depth 7 seldepth 15 score cp 120 nodes 81234 nps 1500000 time 54 pv 22-18 11-15 ...
+ * then "bestmove 22-18" ("bestmove none" with no legal move). Scores are for the side to move,
+ * 100 cp = one man; "score mate N" means a win in N moves (negative: a loss).
+ *
+ * The search runs on its own thread and all output goes through a queue to a writer
+ * thread, so a slow reader on the other end never holds up the search.
+ * For many engine processes per box a small heap is enough, e.g. java -Xmx64m -XX:+UseSerialGC EngineMain
+ */
+public class EngineMain {
+
+    private static final String NAME = "MakHos";
+
+    // Output queue; a line with this text stops the writer
+    private static final String END = "\u0000";
+    private final BlockingQueue<String> out = new LinkedBlockingQueue<>();
+
+    // Options
+    private int hashMb = 16;
+    private boolean useNetwork = false;
+    private boolean forceCapture = true;
+    private Variant variant = Variant.MAK_HOS;
+
+    // Current position
+    private Piece[][] board;
+    private int sideToMove;
+    private int moveNumber; // Of the side to move, from 1, for the time manager
+    private GameEngine engine;
+    private TranspositionTable tt;
+
+    // Running search, if any
+    private Search search;
+    private Thread searchThread;
+
+    public static void main(String[] args) throws IOException {
+        new EngineMain().run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+    }
+
+    public void run(BufferedReader in) throws IOException {
+        Thread writer = new Thread(this::writeLoop, "engine-out");
+        writer.start();
+        setPosition(null, List.of());
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!handle(line.trim())) break;
+            }
+        } finally {
+            stopSearch();
+            out.add(END);
+        }
+    }
+
+    private void writeLoop() {
+        PrintStream stdout = new PrintStream(new FileOutputStream(FileDescriptor.out), false, StandardCharsets.UTF_8);
+        List<String> batch = new java.util.ArrayList<>();
+        try {
+            while (true) {
+                batch.add(out.take());
+                out.drainTo(batch);
+                for (String s : batch) {
+                    if (s == END) { // Compared by identity: only the marker itself ends the loop
+                        stdout.flush();
+                        return;
+                    }
+                    stdout.println(s);
+                }
+                stdout.flush();
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            stdout.flush();
+        }
+    }
+
+    private void send(String line) {
+        out.add(line);
+    }
+
+    /** Returns false on quit. */
+    private boolean handle(String line) {
+        if (line.isEmpty()) return true;
+        String[] t = line.split("\\s+");
+        switch (t[0]) {
+            case "uci" -> {
+                send("id name " + NAME);
+                send("id author Project CS318");
+                send("option name Hash type spin default 16 min 1 max 1024");
+                send("option name Network type check default false");
+                send("option name ForceCapture type check default true");
+                send("option name KingRule type combo default 1 var 1 var 2");
+                StringBuilder variants = new StringBuilder("option name Variant type combo default " + Variant.MAK_HOS.getKey());
+                for (Variant v : Variant.values()) variants.append(" var ").append(v.getKey());
+                send(variants.toString());
+                send("uciok");
+            }
+            case "isready" -> send("readyok");
+            case "setoption" -> setOption(t);
+            case "ucinewgame" -> {
+                stopSearch();
+                if (tt != null) tt.clear();
+            }
+            case "position" -> position(t);
+            case "go" -> go(t);
+            case "stop" -> stopSearch();
+            case "d" -> send("info string fen " + Notation.toFen(new Position(board, sideToMove, forceCapture, variant)));
+            case "quit" -> {
+                return false;
+            }
+            default -> send("info string unknown command " + t[0]);
+        }
+        return true;
+    }
+
+    // setoption name <id> value <v>
+    private void setOption(String[] t) {
+        if (t.length < 5 || !t[1].equals("name") || !t[3].equals("value")) {
+            send("info string usage: setoption name <id> value <v>");
+            return;
+        }
+        stopSearch();
+        String value = t[4];
+        switch (t[2].toLowerCase()) {
+            case "hash" -> {
+                try {
+                    hashMb = Math.max(1, Math.min(1024, Integer.parseInt(value)));
+                    tt = null;
+                } catch (NumberFormatException e) {
+                    send("info string bad hash size " + value);
+                }
+            }
+            case "network" -> {
+                useNetwork = Boolean.parseBoolean(value);
+                if (useNetwork && NnueNetwork.getDefault() == null) send("info string no network bundled, using the classic evaluator");
+            }
+            case "forcecapture" -> forceCapture = Boolean.parseBoolean(value);
+            case "kingrule" -> setVariant(Variant.makHos(value.equals("2") ? 2 : 1));
+            case "variant" -> {
+                if (Variant.byKey(value) != null) setVariant(Variant.byKey(value));
+                else send("info string unknown variant " + value);
+            }
+            default -> send("info string unknown option " + t[2]);
+        }
+        setupEngine();
+    }
+
+    // A variant with another board size cannot keep the position: it starts from its opening
+    private void setVariant(Variant v) {
+        boolean newSize = v.getSize() != variant.getSize();
+        variant = v;
+        if (newSize) {
+            board = v.initialBoard();
+            sideToMove = Piece.RED;
+            moveNumber = 1;
+        }
+    }
+
+    // position startpos|fen <FEN...> [moves ...]
+    private void position(String[] t) {
+        stopSearch();
+        int i = 1;
+        String fen;
+        if (i < t.length && t[i].equals("startpos")) {
+            fen = null;
+            i++;
+        } else if (i < t.length && t[i].equals("fen")) {
+            StringBuilder sb = new StringBuilder();
+            for (i++; i < t.length && !t[i].equals("moves"); i++) sb.append(t[i]);
+            fen = sb.toString();
+        } else {
+            send("info string usage: position startpos|fen <FEN> [moves ...]");
+            return;
+        }
+        List<String> moves = i < t.length && t[i].equals("moves") ? List.of(t).subList(i + 1, t.length) : List.of();
+        setPosition(fen, moves);
+    }
+
+    // fen null = the opening of the current variant
+    private void setPosition(String fen, List<String> moves) {
+        Position p;
+        try {
+            p = fen != null ? Notation.parseFen(fen, forceCapture, variant)
+                    : new Position(variant.initialBoard(), Piece.RED, forceCapture, variant);
+        } catch (IllegalArgumentException e) {
+            send("info string bad fen: " + e.getMessage());
+            return;
+        }
+        forceCapture = p.isForceCapture();
+        variant = p.getVariant();
+        board = p.getBoard();
+        sideToMove = p.getSideToMove();
+        moveNumber = 1;
+        setupEngine();
+        for (String text : moves) {
+            int[] m = Notation.parseMove(text, 0, text.length(), variant.getSize());
+            if (m == null || !isLegal(m)) {
+                send("info string illegal move " + text);
+                return;
+            }
+            engine.executeMove(board, m[0], m[1], m[2], m[3]);
+            sideToMove = sideToMove == Piece.RED ? Piece.WHITE : Piece.RED;
+            if (sideToMove == p.getSideToMove()) moveNumber++;
+        }
+    }
+
+    private boolean isLegal(int[] m) {
+        for (int[] legal : engine.getAllLegalMoves(board, sideToMove)) {
+            if (legal[0] == m[0] && legal[1] == m[1] && legal[2] == m[2] && legal[3] == m[3]) return true;
+        }
+        return false;
+    }
+
+    // A new engine when the rules may have changed; the hash table is only kept for the same rules
+    private void setupEngine() {
+        if (engine == null || engine.isForceCapture() != forceCapture || engine.getVariant() != variant) {
+            engine = new GameEngine(variant, forceCapture, board != null ? board : variant.newBoard());
+            if (tt != null) tt.clear();
+        }
+        engine.setNetwork(useNetwork ? NnueNetwork.getDefault() : null);
+    }
+
+    // go [depth N] [nodes N] [movetime MS] [wtime MS] [rtime|btime MS] [winc MS] [rinc|binc MS] [movestogo N] [infinite]
+    private void go(String[] t) {
+        stopSearch();
+        int depth = Search.MAX_PLY;
+        long nodes = 0, moveTime = -1, myTime = -1, myInc = 0;
+        int movesToGo = 0;
+        boolean white = sideToMove == Piece.WHITE;
+        try {
+            for (int i = 1; i < t.length; i++) {
+                String key = t[i];
+                if (key.equals("infinite")) continue;
+                if (i + 1 >= t.length) break;
+                long v = Long.parseLong(t[++i]);
+                switch (key) {
+                    case "depth" -> depth = (int) Math.max(1, Math.min(Search.MAX_PLY, v));
+                    case "nodes" -> nodes = v;
+                    case "movetime" -> moveTime = v;
+                    case "wtime" -> { if (white) myTime = v; }
+                    case "rtime", "btime" -> { if (!white) myTime = v; }
+                    case "winc" -> { if (white) myInc = v; }
+                    case "rinc", "binc" -> { if (!white) myInc = v; }
+                    case "movestogo" -> movesToGo = (int) Math.max(1, v);
+                    default -> send("info string unknown go parameter " + key);
+                }
+            }
+        } catch (NumberFormatException e) {
+            send("info string bad go parameters");
+            return;
+        }
+
+        // A fixed movetime wins; with clock times the TimeManager plans the move
+        TimeManager time = moveTime < 0 && myTime >= 0 ? new TimeManager(myTime, myInc, moveNumber, movesToGo) : null;
+        long deadline = moveTime >= 0 ? System.nanoTime() + moveTime * 1_000_000L
+                : time != null ? time.getDeadline() : Search.NO_DEADLINE;
+
+        if (tt == null) tt = new TranspositionTable(hashMb); // Allocated on first use, so starting up stays cheap
+        Search s = new Search(engine);
+        s.setTranspositionTable(tt);
+        s.setNodeLimit(nodes);
+        s.setIterative(true);
+        s.setTimeManager(time);
+        s.setListener(new EngineListener() {
+            @Override
+            public void onIteration(SearchStats stats) {
+                send(infoLine(stats));
+            }
+        });
+        Piece[][] root = engine.cloneBoard(board);
+        int color = sideToMove;
+        int maxDepth = depth;
+        search = s;
+        searchThread = new Thread(() -> {
+            int[] best = s.search(root, color, maxDepth, deadline);
+            send(best == null ? "bestmove none" : "bestmove " + Notation.moveToText(root, best));
+        }, "engine-search");
+        searchThread.start();
+    }
+
+    private String infoLine(SearchStats stats) {
+        int score = sideToMove == Piece.WHITE ? stats.getScore() : -stats.getScore();
+        long ms = stats.getElapsedNanos() / 1_000_000;
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("info depth ").append(stats.getDepth())
+          .append(" seldepth ").append(stats.getSelDepth())
+          .append(" score ").append(scoreText(score))
+          .append(" nodes ").append(stats.getNodes())
+          .append(" nps ").append(stats.getNps())
+          .append(" time ").append(ms);
+        if (stats.getPvText() != null && !stats.getPvText().isEmpty()) sb.append(" pv ").append(stats.getPvText());
+        return sb.toString();
+    }
+
+    // "cp N" with 100 per man, or "mate N" in moves (negative when losing)
+    private static String scoreText(int score) {
+        if (Math.abs(score) >= Search.WIN_SCORE - Search.MAX_PLY) {
+            int plies = Search.WIN_SCORE - Math.abs(score);
+            int moves = (plies + 1) / 2;
+            return "mate " + (score > 0 ? moves : -moves);
+        }
+        return "cp " + score * 10;
+    }
+
+    // Stops a running search and waits for its bestmove
+    private void stopSearch() {
+        if (searchThread == null) return;
+        search.stop();
+        try {
+            searchThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searchThread = null;
+        search = null;
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * EngineWarmup.java
+ * Loads and JIT-compiles the engine while the player is still looking at the menu, so the
+ * first AI move of the first game does not pay for it. Runs a few small searches on a
+ * lowest-priority daemon thread (the menu keeps the CPU whenever it needs it).
+ * StartupBenchmark's training run calls run() directly, so the AOT cache records the same classes.
+ */
+public class EngineWarmup {
+
+    // Enough for the search's hot loops to be compiled, short enough to be done in well under a second
+    private static final int DEPTH = 6;
+    private static final int ROUNDS = 3;
+
+    private static boolean started;
+
+    private EngineWarmup() { }
+
+    /** Starts the warm-up once per run; later calls do nothing. */
+    public static synchronized void startInBackground() {
+        if (started) return;
+        started = true;
+        Thread t = new Thread(EngineWarmup::run, "engine-warmup");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    }
+
+    /** The warm-up itself: a few searches from the opening and a couple of moves in, with the current settings. */
+    public static void run() {
+        GameEngine engine = GameEngine.fromSettings();
+        engine.setSeed(1);
+        if (CheckersBoard.neuralEval) engine.setNetwork(NnueNetwork.getDefault());
+        engine.setTranspositionTable(new TranspositionTable(1));
+        Piece[][] b = engine.getBoard();
+        int color = Piece.RED;
+        for (int i = 0; i < ROUNDS; i++) {
+            int[] m = engine.findMoveForLevel(b, color, AiLevel.fixedDepth(DEPTH));
+            if (m == null) break;
+            engine.executeMove(b, m[0], m[1], m[2], m[3]);
+            color = color == Piece.RED ? Piece.WHITE : Piece.RED;
+        }
+        engine.getWinner();
+    }
+}
@@ -0,0 +1,85 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * FlightEvents.java
+ * Java Flight Recorder events for profiling the game in production.
+ * They cost almost nothing unless a recording is running, e.g.:
+ *   java -XX:StartFlightRecording=filename=makhos.jfr,settings=profile ...
+ *   jfr print --events makhos.Search makhos.jfr
+ * Game loop events share GameEvent's fields so every sample is tagged with difficulty and rules.
+ */
+public final class FlightEvents {
+
+    private FlightEvents() { }
+
+    @Name("makhos.Search")
+    @Label("AI Search")
+    @Category({"Mak Hos", "Engine"})
+    @Description("One AI move search")
+    @StackTrace(false)
+    public static class SearchEvent extends Event {
+        @Label("Depth") int depth;
+        @Label("Selective Depth") int selDepth;
+        @Label("Score") int score;
+        @Label("Nodes") long nodes;
+        @Label("Leaf Evaluations") long leafEvals;
+        @Label("Beta Cutoffs") long betaCutoffs;
+        @Label("TT Hits") long ttHits;
+        @Label("Nodes per Second") long nps;
+        @Label("Aborted") boolean aborted;
+        @Label("Principal Variation") String pv;
+    }
+
+    /** Common tags: which difficulty and rule settings the game was running with. */
+    @Category({"Mak Hos", "Game"})
+    @StackTrace(false)
+    public abstract static class GameEvent extends Event {
+        @Label("Difficulty") int difficulty;
+        @Label("Force Capture") boolean forceCapture;
+        @Label("King Move Rule") int kingMoveRule;
+        @Label("Variant") String variant;
+
+        public void tag(int difficulty, GameEngine engine) {
+            this.difficulty = difficulty;
+            this.forceCapture = engine.isForceCapture();
+            this.kingMoveRule = engine.getKingMoveRule();
+            this.variant = engine.getVariant().getKey();
+        }
+    }
+
+    @Name("makhos.AiMove")
+    @Label("AI Move Selection")
+    @Description("Choosing one AI move, by a search or from a ponder hit")
+    public static class AiMoveEvent extends GameEvent {
+        @Label("Move") String move;
+        @Label("Ponder Hit") boolean ponderHit;
+    }
+
+    @Name("makhos.WinCheck")
+    @Label("Win Condition Check")
+    @Description("Checking whether either side has run out of moves")
+    public static class WinCheckEvent extends GameEvent {
+        @Label("Winner") int winner;
+    }
+
+    @Name("makhos.MoveExecute")
+    @Label("Move Execution")
+    @Description("Applying one move to the game board")
+    public static class MoveExecuteEvent extends GameEvent {
+        @Label("Player") int player;
+        @Label("Move") String move;
+    }
+
+    @Name("makhos.Paint")
+    @Label("Board Paint")
+    @Description("One paintComponent call of the game board")
+    public static class PaintEvent extends GameEvent {
+        @Label("Board Theme") int boardTheme;
+        @Label("Piece Style") int pieceStyle;
+    }
+}
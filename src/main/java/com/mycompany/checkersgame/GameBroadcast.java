@@ -0,0 +1,134 @@
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * GameBroadcast.java
+ * The spectator feed of one game on a GameServer.
+ * - The game's session publishes each change once: protocol lines (MOVE, CLOCK, GAMEOVER)
+ *   go into a ring buffer of CAPACITY lines, together with a SNAPSHOT line of the whole
+ *   position. Publishing never waits for spectators: it writes the ring and wakes them.
+ * - Every spectator streams from the ring on its own (virtual) thread with its own cursor,
+ *   and writes everything that is new in one go (one flush per wake-up, however many lines).
+ * - A spectator whose connection is too slow to keep up falls more than CAPACITY lines
+ *   behind; it then gets the latest SNAPSHOT and carries on from there, instead of the game
+ *   waiting for it or the server keeping its backlog.
+ * - The publisher reserves its lines (writing) before it touches a slot, and a spectator checks
+ *   that reservation after copying, so a lap overwritten mid-copy is never sent.
+ * One publisher per game (its session); any number of spectators.
+ */
+public class GameBroadcast {
+
+    public static final int CAPACITY = 64; // Lines; a power of two
+    private static final int MASK = CAPACITY - 1;
+
+    // The position after the first seq lines, as a SNAPSHOT line
+    private record Snapshot(long seq, String line) { }
+
+    private final int id;
+    private final AtomicReferenceArray<String> ring = new AtomicReferenceArray<>(CAPACITY);
+    private volatile long published; // Lines written so far; line n is in ring[n & MASK]
+    private volatile long writing;   // Lines reserved so far: slots of lines past published may be changing
+    private volatile Snapshot snapshot;
+    private volatile boolean closed;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition advanced = lock.newCondition();
+
+    private final AtomicInteger spectators = new AtomicInteger();
+    private final LongAdder linesSent = new LongAdder();
+    private final LongAdder skips = new LongAdder();
+
+    public GameBroadcast(int id, String snapshotLine) {
+        this.id = id;
+        this.snapshot = new Snapshot(0, snapshotLine);
+    }
+
+    public int getId() { return id; }
+    public int getSpectators() { return spectators.get(); }
+    public long getLinesSent() { return linesSent.sum(); }
+    public long getSkips() { return skips.sum(); }
+    public boolean isClosed() { return closed; }
+
+    /** Adds lines to the feed; snapshotLine is the position after them. Called by the game's session only. */
+    public void publish(String snapshotLine, String... lines) {
+        long seq = published;
+        writing = seq + lines.length; // Before any slot: whoever sees a new line in a slot sees this too
+        for (String line : lines) ring.set((int) (seq++ & MASK), line);
+        published = seq;
+        snapshot = new Snapshot(seq, snapshotLine); // After published: a snapshot is never ahead of the ring
+        wakeSpectators();
+    }
+
+    /** Ends the feed after lines (e.g. the GAMEOVER line); spectators get them and stop. */
+    public void close(String... lines) {
+        publish(snapshot.line(), lines);
+        closed = true;
+        wakeSpectators();
+    }
+
+    private void wakeSpectators() {
+        if (spectators.get() == 0) return;
+        lock.lock();
+        try {
+            advanced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Streams the feed to out, starting with the current SNAPSHOT, until the feed is closed
+     * or out fails (the spectator went away). Runs on the spectator's own thread.
+     */
+    public void stream(PrintWriter out) throws InterruptedException {
+        spectators.incrementAndGet();
+        try {
+            long cursor = sendSnapshot(out);
+            StringBuilder batch = new StringBuilder(256);
+            while (!out.checkError()) {
+                long head = awaitBeyond(cursor);
+                if (head == cursor) return; // Closed, everything sent
+
+                batch.setLength(0);
+                for (long s = cursor; s < head; s++) batch.append(ring.get((int) (s & MASK))).append('\n');
+                // Too far behind, before or while copying: a line reserved a lap past the cursor may have overwritten one copied
+                if (writing - cursor > CAPACITY) {
+                    skips.increment();
+                    cursor = sendSnapshot(out);
+                    continue;
+                }
+                out.write(batch.toString());
+                out.flush();
+                linesSent.add(head - cursor);
+                cursor = head;
+            }
+        } finally {
+            spectators.decrementAndGet();
+        }
+    }
+
+    private long sendSnapshot(PrintWriter out) {
+        Snapshot s = snapshot;
+        out.println(s.line());
+        out.flush();
+        linesSent.increment();
+        return s.seq();
+    }
+
+    // Waits until more than cursor lines are published (returns the count) or the feed is closed
+    private long awaitBeyond(long cursor) throws InterruptedException {
+        long head = published;
+        if (head > cursor || closed) return head;
+        lock.lock();
+        try {
+            while ((head = published) <= cursor && !closed) advanced.await();
+            return head;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
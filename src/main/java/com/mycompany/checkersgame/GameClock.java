@@ -0,0 +1,100 @@
+/**
+ * GameClock.java
+ * Chess-style clock for both sides: a base time plus an increment added after every move.
+ * Only the side to move runs down; a side whose time is gone has lost ("flagged").
+ * Not thread-safe: the GUI uses it from the Swing thread, a GameSession from its own thread.
+ */
+public class GameClock {
+
+    private final long baseMillis;
+    private final long incrementMillis;
+    private final long[] remainingNanos = new long[3]; // Indexed by color (Piece.RED / Piece.WHITE)
+    private final int[] movesMade = new int[3];
+    private int running;      // Color whose time is running, 0 = stopped
+    private long turnStart;
+
+    public GameClock(long baseMillis, long incrementMillis) {
+        this.baseMillis = baseMillis;
+        this.incrementMillis = incrementMillis;
+        remainingNanos[Piece.RED] = baseMillis * 1_000_000L;
+        remainingNanos[Piece.WHITE] = baseMillis * 1_000_000L;
+    }
+
+    /** "5+3" style: minutes, optionally "+" increment seconds; null if text is not a time control. */
+    public static GameClock parse(String text) {
+        try {
+            int plus = text.indexOf('+');
+            double minutes = Double.parseDouble(plus < 0 ? text : text.substring(0, plus));
+            double inc = plus < 0 ? 0 : Double.parseDouble(text.substring(plus + 1));
+            if (minutes <= 0 || inc < 0) return null;
+            return new GameClock(Math.round(minutes * 60_000), Math.round(inc * 1000));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Sets color's time and move count, e.g. when a saved game is resumed (see LocalStore). */
+    public void restore(int color, long remainingMillis, int moves) {
+        remainingNanos[color] = remainingMillis * 1_000_000L;
+        movesMade[color] = moves;
+    }
+
+    public long getBaseMillis() { return baseMillis; }
+    public long getIncrementMillis() { return incrementMillis; }
+    public int getRunning() { return running; }
+
+    /** Starts color's time (stopping the other side's without an increment, if it was running). */
+    public void start(int color) {
+        if (running != 0) charge();
+        running = color;
+        turnStart = System.nanoTime();
+    }
+
+    /** Ends the running side's move: its thinking time is taken off and the increment added (unless it flagged). */
+    public void moveDone() {
+        if (running == 0) return;
+        int color = running;
+        charge();
+        running = 0;
+        movesMade[color]++;
+        if (remainingNanos[color] > 0) remainingNanos[color] += incrementMillis * 1_000_000L;
+    }
+
+    /** Stops the clock without ending a move (game over, window closed). */
+    public void stop() {
+        if (running != 0) charge();
+        running = 0;
+    }
+
+    private void charge() {
+        long now = System.nanoTime();
+        remainingNanos[running] -= now - turnStart;
+        turnStart = now;
+    }
+
+    /** Time left for color, counting the move in progress; never below 0. */
+    public long getRemainingMillis(int color) {
+        long left = remainingNanos[color];
+        if (running == color) left -= System.nanoTime() - turnStart;
+        return Math.max(0, left / 1_000_000L);
+    }
+
+    public boolean isFlagged(int color) {
+        return getRemainingMillis(color) == 0;
+    }
+
+    /** Moves color has completed so far. */
+    public int getMovesMade(int color) { return movesMade[color]; }
+
+    /** Per-move budgets for color's next move, from its time left. */
+    public TimeManager newTimeManager(int color) {
+        return new TimeManager(getRemainingMillis(color), incrementMillis, movesMade[color] + 1);
+    }
+
+    /** "4:59" above ten seconds, "9.3" below. */
+    public static String format(long millis) {
+        if (millis < 10_000) return String.format("%d.%d", millis / 1000, millis / 100 % 10);
+        long s = millis / 1000;
+        return String.format("%d:%02d", s / 60, s % 60);
+    }
+}
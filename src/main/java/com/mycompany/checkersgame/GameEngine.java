@@ -0,0 +1,489 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * GameEngine.java
+ * Headless Mak Hos rules and AI, extracted from CheckersBoard so the same
+ * logic can drive the Swing window and the network server.
+ * Rules (the Variant, plus forceCapture) are fixed per game when the engine is created;
+ * the old kingMoveRule switch picks between the two Mak Hos variants.
+ * Every random choice of the AI (random moves, root noise) comes from this game's own
+ * seeded generator, so a game replays exactly from its seed (see setSeed); a saved game
+ * keeps the seed and the number of draws taken, so a resumed one carries on from there.
+ * The generator is not thread-safe: one thread at a time per engine, same as the board.
+ */
+public class GameEngine {
+
+    // Size of the Mak Hos board (and of every 8x8 variant); see Variant.getSize() for the others
+    public static final int ROWS = 8;
+    public static final int COLS = 8;
+
+    // Rules for this game
+    private final Variant variant;
+    private final int size;
+    private final boolean forceCapture;
+
+    // Game State
+    private Piece[][] board;
+
+    // Piece counts of this engine's own board, kept up to date by executeMove
+    private int redCount;
+    private int whiteCount;
+
+    // Optional observer for minimax searches run through this engine
+    private EngineListener listener;
+
+    // Optional hash table shared by this engine's searches (e.g. the AI move and pondering)
+    private TranspositionTable tt;
+
+    // Optional evaluation network for this engine's searches (null = evaluateBoard)
+    private NnueNetwork network;
+
+    // Monte Carlo search for the MCTS level, created on first use and kept so its tree carries over between moves
+    private MctsSearch mcts;
+
+    // Exact play with few pieces left, shared by every search of this engine (it is thread-safe)
+    private final EndgameSolver endgame;
+
+    // Per-game random source for the AI
+    private GameRandom random;
+
+    /** Mak Hos with kingMoveRule 1 (flying king) or 2 (short king). */
+    public GameEngine(boolean forceCapture, int kingMoveRule) {
+        this(Variant.makHos(kingMoveRule), forceCapture);
+    }
+
+    /** Starts from a given setup instead of the opening (e.g. a loaded test position). */
+    public GameEngine(boolean forceCapture, int kingMoveRule, Piece[][] start) {
+        this(Variant.makHos(kingMoveRule), forceCapture, start);
+    }
+
+    public GameEngine(Variant variant, boolean forceCapture) {
+        this(variant, forceCapture, variant.initialBoard());
+    }
+
+    public GameEngine(Variant variant, boolean forceCapture, Piece[][] start) {
+        this.variant = variant;
+        this.size = variant.getSize();
+        this.forceCapture = forceCapture;
+        this.endgame = new EndgameSolver(this);
+        board = cloneBoard(start);
+        countPieces();
+        setSeed(ThreadLocalRandom.current().nextLong());
+    }
+
+    /** Creates an engine using the current global settings from SettingsMenu. */
+    public static GameEngine fromSettings() {
+        return new GameEngine(CheckersBoard.forceCapture, CheckersBoard.kingMoveRule);
+    }
+
+    public Piece[][] getBoard() { return board; }
+    public Variant getVariant() { return variant; }
+    public boolean isForceCapture() { return forceCapture; }
+    public int getKingMoveRule() { return variant.getKingMoveRule(); }
+    public void setEngineListener(EngineListener listener) { this.listener = listener; }
+    public void setTranspositionTable(TranspositionTable tt) { this.tt = tt; }
+    public TranspositionTable getTranspositionTable() { return tt; }
+    /** The network only knows the 8x8 board; on other sizes this engine keeps evaluateBoard. */
+    public void setNetwork(NnueNetwork network) { this.network = size == ROWS ? network : null; }
+    public NnueNetwork getNetwork() { return network; }
+    public void setMctsSearch(MctsSearch mcts) { this.mcts = mcts; }
+
+    public EndgameSolver getEndgameSolver() { return endgame; }
+
+    /**
+     * True if color to move on b cannot lose and cannot win, however long both sides play:
+     * a solved ending (see EndgameSolver) that is a draw, so the game can be called one now.
+     * Never waits: an ending not worked out yet is queued for the background solver and is
+     * not a proven draw until that is done (a later call finds it).
+     */
+    public boolean isProvenDraw(Piece[][] b, int color) {
+        EndgameSolver.Result r = endgame.probe(b, color);
+        return r != null && r.getValue() == EndgameSolver.DRAW;
+    }
+
+    /** This engine's MctsSearch; the default one uses every core. */
+    public MctsSearch getMctsSearch() {
+        if (mcts == null) mcts = new MctsSearch(this, Runtime.getRuntime().availableProcessors());
+        return mcts;
+    }
+
+    /** Restarts this game's random generator from seed; the same seed and moves give the same AI choices. */
+    public void setSeed(long seed) {
+        setSeed(seed, 0);
+    }
+
+    /** Puts this game's generator where it was after draws draws from seed (see getRandomDraws). */
+    public void setSeed(long seed, long draws) {
+        this.random = new GameRandom(seed, draws);
+    }
+
+    public long getSeed() { return random.getSeed(); }
+
+    /** Draws taken from this game's generator since its seed; reading it changes nothing. */
+    public long getRandomDraws() { return random.getDraws(); }
+
+    public GameRandom getRandom() { return random; }
+
+    /** Pieces of color left on this engine's board (O(1), maintained incrementally). */
+    public int getPieceCount(int color) {
+        return color == Piece.RED ? redCount : whiteCount;
+    }
+
+    private void countPieces() {
+        redCount = whiteCount = 0;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                Piece p = board[r][c];
+                if (p == null) continue;
+                if (p.getColor() == Piece.RED) redCount++;
+                else whiteCount++;
+            }
+        }
+    }
+
+    // --- AI MOVE SELECTION (applied to this engine's board) ---
+
+    public int[] makeRandomMove(int color) {
+        return apply(findRandomMove(board, color));
+    }
+
+    public int[] makeHeuristicMove(int color) {
+        return apply(findHeuristicMove(board, color));
+    }
+
+    public int[] makeMinimaxMove(int color) {
+        int[] bestMove = findMinimaxMove(board, color, 3);
+        if (bestMove == null) return makeRandomMove(color);
+        return apply(bestMove);
+    }
+
+    /** Picks and plays color's move the way the given ladder level would. */
+    public int[] makeMoveForLevel(int color, AiLevel level) {
+        return apply(findMoveForLevel(board, color, level));
+    }
+
+    /** Same, on a clock: the time manager's budget replaces the level's time cap. */
+    public int[] makeMoveForLevel(int color, AiLevel level, TimeManager time) {
+        return apply(findMoveForLevel(board, color, level, time));
+    }
+
+    private int[] apply(int[] m) {
+        if (m != null) executeMove(board, m[0], m[1], m[2], m[3]);
+        return m;
+    }
+
+    // --- AI MOVE SELECTION (pure: never touch the given board; they do draw from this game's generator) ---
+
+    public int[] findRandomMove(Piece[][] b, int color) {
+        List<int[]> moves = getAllLegalMoves(b, color);
+        if (moves.isEmpty()) return null;
+        return moves.get(random.nextInt(moves.size()));
+    }
+
+    public int[] findHeuristicMove(Piece[][] b, int color) {
+        List<int[]> moves = getAllLegalMoves(b, color);
+        List<int[]> captures = new ArrayList<>();
+        for (int[] m : moves) {
+            if (Math.abs(m[2] - m[0]) >= 2) captures.add(m);
+        }
+
+        if (!captures.isEmpty()) {
+            return captures.get(random.nextInt(captures.size()));
+        } else if (!moves.isEmpty()) {
+            return moves.get(random.nextInt(moves.size()));
+        }
+        return null;
+    }
+
+    /** Same difficulty ladder as the menu (see AiLevel). */
+    public int[] findMoveForLevel(Piece[][] b, int color, int level) {
+        return findMoveForLevel(b, color, AiLevel.of(level));
+    }
+
+    public int[] findMoveForLevel(Piece[][] b, int color, AiLevel level) {
+        return findMoveForLevel(b, color, level, null);
+    }
+
+    /**
+     * With a TimeManager (playing on a clock) the manager's budget replaces the level's time cap;
+     * depth and node caps still hold, so weak levels stay weak.
+     */
+    public int[] findMoveForLevel(Piece[][] b, int color, AiLevel level, TimeManager time) {
+        if (level.getKind() == AiLevel.RANDOM) return findRandomMove(b, color);
+        if (level.getKind() == AiLevel.GREEDY) return findHeuristicMove(b, color);
+        if (level.getKind() == AiLevel.MCTS) {
+            EndgameSolver.Result solved = endgame.probe(b, color);
+            if (solved != null && solved.getMove() != null) return solved.getMove();
+            long millis = time != null ? time.getSoftMillis() : level.getTimeMillis();
+            return getMctsSearch().search(b, color, millis, level.getNodeLimit(), random);
+        }
+
+        Search search = newSearch(level);
+        long deadline;
+        if (time != null) {
+            search.setTimeManager(time);
+            deadline = time.getDeadline();
+        } else {
+            deadline = level.getTimeMillis() > 0
+                    ? System.nanoTime() + level.getTimeMillis() * 1_000_000L : Search.NO_DEADLINE;
+        }
+        return search.search(b, color, level.getDepth(), deadline);
+    }
+
+    /** A Search set up with this engine's listener and hash table and the level's limits. */
+    public Search newSearch(AiLevel level) {
+        Search search = new Search(this);
+        search.setListener(listener);
+        search.setTranspositionTable(tt);
+        search.setNodeLimit(level.getNodeLimit());
+        search.setRootNoise(level.getRootNoise(), random);
+        if (!level.isStrong()) search.setEndgameSolver(null); // Weak levels keep their mistakes in the ending too
+        return search;
+    }
+
+    /**
+     * Returns the best move for color at the given depth without touching b.
+     * Scores are always from WHITE's point of view, so RED picks the minimum.
+     */
+    public int[] findMinimaxMove(Piece[][] b, int color, int depth) {
+        return newSearch(AiLevel.fixedDepth(depth)).search(b, color, depth, Search.NO_DEADLINE);
+    }
+
+    public int evaluateBoard(Piece[][] b) {
+        int score = 0;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                Piece p = b[r][c];
+                if (p != null) {
+                    int val = 10;
+                    if (p.isKing()) val = 50;
+                    if (c == 0 || c == size - 1) val += 2;
+                    if (p.getColor() == Piece.WHITE && r == 0) val += 5;
+
+                    if (p.getColor() == Piece.WHITE) score += val;
+                    else score -= val;
+                }
+            }
+        }
+        return score;
+    }
+
+    public Piece[][] cloneBoard(Piece[][] src) {
+        Piece[][] dest = new Piece[size][size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (src[r][c] != null) {
+                    Piece p = new Piece(src[r][c].getColor());
+                    if (src[r][c].isKing()) p.promote();
+                    dest[r][c] = p;
+                }
+            }
+        }
+        return dest;
+    }
+
+    // --- RULES ---
+
+    /** Legal moves for color as {r1, c1, r2, c2} arrays, for the UI, server and tools. */
+    public List<int[]> getAllLegalMoves(Piece[][] b, int color) {
+        MoveList list = new MoveList();
+        generateMoves(b, color, list);
+        List<int[]> moves = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) moves.add(MoveList.toArray(list.get(i)));
+        return moves;
+    }
+
+    /**
+     * Writes the legal moves for color into out (cleared first), in the same order as before:
+     * pieces row by row, targets row by row. Only the squares the variant's tables list for
+     * the piece are tried (a man's forward steps and jumps, a king's diagonals).
+     * With forceCapture on and a capture available, only captures are kept.
+     */
+    public void generateMoves(Piece[][] b, int color, MoveList out) {
+        out.clear();
+        boolean anyJump = false;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                Piece p = b[r][c];
+                if (p == null || p.getColor() != color) continue;
+                for (int t : variant.targets(p, r, c)) {
+                    int tr = t & 15, tc = t >>> 4;
+                    if (isValidMove(b, r, c, tr, tc)) {
+                        out.add(packMove(b, r, c, tr, tc));
+                        anyJump |= Math.abs(tr - r) >= 2;
+                    }
+                }
+            }
+        }
+
+        // CHECK MANDATORY CAPTURE (if forceCapture is ON)
+        if (forceCapture && anyJump) out.keepJumps();
+    }
+
+    // Packs a legal move, flagging it CAPTURE if a piece stands between the two squares
+    private int packMove(Piece[][] b, int r1, int c1, int r2, int c2) {
+        int m = MoveList.pack(r1, c1, r2, c2);
+        int rDir = Integer.signum(r2 - r1), cDir = Integer.signum(c2 - c1);
+        for (int cr = r1 + rDir, cc = c1 + cDir; cr != r2; cr += rDir, cc += cDir) {
+            if (b[cr][cc] != null) return m | MoveList.CAPTURE;
+        }
+        return m;
+    }
+
+    /** Checks a move for the piece currently on (r1, c1); that square must be occupied. */
+    public boolean isValidMove(Piece[][] b, int r1, int c1, int r2, int c2) {
+        // 1. Basic checks
+        if (r2 < 0 || r2 >= size || c2 < 0 || c2 >= size) return false;
+        if (b[r2][c2] != null) return false; // Target must be empty
+        if ((r2 + c2) % 2 == 0) return false; // Must be on dark tile
+
+        Piece p = b[r1][c1];
+        int dr = r2 - r1;
+        int dc = c2 - c1;
+
+        if (Math.abs(dr) != Math.abs(dc)) return false; // Must move diagonally
+
+        // 2. King Logic (Flying King / Short King)
+        if (p.isKing()) {
+
+            if (variant.hasFlyingKings()) { // Flying King (Long Jump)
+
+                int rDir = Integer.signum(dr);
+                int cDir = Integer.signum(dc);
+
+                int obstacleCount = 0;
+                int cr = r1 + rDir;
+                int cc = c1 + cDir;
+
+                while (cr != r2) {
+                    Piece obs = b[cr][cc];
+                    if (obs != null) {
+                        if (obs.getColor() == p.getColor()) return false;
+                        obstacleCount++;
+                    }
+                    cr += rDir;
+                    cc += cDir;
+                }
+
+                if (obstacleCount == 0) return true;
+                if (obstacleCount == 1) return true;
+                return false;
+
+            } else { // Short King
+                // Short King logic: Can move/capture 1 or 2 steps backward/forward
+                int absDr = Math.abs(dr);
+                if (absDr == 1) { // Move 1 step
+                    return true;
+                }
+                if (absDr == 2) { // Capture 1 piece
+                    Piece mid = b[(r1 + r2) / 2][(c1 + c2) / 2];
+                    return mid != null && mid.getColor() != p.getColor();
+                }
+                return false;
+            }
+        }
+        // 3. Normal Piece Logic
+        else {
+            // RED (Player) moves FORWARD (up the board) -> dr < 0
+            // WHITE (AI) moves FORWARD (down the board) -> dr > 0
+            boolean forward = (p.getColor() == Piece.RED) ? (dr < 0) : (dr > 0);
+
+            // Move 1 step
+            if (Math.abs(dr) == 1) {
+                // Must be forward move
+                return forward;
+            }
+            // Capture (Move 2 steps)
+            if (Math.abs(dr) == 2) {
+                // Must be forward capture, unless the variant lets men capture backwards
+                if (!forward && !variant.isMenCaptureBackward()) return false;
+
+                Piece mid = b[(r1 + r2) / 2][(c1 + c2) / 2];
+                return mid != null && mid.getColor() != p.getColor();
+            }
+        }
+        return false;
+    }
+
+    public void executeMove(Piece[][] b, int r1, int c1, int r2, int c2) {
+        Piece p = b[r1][c1];
+        b[r1][c1] = null;
+        b[r2][c2] = p;
+
+        // Handle Capturing
+        int dr = r2 - r1;
+        int dc = c2 - c1;
+
+        // If moved more than 1 square, check for captures (works for both Normal and King)
+        if (Math.abs(dr) >= 2) {
+            int rDir = Integer.signum(dr);
+            int cDir = Integer.signum(dc);
+            int cr = r1 + rDir;
+            int cc = c1 + cDir;
+
+            while (cr != r2) {
+                if (b[cr][cc] != null) {
+                    if (b == board) { // Keep the live board's counts in step
+                        if (b[cr][cc].getColor() == Piece.RED) redCount--;
+                        else whiteCount--;
+                    }
+                    b[cr][cc] = null; // Remove captured piece
+                }
+                cr += rDir;
+                cc += cDir;
+            }
+        }
+
+        // Promotion
+        if (r2 == variant.promotionRow(p.getColor())) {
+            p.promote();
+        }
+    }
+
+    /**
+     * True if color has at least one legal move on b.
+     * Stops at the first move found and only tries squares on the piece's diagonals,
+     * so it allocates nothing (getAllLegalMoves tries every square and builds lists).
+     * forceCapture only filters the move list, so it does not change the answer.
+     */
+    public boolean hasAnyLegalMove(Piece[][] b, int color) {
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                Piece p = b[r][c];
+                if (p == null || p.getColor() != color) continue;
+                for (int t : variant.targets(p, r, c)) {
+                    if (isValidMove(b, r, c, t & 15, t >>> 4)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Win Condition: a side with NO LEGAL MOVES left loses.
+     * Returns the winning color, or 0 while the game is still running.
+     * RED is checked first, same as the original CheckersBoard logic.
+     * Uses the piece counts first, then the early-exit move test, so a normal
+     * call costs a few microseconds and allocates nothing.
+     */
+    public int getWinner() {
+        if (redCount == 0 || !hasAnyLegalMove(board, Piece.RED)) return Piece.WHITE;
+        if (whiteCount == 0 || !hasAnyLegalMove(board, Piece.WHITE)) return Piece.RED;
+        return 0;
+    }
+
+    /** Applies a move to this engine's board if it is legal for color. */
+    public boolean tryMove(int color, int r1, int c1, int r2, int c2) {
+        if (r1 < 0 || r1 >= size || c1 < 0 || c1 >= size) return false;
+        if (board[r1][c1] == null || board[r1][c1].getColor() != color) return false;
+        for (int[] m : getAllLegalMoves(board, color)) {
+            if (m[0] == r1 && m[1] == c1 && m[2] == r2 && m[3] == c2) {
+                executeMove(board, r1, c1, r2, c2);
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * GameRandom.java
+ * The AI's random generator for one game: the same numbers as a SplittableRandom made from
+ * the same seed (SplitMix64), but counter-based, so its place is just the seed plus the
+ * number of draws taken. A saved game stores both and a resumed one carries on from there
+ * (see LocalStore.SavedGame), without the save touching the live game's generator.
+ * Not thread-safe: one thread at a time, like the GameEngine that owns it.
+ */
+public final class GameRandom implements RandomGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L; // SplittableRandom's step
+
+    private final long seed;
+    private long draws;
+
+    public GameRandom(long seed) {
+        this(seed, 0);
+    }
+
+    /** The generator from seed after draws draws, as if they had just been taken. */
+    public GameRandom(long seed, long draws) {
+        this.seed = seed;
+        this.draws = draws;
+    }
+
+    public long getSeed() { return seed; }
+    public long getDraws() { return draws; }
+
+    @Override
+    public long nextLong() {
+        long z = seed + ++draws * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public int nextInt() {
+        long z = seed + ++draws * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.Arrays;
+
+/**
+ * GameRecord.java
+ * One recorded game: the rules it was played under (variant and forceCapture), the AI's random seed,
+ * the result and the move list.
+ *
+ * Moves are packed into 16 bits using the 32 dark squares (0-31, row-major from the top):
+ *   bits 0-4 from square, bits 5-9 to square, bits 10-14 captured square, bit 15 capture flag.
+ * On disk every move takes exactly 2 bytes (see GameRecordWriter), so only 8x8 variants can be
+ * recorded; a 10x10 game (50 squares) is refused with an IllegalArgumentException.
+ * The static square helpers also number bigger boards (size / 2 squares per row), for Notation.
+ */
+public class GameRecord {
+
+    // Result codes (RED_WIN / WHITE_WIN match Piece.RED / Piece.WHITE)
+    public static final int RESULT_UNKNOWN = 0;
+    public static final int RESULT_RED_WIN = Piece.RED;
+    public static final int RESULT_WHITE_WIN = Piece.WHITE;
+    public static final int RESULT_DRAW = 3;
+
+    public static final int CAPTURE_FLAG = 1 << 15;
+
+    private final Variant variant;
+    private final boolean forceCapture;
+    private int result = RESULT_UNKNOWN;
+    private long seed; // GameEngine seed the game was played with (0 if unknown, e.g. version 1 files)
+    private int[] moves;
+    private int moveCount;
+
+    /** Mak Hos with kingMoveRule 1 (flying king) or 2 (short king). */
+    public GameRecord(boolean forceCapture, int kingMoveRule) {
+        this(Variant.makHos(kingMoveRule), forceCapture);
+    }
+
+    public GameRecord(Variant variant, boolean forceCapture) {
+        this(variant, forceCapture, 64);
+    }
+
+    GameRecord(Variant variant, boolean forceCapture, int capacity) {
+        if (variant.getSize() != GameEngine.ROWS) {
+            throw new IllegalArgumentException("Game records only hold 8x8 games, not " + variant.getName());
+        }
+        this.variant = variant;
+        this.forceCapture = forceCapture;
+        this.moves = new int[Math.max(capacity, 1)];
+    }
+
+    public static GameRecord forEngine(GameEngine engine) {
+        GameRecord record = new GameRecord(engine.getVariant(), engine.isForceCapture());
+        record.seed = engine.getSeed();
+        return record;
+    }
+
+    public Variant getVariant() { return variant; }
+    public boolean isForceCapture() { return forceCapture; }
+    public int getKingMoveRule() { return variant.getKingMoveRule(); }
+    public int getResult() { return result; }
+    public void setResult(int result) { this.result = result; }
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+    public int getMoveCount() { return moveCount; }
+
+    /** Packed move (see class comment). */
+    public int getPackedMove(int i) { return moves[i]; }
+
+    /** Move i as {r1, c1, r2, c2}, the same shape GameEngine uses. */
+    public int[] getMove(int i) {
+        int m = moves[i];
+        int from = m & 31, to = (m >>> 5) & 31;
+        return new int[]{squareRow(from), squareCol(from), squareRow(to), squareCol(to)};
+    }
+
+    /** Records a move; call it BEFORE the move is executed on b so the captured piece can be found. */
+    public void addMove(Piece[][] b, int r1, int c1, int r2, int c2) {
+        int packed = toSquare(r1, c1) | (toSquare(r2, c2) << 5);
+        if (Math.abs(r2 - r1) >= 2) {
+            int rDir = Integer.signum(r2 - r1);
+            int cDir = Integer.signum(c2 - c1);
+            for (int r = r1 + rDir, c = c1 + cDir; r != r2; r += rDir, c += cDir) {
+                if (b[r][c] != null) {
+                    packed |= CAPTURE_FLAG | (toSquare(r, c) << 10);
+                    break;
+                }
+            }
+        }
+        addPackedMove(packed);
+    }
+
+    void addPackedMove(int packed) {
+        if (moveCount == moves.length) moves = Arrays.copyOf(moves, moveCount * 2);
+        moves[moveCount++] = packed;
+    }
+
+    /** Streaming replay: rebuilds the game move by move in a fresh engine with this record's rules. */
+    public GameEngine replay() {
+        GameEngine engine = new GameEngine(variant, forceCapture);
+        engine.setSeed(seed);
+        for (int i = 0; i < moveCount; i++) {
+            int[] m = getMove(i);
+            engine.executeMove(engine.getBoard(), m[0], m[1], m[2], m[3]);
+        }
+        return engine;
+    }
+
+    // --- Dark square numbering (0-31 on 8x8, row-major, same order as GameSession.toBoardString) ---
+
+    public static int toSquare(int r, int c) {
+        return toSquare(GameEngine.ROWS, r, c);
+    }
+
+    public static int squareRow(int sq) {
+        return squareRow(GameEngine.ROWS, sq);
+    }
+
+    public static int squareCol(int sq) {
+        return squareCol(GameEngine.ROWS, sq);
+    }
+
+    // The same on a size x size board: size / 2 dark squares per row (0-49 on 10x10)
+
+    public static int toSquare(int size, int r, int c) {
+        return r * (size / 2) + c / 2;
+    }
+
+    public static int squareRow(int size, int sq) {
+        return sq / (size / 2);
+    }
+
+    public static int squareCol(int size, int sq) {
+        int r = sq / (size / 2);
+        return (sq % (size / 2)) * 2 + (r % 2 == 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * GameRecordReader.java
+ * Streams GameRecords from a file written by GameRecordWriter.
+ * Only one game is decoded at a time, so files with millions of games use constant memory.
+ * Reads version 1 files too (their games have seed 0).
+ *
+ * try (GameRecordReader reader = GameRecordReader.open(path)) {
+ *     for (GameRecord game : reader) { ... }
+ * }
+ */
+public class GameRecordReader implements Iterable<GameRecord>, Closeable {
+
+    private final DataInputStream in;
+    private final int version;
+
+    public GameRecordReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 1 << 16));
+        this.version = readHeader(this.in);
+    }
+
+    public static GameRecordReader open(Path file) throws IOException {
+        return new GameRecordReader(Files.newInputStream(file));
+    }
+
+    public int getVersion() { return version; }
+
+    static int readHeader(DataInputStream in) throws IOException {
+        byte[] magic = new byte[GameRecordWriter.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, GameRecordWriter.MAGIC)) throw new IOException("Not a Mak Hos game record file");
+        int version = in.readUnsignedByte();
+        if (version > GameRecordWriter.VERSION) throw new IOException("Unsupported game record version " + version);
+        return version;
+    }
+
+    /** Returns the next game, or null at end of file. */
+    public GameRecord next() throws IOException {
+        int rules = in.read();
+        if (rules < 0) return null;
+
+        int result = in.readUnsignedByte();
+        long seed = version >= 2 ? Long.reverseBytes(in.readLong()) : 0; // Stored little-endian
+        int moveCount = readVarInt(in);
+        readVarInt(in); // payload length, only needed by skip()
+
+        GameRecord game = new GameRecord(Variant.byId((rules >>> 1) & 7), (rules & 1) != 0, moveCount);
+        game.setResult(result);
+        game.setSeed(seed);
+        for (int i = 0; i < moveCount; i++) {
+            game.addPackedMove(in.readUnsignedByte() | (in.readUnsignedByte() << 8));
+        }
+        return game;
+    }
+
+    /** Skips the next game without decoding its moves; returns false at end of file. */
+    public boolean skip() throws IOException {
+        if (in.read() < 0) return false;
+        in.readUnsignedByte();
+        if (version >= 2) in.skipNBytes(8); // Seed
+        readVarInt(in);
+        int length = readVarInt(in);
+        in.skipNBytes(length);
+        return true;
+    }
+
+    @Override
+    public Iterator<GameRecord> iterator() {
+        return new Iterator<>() {
+            private GameRecord pending;
+
+            @Override
+            public boolean hasNext() {
+                if (pending == null) {
+                    try {
+                        pending = GameRecordReader.this.next();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return pending != null;
+            }
+
+            @Override
+            public GameRecord next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                GameRecord g = pending;
+                pending = null;
+                return g;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Truncated game record");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Corrupt varint in game record");
+    }
+}
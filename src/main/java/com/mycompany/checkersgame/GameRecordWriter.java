@@ -0,0 +1,96 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * GameRecordWriter.java
+ * Appends GameRecords to a compact binary file, one game after another.
+ *
+ * File layout:
+ *   "MKHR" magic, 1 byte version
+ *   per game: 1 byte rules (bit0 forceCapture, bits1-3 Variant id), 1 byte result,
+ *             [version 2+: 8 byte AI seed, little-endian]
+ *             varint move count, varint payload length, moves (2 bytes each, little-endian packed move)
+ * The payload length lets readers skip games without decoding them.
+ * The two Mak Hos variants have ids 1 and 2, the old kingMoveRule values, so older files read the same.
+ * Appending to an older file keeps writing that file's version.
+ */
+public class GameRecordWriter implements Closeable {
+
+    static final byte[] MAGIC = {'M', 'K', 'H', 'R'};
+    static final int VERSION = 2;
+
+    private final OutputStream out;
+    private final int version;
+    private long gamesWritten;
+
+    public GameRecordWriter(OutputStream out) throws IOException {
+        this(out, true, VERSION);
+    }
+
+    private GameRecordWriter(OutputStream out, boolean writeHeader, int version) throws IOException {
+        this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out, 1 << 16);
+        this.version = version;
+        if (writeHeader) {
+            this.out.write(MAGIC);
+            this.out.write(version);
+        }
+    }
+
+    /** Opens file for appending; writes the file header only if the file is new or empty. */
+    public static GameRecordWriter append(Path file) throws IOException {
+        boolean existing = Files.exists(file) && Files.size(file) > 0;
+        int version = VERSION;
+        if (existing) {
+            try (InputStream in = Files.newInputStream(file)) {
+                version = GameRecordReader.readHeader(new DataInputStream(in));
+            }
+        }
+        OutputStream os = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return new GameRecordWriter(os, !existing, version);
+    }
+
+    public void write(GameRecord game) throws IOException {
+        int n = game.getMoveCount();
+        out.write((game.isForceCapture() ? 1 : 0) | (game.getVariant().getId() << 1));
+        out.write(game.getResult());
+        if (version >= 2) {
+            long seed = game.getSeed();
+            for (int i = 0; i < 8; i++) out.write((int) (seed >>> (8 * i)) & 0xFF);
+        }
+        writeVarInt(out, n);
+        writeVarInt(out, n * 2);
+        for (int i = 0; i < n; i++) {
+            int m = game.getPackedMove(i);
+            out.write(m & 0xFF);
+            out.write((m >>> 8) & 0xFF);
+        }
+        gamesWritten++;
+    }
+
+    public long getGamesWritten() { return gamesWritten; }
+    public int getVersion() { return version; }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    static void writeVarInt(OutputStream os, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            os.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        os.write(value);
+    }
+}
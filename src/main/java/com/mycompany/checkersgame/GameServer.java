@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GameServer.java
+ * Lightweight TCP server hosting many Mak Hos games in one JVM.
+ * Every connection gets its own GameSession on a virtual thread.
+ *
+ * Line protocol (one command per line, UTF-8):
+ *   Client: NEW [level 1-11, see AiLevel] [forceCapture 0|1] [kingRule 1|2, or a variant: makhos|makhos-short]
+ *               [clock minutes+incSeconds, e.g. 5+3]
+ *           MOVE r1 c1 r2 c2 | MOVES | BOARD | STATS | METRICS | GAMES | SPECTATE id | QUIT
+ *   Server: HELLO MAKHOS 1, OK ..., ERR ..., BOARD ..., MOVES r1 c1 r2 c2;..., STATS ...,
+ *           AI r1 c1 r2 c2, CLOCK redMs whiteMs, TURN RED, GAMEOVER RED|WHITE|DRAW, BYE
+ * Rows and columns count from 0 at the top (WHITE's side).
+ * Every NEW/MOVE reply ends with a TURN, GAMEOVER or ERR line; METRICS ends with a "." line.
+ * CLOCK lines (before TURN) only come in games started with a clock; running out of time loses.
+ * After GAMEOVER the game is over: MOVE and MOVES answer ERR until the next NEW (BOARD still shows it).
+ *
+ * Spectators: every game has an id (at the end of the OK reply to NEW; GAMES lists them as
+ * id:spectators;...). SPECTATE id answers "OK spectating id" and then streams the game until
+ * it ends: SNAPSHOT variant board RED|WHITE [redMs whiteMs], then MOVE RED|WHITE r1 c1 r2 c2,
+ * CLOCK redMs whiteMs and GAMEOVER RED|WHITE|DRAW|ABANDONED lines, and finally END. A spectator that cannot keep
+ * up gets a new SNAPSHOT instead of the lines it missed (see GameBroadcast).
+ *
+ * Weak levels answer on the session's own thread; Hardcore and up go through a shared
+ * SearchScheduler with a per-move time budget, or on a clock with the budget its TimeManager
+ * gives (so a game's total length is known up front). Monte Carlo (11) runs on the session's
+ * thread too, single-threaded and with a small tree, so one game cannot take every core.
+ *
+ * Usage: java GameServer [port] [aiBudgetMs]   (default 5555 1000)
+ * For ~10k games per node raise the open-file limit (ulimit -n) accordingly.
+ */
+public class GameServer {
+
+    public static final int DEFAULT_PORT = 5555;
+    public static final long DEFAULT_AI_BUDGET_MS = 1000;
+
+    private final int port;
+    private final long aiBudgetMillis;
+    private final SearchScheduler scheduler = new SearchScheduler();
+    private final AtomicInteger activeGames = new AtomicInteger();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Map<Integer, GameBroadcast> broadcasts = new ConcurrentHashMap<>();
+    private final AtomicInteger nextGameId = new AtomicInteger(1);
+    private volatile ServerSocket serverSocket;
+
+    public GameServer(int port, long aiBudgetMillis) {
+        this.port = port;
+        this.aiBudgetMillis = aiBudgetMillis;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        long budget = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_AI_BUDGET_MS;
+        new GameServer(port, budget).serve();
+    }
+
+    /** Accepts connections until stop() is called. */
+    public void serve() throws IOException {
+        try (ServerSocket ss = new ServerSocket();
+             ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+            ss.setReuseAddress(true);
+            ss.bind(new InetSocketAddress(port), 4096);
+            serverSocket = ss;
+            System.out.println("Mak Hos server listening on port " + ss.getLocalPort());
+
+            while (!ss.isClosed()) {
+                Socket client;
+                try {
+                    client = ss.accept();
+                } catch (IOException e) {
+                    if (ss.isClosed()) break;
+                    throw e;
+                }
+                client.setTcpNoDelay(true);
+                connections.incrementAndGet();
+                sessions.submit(() -> {
+                    try {
+                        new GameSession(client, this).run();
+                    } finally {
+                        connections.decrementAndGet();
+                    }
+                });
+            }
+        }
+    }
+
+    public void stop() throws IOException {
+        ServerSocket ss = serverSocket;
+        if (ss != null) ss.close();
+        scheduler.shutdown();
+    }
+
+    void gameStarted() { activeGames.incrementAndGet(); }
+    void gameFinished() { activeGames.decrementAndGet(); }
+
+    /** A new game's spectator feed, starting from snapshotLine; findable by its id until it is closed. */
+    GameBroadcast openBroadcast(String snapshotLine) {
+        GameBroadcast b = new GameBroadcast(nextGameId.getAndIncrement(), snapshotLine);
+        broadcasts.put(b.getId(), b);
+        return b;
+    }
+
+    /** Ends a game's feed after lines; spectators already watching get them. */
+    void closeBroadcast(GameBroadcast b, String... lines) {
+        broadcasts.remove(b.getId());
+        b.close(lines);
+    }
+
+    /** The running game with this id, or null. */
+    public GameBroadcast getBroadcast(int id) { return broadcasts.get(id); }
+
+    /** Running games as id:spectators;... */
+    public String getGamesLine() {
+        StringBuilder sb = new StringBuilder();
+        for (GameBroadcast b : broadcasts.values()) {
+            if (sb.length() > 0) sb.append(';');
+            sb.append(b.getId()).append(':').append(b.getSpectators());
+        }
+        return sb.toString();
+    }
+
+    public int getSpectators() {
+        int n = 0;
+        for (GameBroadcast b : broadcasts.values()) n += b.getSpectators();
+        return n;
+    }
+
+    public SearchScheduler getScheduler() { return scheduler; }
+    public long getAiBudgetMillis() { return aiBudgetMillis; }
+
+    public String getStatsLine() {
+        return "games=" + getActiveGames() + " connections=" + getConnections() + " spectators=" + getSpectators()
+                + " " + scheduler.getStatsLine();
+    }
+
+    public int getActiveGames() { return activeGames.get(); }
+    public int getConnections() { return connections.get(); }
+}
@@ -0,0 +1,309 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * GameSession.java
+ * One network client playing RED against the server AI (WHITE).
+ * Runs on its own virtual thread, so blocking reads are cheap.
+ * Every change of the game is also published to its GameBroadcast for spectators; a
+ * connection that sends SPECTATE becomes one of those spectators until that game ends.
+ * See GameServer for the line protocol.
+ */
+public class GameSession implements Runnable {
+
+    // A game with no winner after this many plies is declared a draw (kings can shuffle forever)
+    public static final int MAX_PLIES = 200;
+
+    // Tree size for Monte Carlo games; the desktop default is much bigger
+    private static final int MCTS_NODES = 1 << 16;
+
+    // Kernel send buffer of a spectator's socket: thousands of them add up, and a
+    // spectator that cannot drain this much is better off skipping to the next SNAPSHOT
+    private static final int SPECTATOR_SEND_BUFFER = 16 * 1024;
+
+    private final Socket socket;
+    private final GameServer server;
+
+    private GameEngine engine;   // The current or last game (BOARD still shows a finished one)
+    private boolean playing;     // The game is running: counted in the server's active games, takes MOVEs
+    private int difficultyLevel;
+    private AiLevel aiLevel;
+    private GameClock clock; // null = untimed game
+    private int plies;
+    private GameBroadcast broadcast; // This game's spectator feed, null when there is no game running
+
+    public GameSession(Socket socket, GameServer server) {
+        this.socket = socket;
+        this.server = server;
+    }
+
+    @Override
+    public void run() {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), false, StandardCharsets.UTF_8)) {
+
+            out.println("HELLO MAKHOS 1");
+            out.flush();
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!handleCommand(line.trim(), out)) break;
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client went away; nothing to clean up beyond the socket
+        } finally {
+            if (broadcast != null) server.closeBroadcast(broadcast, "GAMEOVER ABANDONED");
+            if (playing) server.gameFinished();
+        }
+    }
+
+    /** Returns false when the client asked to quit. */
+    private boolean handleCommand(String line, PrintWriter out) {
+        if (line.isEmpty()) return true;
+        String[] parts = line.split("\\s+");
+
+        switch (parts[0].toUpperCase()) {
+            case "NEW" -> startGame(parts, out);
+            case "MOVE" -> playerMove(parts, out);
+            case "BOARD" -> {
+                if (requireGame(out)) out.println("BOARD " + toBoardString(engine.getBoard()));
+            }
+            case "MOVES" -> {
+                if (requirePlaying(out)) out.println("MOVES " + formatMoves(engine.getAllLegalMoves(engine.getBoard(), Piece.RED)));
+            }
+            case "STATS" -> out.println("STATS " + server.getStatsLine());
+            case "GAMES" -> out.println("GAMES " + server.getGamesLine());
+            case "SPECTATE" -> spectate(parts, out);
+            case "METRICS" -> {
+                // Multi-line dump, terminated by a line with a single "."
+                out.print(Metrics.dump());
+                out.println(".");
+            }
+            case "QUIT" -> {
+                out.println("BYE");
+                out.flush();
+                return false;
+            }
+            default -> out.println("ERR unknown command");
+        }
+        return true;
+    }
+
+    private void startGame(String[] parts, PrintWriter out) {
+        try {
+            int level = parts.length > 1 ? Integer.parseInt(parts[1]) : AiLevel.HARDCORE;
+            boolean force = parts.length > 2 ? !parts[2].equals("0") : CheckersBoard.forceCapture;
+            // The rules argument is a Mak Hos king rule (1|2) or a variant name (see Variant)
+            Variant variant = parts.length <= 3 ? Variant.makHos(CheckersBoard.kingMoveRule)
+                    : parts[3].equals("1") || parts[3].equals("2") ? Variant.makHos(Integer.parseInt(parts[3]))
+                    : Variant.byKey(parts[3]);
+            GameClock newClock = parts.length > 4 ? GameClock.parse(parts[4]) : null;
+            if (!AiLevel.isValid(level) || variant == null || (parts.length > 4 && newClock == null)) {
+                out.println("ERR bad game options");
+                return;
+            }
+            if (!playing) server.gameStarted();
+            playing = true;
+            if (broadcast != null) server.closeBroadcast(broadcast, "GAMEOVER ABANDONED");
+            engine = new GameEngine(variant, force);
+            difficultyLevel = level;
+            aiLevel = AiLevel.of(level);
+            if (aiLevel.getKind() == AiLevel.MCTS) {
+                engine.setMctsSearch(new MctsSearch(engine, 1, MCTS_NODES)); // One core and ~1.5 MB per game
+            }
+            plies = 0;
+            clock = newClock;
+            broadcast = server.openBroadcast(snapshotLine(Piece.RED));
+            out.println("OK new game level " + level + " " + variant.getKey() + " " + broadcast.getId());
+            startPlayerTurn(out);
+        } catch (NumberFormatException e) {
+            out.println("ERR bad game options");
+        }
+    }
+
+    private void playerMove(String[] parts, PrintWriter out) {
+        if (!requirePlaying(out)) return;
+        if (parts.length != 5) {
+            out.println("ERR usage MOVE r1 c1 r2 c2");
+            return;
+        }
+        if (clock != null && clock.isFlagged(Piece.RED)) {
+            gameOver(out, "WHITE"); // Out of time
+            return;
+        }
+        int[] m = new int[4];
+        try {
+            for (int i = 0; i < 4; i++) m[i] = Integer.parseInt(parts[i + 1]);
+        } catch (NumberFormatException e) {
+            out.println("ERR usage MOVE r1 c1 r2 c2");
+            return;
+        }
+        if (!engine.tryMove(Piece.RED, m[0], m[1], m[2], m[3])) {
+            out.println("ERR illegal move");
+            return;
+        }
+        plies++;
+        if (clock != null) clock.moveDone();
+        publish(snapshotLine(Piece.WHITE), "MOVE RED " + m[0] + " " + m[1] + " " + m[2] + " " + m[3]);
+        if (reportGameOver(out, Piece.WHITE)) return;
+
+        long start = System.nanoTime();
+        if (clock != null) clock.start(Piece.WHITE);
+        int[] ai = aiMove();
+        Metrics.recordSince("server.ai.move." + difficultyLevel, start);
+        plies++;
+        if (ai != null) out.println("AI " + ai[0] + " " + ai[1] + " " + ai[2] + " " + ai[3]);
+        if (clock != null) clock.moveDone();
+        if (ai != null) {
+            String move = "MOVE WHITE " + ai[0] + " " + ai[1] + " " + ai[2] + " " + ai[3];
+            if (clock != null) {
+                publish(snapshotLine(Piece.RED), move, "CLOCK " + clock.getRemainingMillis(Piece.RED)
+                        + " " + clock.getRemainingMillis(Piece.WHITE));
+            } else {
+                publish(snapshotLine(Piece.RED), move);
+            }
+        }
+        if (clock != null && clock.isFlagged(Piece.WHITE)) {
+            gameOver(out, "RED"); // The AI ran out of time
+            return;
+        }
+        if (reportGameOver(out, Piece.RED)) return;
+        startPlayerTurn(out);
+    }
+
+    private void startPlayerTurn(PrintWriter out) {
+        if (clock != null) {
+            out.println("CLOCK " + clock.getRemainingMillis(Piece.RED) + " " + clock.getRemainingMillis(Piece.WHITE));
+            clock.start(Piece.RED);
+        }
+        out.println("TURN RED");
+    }
+
+    // --- AI MAIN LOGIC (same difficulty ladder as CheckersBoard) ---
+    // Weak levels are cheap enough to answer right here on the session's virtual thread;
+    // Hardcore and up are queued on the shared scheduler and this thread just waits.
+    // On a clock the time manager sets the budget instead of the server-wide one.
+    private int[] aiMove() {
+        TimeManager time = clock != null ? clock.newTimeManager(Piece.WHITE) : null;
+        if (!aiLevel.isStrong()) {
+            return engine.makeMoveForLevel(Piece.WHITE, aiLevel, time);
+        }
+        SearchScheduler scheduler = server.getScheduler();
+        int[] m = (time != null
+                ? scheduler.submit(engine, engine.getBoard(), Piece.WHITE, aiLevel, time)
+                : scheduler.submit(engine, engine.getBoard(), Piece.WHITE, aiLevel, server.getAiBudgetMillis()))
+                .join();
+        if (m != null) engine.executeMove(engine.getBoard(), m[0], m[1], m[2], m[3]);
+        return m;
+    }
+
+    // A solved ending that is a draw ends the game at once, without playing out the MAX_PLIES
+    private boolean reportGameOver(PrintWriter out, int sideToMove) {
+        int winner = engine.getWinner();
+        if (winner == 0 && plies < MAX_PLIES && !engine.isProvenDraw(engine.getBoard(), sideToMove)) return false;
+
+        gameOver(out, winner == Piece.RED ? "RED" : winner == Piece.WHITE ? "WHITE" : "DRAW");
+        return true;
+    }
+
+    // To the spectators, while the game's feed is open (moves after a GAMEOVER are not news)
+    private void publish(String snapshotLine, String... lines) {
+        if (broadcast != null) broadcast.publish(snapshotLine, lines);
+    }
+
+    // Tells the player and the spectators; the game ends here (later MOVEs get an ERR until the next NEW)
+    private void gameOver(PrintWriter out, String result) {
+        out.println("GAMEOVER " + result);
+        playing = false;
+        server.gameFinished();
+        if (broadcast != null) {
+            server.closeBroadcast(broadcast, "GAMEOVER " + result);
+            broadcast = null;
+        }
+    }
+
+    // --- Spectating ---
+
+    // Streams another game until it ends (this connection reads no commands meanwhile)
+    private void spectate(String[] parts, PrintWriter out) {
+        GameBroadcast b = null;
+        try {
+            if (parts.length == 2) b = server.getBroadcast(Integer.parseInt(parts[1]));
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        if (b == null) {
+            out.println("ERR no such game");
+            return;
+        }
+        out.println("OK spectating " + b.getId());
+        try {
+            socket.setSendBufferSize(SPECTATOR_SEND_BUFFER);
+        } catch (IOException e) {
+            // Keep the default buffer
+        }
+        try {
+            b.stream(out);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.println("END");
+    }
+
+    /** The position as the spectators' SNAPSHOT line, with sideToMove to play. */
+    private String snapshotLine(int sideToMove) {
+        String line = "SNAPSHOT " + engine.getVariant().getKey() + " " + toBoardString(engine.getBoard())
+                + (sideToMove == Piece.RED ? " RED" : " WHITE");
+        if (clock != null) line += " " + clock.getRemainingMillis(Piece.RED) + " " + clock.getRemainingMillis(Piece.WHITE);
+        return line;
+    }
+
+    private boolean requireGame(PrintWriter out) {
+        if (engine == null) {
+            out.println("ERR no game, send NEW first");
+            return false;
+        }
+        return true;
+    }
+
+    private boolean requirePlaying(PrintWriter out) {
+        if (!playing) {
+            out.println("ERR no game, send NEW first");
+            return false;
+        }
+        return true;
+    }
+
+    // --- Protocol formatting helpers ---
+
+    /** One char per dark square in row-major order (32, or 50 on 10x10): . empty, r/R red man/king, w/W white man/king. */
+    public static String toBoardString(Piece[][] b) {
+        StringBuilder sb = new StringBuilder(32);
+        for (int r = 0; r < b.length; r++) {
+            for (int c = 0; c < b.length; c++) {
+                if ((r + c) % 2 == 0) continue;
+                Piece p = b[r][c];
+                if (p == null) sb.append('.');
+                else if (p.getColor() == Piece.RED) sb.append(p.isKing() ? 'R' : 'r');
+                else sb.append(p.isKing() ? 'W' : 'w');
+            }
+        }
+        return sb.toString();
+    }
+
+    public static String formatMoves(List<int[]> moves) {
+        StringBuilder sb = new StringBuilder();
+        for (int[] m : moves) {
+            if (sb.length() > 0) sb.append(';');
+            sb.append(m[0]).append(' ').append(m[1]).append(' ').append(m[2]).append(' ').append(m[3]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,99 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LoadTestClient.java
+ * Simulates many players against a GameServer, one virtual thread per player.
+ * Each player picks random legal moves and records the round-trip time of every MOVE.
+ *
+ * Usage: java LoadTestClient [host] [port] [games] [level]
+ * Default: localhost 5555 1000 3
+ */
+public class LoadTestClient {
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int level = args.length > 3 ? Integer.parseInt(args[3]) : AiLevel.HARDCORE;
+
+        ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger finished = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        long start = System.nanoTime();
+        try (ExecutorService players = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < games; i++) {
+                players.submit(() -> {
+                    try {
+                        latencies.add(playGame(host, port, level));
+                        finished.incrementAndGet();
+                    } catch (IOException | RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                });
+            }
+        } // close() waits for every player
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.println("Games finished: " + finished.get() + ", failed: " + failed.get() + ", wall time: " + elapsedMs + " ms");
+        if (all.length > 0) {
+            System.out.println("Moves: " + all.length + " (" + (all.length * 1000L / Math.max(1, elapsedMs)) + " moves/s)");
+            System.out.println("Latency us  p50=" + percentile(all, 50) + "  p99=" + percentile(all, 99) + "  max=" + all[all.length - 1]);
+        }
+    }
+
+    /** Plays one game with random legal moves; returns per-move latencies in microseconds. */
+    private static long[] playGame(String host, int port, int level) throws IOException {
+        long[] times = new long[GameSession.MAX_PLIES];
+        int n = 0;
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            socket.setTcpNoDelay(true);
+            in.readLine(); // HELLO
+
+            out.println("NEW " + level);
+            String reply = readUntilTurn(in);
+
+            while (reply.startsWith("TURN")) {
+                out.println("MOVES");
+                String movesLine = in.readLine();
+                if (movesLine == null || movesLine.length() <= 6) break;
+                String[] moves = movesLine.substring(6).split(";");
+                String move = moves[ThreadLocalRandom.current().nextInt(moves.length)];
+
+                long t0 = System.nanoTime();
+                out.println("MOVE " + move);
+                reply = readUntilTurn(in);
+                if (n < times.length) times[n++] = (System.nanoTime() - t0) / 1000;
+            }
+            out.println("QUIT");
+        }
+        return Arrays.copyOf(times, n);
+    }
+
+    private static String readUntilTurn(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.startsWith("TURN") || line.startsWith("GAMEOVER") || line.startsWith("ERR")) return line;
+        }
+        throw new IOException("connection closed");
+    }
+
+    private static long percentile(long[] sorted, int p) {
+        int idx = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(idx, sorted.length - 1))];
+    }
+}
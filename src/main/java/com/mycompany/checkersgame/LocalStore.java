@@ -0,0 +1,331 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * LocalStore.java
+ * Keeps the settings (the static fields of CheckersBoard) and the game in progress on disk,
+ * so a restarted machine comes back with the same options and the unfinished game.
+ * - Files live in ~/.makhos (or -Dmakhos.home=...): settings.properties and game.properties.
+ * - Every write goes to a temp file in the same directory, is flushed to disk and then renamed
+ *   over the old file, so a crash or power cut leaves either the old or the new file, never half of one.
+ * - Settings are read once, when the first menu opens; the saved game is only read when the
+ *   player picks Resume (the menu just checks that the file exists).
+ * - Game saves run on one background thread, so a move never waits for the disk.
+ * A saved game is a snapshot (variant, rules, board, side to move, clocks, seed and draws taken) plus its
+ * position hash: resuming rebuilds the engine straight from the board and checks the hash,
+ * no moves are replayed. A file that does not check out is ignored.
+ */
+public class LocalStore {
+
+    private static final String SETTINGS_FILE = "settings.properties";
+    private static final String GAME_FILE = "game.properties";
+    private static final int GAME_VERSION = 1;
+
+    private static boolean settingsLoaded;
+
+    // Saves the game off the Swing thread, in order
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "store-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        // Lets a save queued just before exit reach the disk
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            WRITER.shutdown();
+            try {
+                WRITER.awaitTermination(2, java.util.concurrent.TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "store-flush"));
+    }
+
+    private LocalStore() { }
+
+    public static Path getDirectory() {
+        String home = System.getProperty("makhos.home");
+        return home != null ? Path.of(home) : Path.of(System.getProperty("user.home"), ".makhos");
+    }
+
+    // --- Settings ---
+
+    /** Reads the saved settings into CheckersBoard's fields; only the first call does anything. */
+    public static synchronized void loadSettings() {
+        if (settingsLoaded) return;
+        settingsLoaded = true;
+        Properties p = read(getDirectory().resolve(SETTINGS_FILE));
+        if (p == null) return;
+        CheckersBoard.pieceStyle = getInt(p, "pieceStyle", CheckersBoard.pieceStyle, 1, 6);
+        CheckersBoard.boardTheme = getInt(p, "boardTheme", CheckersBoard.boardTheme, 1, 6);
+        CheckersBoard.aiDelay = getInt(p, "aiDelay", CheckersBoard.aiDelay, 10, 500);
+        CheckersBoard.showLegalMoves = getBoolean(p, "showLegalMoves", CheckersBoard.showLegalMoves);
+        CheckersBoard.forceCapture = getBoolean(p, "forceCapture", CheckersBoard.forceCapture);
+        CheckersBoard.enableSound = getBoolean(p, "enableSound", CheckersBoard.enableSound);
+        CheckersBoard.soundVolume = getInt(p, "soundVolume", Math.round(CheckersBoard.soundVolume * 100), 0, 100) / 100f;
+        CheckersBoard.kingMoveRule = getInt(p, "kingMoveRule", CheckersBoard.kingMoveRule, 1, 2);
+        CheckersBoard.showSearchStats = getBoolean(p, "showSearchStats", CheckersBoard.showSearchStats);
+        CheckersBoard.showHints = getBoolean(p, "showHints", CheckersBoard.showHints);
+        CheckersBoard.pondering = getBoolean(p, "pondering", CheckersBoard.pondering);
+        CheckersBoard.neuralEval = getBoolean(p, "neuralEval", CheckersBoard.neuralEval);
+        CheckersBoard.clockMinutes = getInt(p, "clockMinutes", CheckersBoard.clockMinutes, 0, 180);
+        CheckersBoard.clockIncrement = getInt(p, "clockIncrement", CheckersBoard.clockIncrement, 0, 600);
+    }
+
+    /** Writes the current settings (called when the settings window closes). */
+    public static void saveSettings() {
+        Properties p = new Properties();
+        p.setProperty("pieceStyle", Integer.toString(CheckersBoard.pieceStyle));
+        p.setProperty("boardTheme", Integer.toString(CheckersBoard.boardTheme));
+        p.setProperty("aiDelay", Integer.toString(CheckersBoard.aiDelay));
+        p.setProperty("showLegalMoves", Boolean.toString(CheckersBoard.showLegalMoves));
+        p.setProperty("forceCapture", Boolean.toString(CheckersBoard.forceCapture));
+        p.setProperty("enableSound", Boolean.toString(CheckersBoard.enableSound));
+        p.setProperty("soundVolume", Integer.toString(Math.round(CheckersBoard.soundVolume * 100)));
+        p.setProperty("kingMoveRule", Integer.toString(CheckersBoard.kingMoveRule));
+        p.setProperty("showSearchStats", Boolean.toString(CheckersBoard.showSearchStats));
+        p.setProperty("showHints", Boolean.toString(CheckersBoard.showHints));
+        p.setProperty("pondering", Boolean.toString(CheckersBoard.pondering));
+        p.setProperty("neuralEval", Boolean.toString(CheckersBoard.neuralEval));
+        p.setProperty("clockMinutes", Integer.toString(CheckersBoard.clockMinutes));
+        p.setProperty("clockIncrement", Integer.toString(CheckersBoard.clockIncrement));
+        try {
+            write(getDirectory().resolve(SETTINGS_FILE), p, "Mak Hos settings");
+        } catch (IOException e) {
+            System.err.println("Could not save settings: " + e.getMessage());
+        }
+    }
+
+    // --- Game in progress ---
+
+    public static boolean hasSavedGame() {
+        return Files.exists(getDirectory().resolve(GAME_FILE));
+    }
+
+    /** Queues a save of the game (replacing the last one); returns at once. */
+    public static void saveGame(SavedGame game) {
+        Properties p = game.toProperties();
+        WRITER.execute(() -> {
+            try {
+                write(getDirectory().resolve(GAME_FILE), p, "Mak Hos game in progress");
+            } catch (IOException e) {
+                System.err.println("Could not save the game: " + e.getMessage());
+            }
+        });
+    }
+
+    /** Forgets the saved game (it ended); queued behind any save still pending. */
+    public static void deleteGame() {
+        WRITER.execute(() -> {
+            try {
+                Files.deleteIfExists(getDirectory().resolve(GAME_FILE));
+            } catch (IOException e) {
+                System.err.println("Could not delete the saved game: " + e.getMessage());
+            }
+        });
+    }
+
+    /** The saved game, or null if there is none or it is damaged. */
+    public static SavedGame loadGame() {
+        Properties p = read(getDirectory().resolve(GAME_FILE));
+        if (p == null) return null;
+        try {
+            return SavedGame.fromProperties(p);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring saved game: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // --- Files ---
+
+    private static Properties read(Path file) {
+        if (!Files.exists(file)) return null;
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            p.load(in);
+            return p;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Could not read " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Temp file, fsync, rename over the target
+    private static void write(Path file, Properties p, String comment) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        p.store(bytes, comment);
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+                while (buf.hasRemaining()) ch.write(buf);
+                ch.force(true);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static int getInt(Properties p, String key, int def, int min, int max) {
+        try {
+            int v = Integer.parseInt(p.getProperty(key, Integer.toString(def)).trim());
+            return v < min || v > max ? def : v;
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    private static boolean getBoolean(Properties p, String key, boolean def) {
+        String v = p.getProperty(key);
+        return v == null ? def : Boolean.parseBoolean(v.trim());
+    }
+
+    /**
+     * Snapshot of a game in progress: everything needed to continue it, nothing to replay.
+     * Board rows are joined by '/', one char per square: . empty, r/R red man/king, w/W white man/king.
+     */
+    public static final class SavedGame {
+
+        private final int level;
+        private final Variant variant;
+        private final boolean forceCapture;
+        private final Piece[][] board;
+        private final int sideToMove;
+        private final long seed;
+        private final long draws; // Taken from the seed's generator so far
+        private final GameClock clock; // null = untimed
+
+        /** Snapshot of engine's game; engine itself is left as it is. */
+        public SavedGame(int level, GameEngine engine, int sideToMove, GameClock clock) {
+            this.level = level;
+            this.variant = engine.getVariant();
+            this.forceCapture = engine.isForceCapture();
+            this.board = engine.cloneBoard(engine.getBoard());
+            this.sideToMove = sideToMove;
+            this.seed = engine.getSeed();
+            this.draws = engine.getRandomDraws();
+            this.clock = clock;
+        }
+
+        private SavedGame(int level, Variant variant, boolean forceCapture, Piece[][] board, int sideToMove,
+                          long seed, long draws, GameClock clock) {
+            this.level = level;
+            this.variant = variant;
+            this.forceCapture = forceCapture;
+            this.board = board;
+            this.sideToMove = sideToMove;
+            this.seed = seed;
+            this.draws = draws;
+            this.clock = clock;
+        }
+
+        public int getLevel() { return level; }
+        public int getSideToMove() { return sideToMove; }
+        public GameClock getClock() { return clock; }
+
+        /** A new engine on the saved position; its generator is where the saved game's was, its seed the game's first. */
+        public GameEngine toEngine() {
+            GameEngine engine = new GameEngine(variant, forceCapture, board);
+            engine.setSeed(seed, draws);
+            return engine;
+        }
+
+        Properties toProperties() {
+            Properties p = new Properties();
+            p.setProperty("version", Integer.toString(GAME_VERSION));
+            p.setProperty("level", Integer.toString(level));
+            p.setProperty("variant", variant.getKey());
+            p.setProperty("forceCapture", Boolean.toString(forceCapture));
+            p.setProperty("board", boardText(board));
+            p.setProperty("side", sideToMove == Piece.WHITE ? "white" : "red");
+            p.setProperty("hash", Long.toHexString(variant.hash(board, sideToMove)));
+            p.setProperty("seed", Long.toString(seed));
+            p.setProperty("draws", Long.toString(draws));
+            if (clock != null) {
+                // Written while the clock is stopped (between moves), so these are exact
+                p.setProperty("clock", clock.getBaseMillis() + "+" + clock.getIncrementMillis());
+                p.setProperty("clock.red", clock.getRemainingMillis(Piece.RED) + "/" + clock.getMovesMade(Piece.RED));
+                p.setProperty("clock.white", clock.getRemainingMillis(Piece.WHITE) + "/" + clock.getMovesMade(Piece.WHITE));
+            }
+            return p;
+        }
+
+        static SavedGame fromProperties(Properties p) {
+            try {
+                if (Integer.parseInt(p.getProperty("version", "0")) != GAME_VERSION) throw new IllegalArgumentException("unknown version");
+                int level = Integer.parseInt(p.getProperty("level"));
+                Variant variant = Variant.byKey(p.getProperty("variant", ""));
+                if (!AiLevel.isValid(level) || variant == null) throw new IllegalArgumentException("bad level or variant");
+                int side = "white".equals(p.getProperty("side")) ? Piece.WHITE : Piece.RED;
+                Piece[][] board = parseBoard(p.getProperty("board", ""), variant.getSize());
+                if (Long.parseUnsignedLong(p.getProperty("hash", ""), 16) != variant.hash(board, side)) {
+                    throw new IllegalArgumentException("position does not match its hash");
+                }
+                GameClock clock = null;
+                String control = p.getProperty("clock");
+                if (control != null) {
+                    String[] bi = control.split("\\+");
+                    clock = new GameClock(Long.parseLong(bi[0]), Long.parseLong(bi[1]));
+                    String[] red = p.getProperty("clock.red").split("/");
+                    String[] white = p.getProperty("clock.white").split("/");
+                    clock.restore(Piece.RED, Long.parseLong(red[0]), Integer.parseInt(red[1]));
+                    clock.restore(Piece.WHITE, Long.parseLong(white[0]), Integer.parseInt(white[1]));
+                }
+                return new SavedGame(level, variant, Boolean.parseBoolean(p.getProperty("forceCapture")), board, side,
+                        Long.parseLong(p.getProperty("seed", "0")), Long.parseLong(p.getProperty("draws", "0")), clock);
+            } catch (NullPointerException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("missing field", e);
+            }
+        }
+
+        private static String boardText(Piece[][] b) {
+            StringBuilder sb = new StringBuilder(b.length * (b.length + 1));
+            for (int r = 0; r < b.length; r++) {
+                if (r > 0) sb.append('/');
+                for (Piece p : b[r]) {
+                    if (p == null) sb.append('.');
+                    else if (p.getColor() == Piece.RED) sb.append(p.isKing() ? 'R' : 'r');
+                    else sb.append(p.isKing() ? 'W' : 'w');
+                }
+            }
+            return sb.toString();
+        }
+
+        private static Piece[][] parseBoard(String text, int size) {
+            String[] rows = text.split("/");
+            if (rows.length != size) throw new IllegalArgumentException("board has " + rows.length + " rows");
+            Piece[][] b = new Piece[size][size];
+            for (int r = 0; r < size; r++) {
+                if (rows[r].length() != size) throw new IllegalArgumentException("bad board row " + r);
+                for (int c = 0; c < size; c++) {
+                    char ch = rows[r].charAt(c);
+                    if (ch == '.') continue;
+                    if ((r + c) % 2 == 0 || "rRwW".indexOf(ch) < 0) throw new IllegalArgumentException("bad square " + r + "," + c);
+                    Piece p = new Piece(Character.toLowerCase(ch) == 'r' ? Piece.RED : Piece.WHITE);
+                    if (Character.isUpperCase(ch)) p.promote();
+                    b[r][c] = p;
+                }
+            }
+            return b;
+        }
+    }
+}
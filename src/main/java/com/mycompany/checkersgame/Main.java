@@ -9,6 +9,7 @@ public class Main {
         SwingUtilities.invokeLater(() -> {
             MainMenu menu = new MainMenu();
             menu.setVisible(true);
+            EngineWarmup.startInBackground(); // While the player looks at the menu
         });
     }
 }
\ No newline at end of file
@@ -3,6 +3,8 @@ import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.util.List;
 
 public class MainMenu extends JFrame {
 
@@ -26,6 +28,7 @@ public class MainMenu extends JFrame {
     private JButton btnPlay;
 
     public MainMenu() {
+        LocalStore.loadSettings(); // Only the first menu reads the file
         setTitle("Mak Hos Pro - ProJect CS318");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(1024, 720);
@@ -66,15 +69,18 @@ public class MainMenu extends JFrame {
         difficultyMenuPanel.setLayout(new BoxLayout(difficultyMenuPanel, BoxLayout.Y_AXIS));
         difficultyMenuPanel.setBackground(SIDEBAR_BG);
         difficultyMenuPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
-        difficultyMenuPanel.setVisible(false); 
-
-        difficultyMenuPanel.add(Box.createRigidArea(new Dimension(0, 5)));
-        difficultyMenuPanel.add(createSubMenuButton("•  EZ Mode", 1));
-        difficultyMenuPanel.add(createSubMenuButton("•  Medium Mode", 2));
-        difficultyMenuPanel.add(createSubMenuButton("•  Hardcore! Mode", 3));
+        difficultyMenuPanel.setVisible(false); // ปุ่มระดับสร้างตอนเปิดครั้งแรก (toggleDifficultyMenu)
         
         sidebar.add(difficultyMenuPanel);
 
+        // เล่นเกมที่ค้างไว้ต่อ (only when LocalStore has one)
+        if (LocalStore.hasSavedGame()) {
+            sidebar.add(Box.createRigidArea(new Dimension(0, 10)));
+            JButton btnResume = createSidebarButton("⏯  RESUME GAME", false);
+            btnResume.addActionListener(e -> resumeGame(btnResume));
+            sidebar.add(btnResume);
+        }
+
         // ปุ่มอื่นๆ (ตัวอย่าง)
         sidebar.add(Box.createRigidArea(new Dimension(0, 10)));
         JButton btnSettings = createSidebarButton("⚙  SETTINGS", false);
@@ -334,6 +340,13 @@ public class MainMenu extends JFrame {
 
     // ฟังก์ชันสลับการแสดงผลเมนูย่อย
     private void toggleDifficultyMenu() {
+        if (difficultyMenuPanel.getComponentCount() == 0) {
+            // Built on first open, not at startup: the menu shows sooner
+            difficultyMenuPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+            for (AiLevel level : AiLevel.all()) {
+                difficultyMenuPanel.add(createSubMenuButton("•  " + level, level.getLevel()));
+            }
+        }
         boolean isVisible = difficultyMenuPanel.isVisible();
         difficultyMenuPanel.setVisible(!isVisible);
         
@@ -387,7 +400,7 @@ public class MainMenu extends JFrame {
         btn.setFont(new Font("Segoe UI", Font.PLAIN, 14)); // ตัวบางลง
         btn.setForeground(new Color(180, 180, 180)); // สีจางลงนิดนึง
         btn.setBackground(SIDEBAR_BG);
-        btn.setBorder(BorderFactory.createEmptyBorder(8, 40, 8, 20)); // ย่อหน้าซ้ายเยอะหน่อย (40)
+        btn.setBorder(BorderFactory.createEmptyBorder(5, 40, 5, 20)); // ย่อหน้าซ้ายเยอะหน่อย (40), 11 ระดับต้องพอดีจอ
         btn.setFocusPainted(false);
         btn.setContentAreaFilled(false);
         btn.setOpaque(true);
@@ -407,11 +420,22 @@ public class MainMenu extends JFrame {
             }
         });
 
-        btn.addActionListener(e -> launchGameWindow(difficulty));
+        btn.addActionListener(e -> launchGameWindow(difficulty, null));
         return btn;
     }
 
-    private void launchGameWindow(int difficulty) {
+    // Reads the saved game only now, when it is asked for
+    private void resumeGame(JButton btnResume) {
+        LocalStore.SavedGame saved = LocalStore.loadGame();
+        if (saved == null) {
+            JOptionPane.showMessageDialog(this, "The saved game could not be read.");
+            btnResume.setVisible(false);
+            return;
+        }
+        launchGameWindow(saved.getLevel(), saved);
+    }
+
+    private void launchGameWindow(int difficulty, LocalStore.SavedGame saved) {
         this.dispose();
         JFrame gameFrame = new JFrame("Mak Hos - Gameplay");
         gameFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -419,21 +443,27 @@ public class MainMenu extends JFrame {
         JMenuBar menuBar = new JMenuBar();
         JMenu gameMenu = new JMenu("Game Option");
         JMenuItem itemBack = new JMenuItem("Main Menu");
+        JMenuItem itemLoad = new JMenuItem("Load Position...");
+        JMenuItem itemMetrics = new JMenuItem("Dump Metrics");
         JMenuItem itemExit = new JMenuItem("Exit");
         
         itemBack.addActionListener(evt -> {
             gameFrame.dispose();
             new MainMenu().setVisible(true);
         });
+        itemLoad.addActionListener(evt -> loadPositionInto(gameFrame, difficulty));
+        itemMetrics.addActionListener(evt -> showMetrics(gameFrame));
         itemExit.addActionListener(evt -> System.exit(0));
         
         gameMenu.add(itemBack);
+        gameMenu.add(itemLoad);
+        gameMenu.add(itemMetrics);
         gameMenu.addSeparator();
         gameMenu.add(itemExit);
         menuBar.add(gameMenu);
         gameFrame.setJMenuBar(menuBar);
 
-        CheckersBoard board = new CheckersBoard(difficulty);
+        CheckersBoard board = saved != null ? new CheckersBoard(saved) : new CheckersBoard(difficulty);
         gameFrame.add(board);
         
         gameFrame.pack();
@@ -442,6 +472,36 @@ public class MainMenu extends JFrame {
         gameFrame.setResizable(false);
     }
 
+    // Replace the running game with the first position of a FEN file (see Notation)
+    private void loadPositionInto(JFrame gameFrame, int difficulty) {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(gameFrame) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            List<Position> positions = Notation.loadPositions(chooser.getSelectedFile().toPath());
+            if (positions.isEmpty()) {
+                JOptionPane.showMessageDialog(gameFrame, "No position found in file.");
+                return;
+            }
+            gameFrame.getContentPane().removeAll();
+            gameFrame.add(new CheckersBoard(difficulty, positions.get(0)));
+            gameFrame.pack(); // The old game may have had another board size
+            gameFrame.revalidate();
+            gameFrame.repaint();
+        } catch (IOException | IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(gameFrame, "Could not load position: " + ex.getMessage());
+        }
+    }
+
+    // Print the latency histograms to stdout and show them in a dialog
+    private void showMetrics(JFrame gameFrame) {
+        String text = Metrics.dump();
+        System.out.print(text);
+        JTextArea area = new JTextArea(text.isEmpty() ? "No metrics recorded yet." : text);
+        area.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        area.setEditable(false);
+        JOptionPane.showMessageDialog(gameFrame, new JScrollPane(area), "Metrics", JOptionPane.INFORMATION_MESSAGE);
+    }
+
     // Gradient Background
     private class MainContentPanel extends JPanel {
         @Override
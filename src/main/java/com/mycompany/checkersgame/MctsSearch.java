@@ -0,0 +1,386 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * MctsSearch.java
+ * Monte Carlo Tree Search (UCT) over a GameEngine's rules, as an alternative to Search.
+ * Each playout walks down the tree by the UCT formula, adds the children of the node it
+ * ends on, plays the game on from there (a rollout) and adds the result to every node on the way.
+ * The move played is the root child with the most playouts.
+ *
+ * Rollouts are random, or guided: mostly the move that looks best to evaluateBoard one ply
+ * ahead, sometimes a random one. Either way a rollout that has not ended after ROLLOUT_PLIES
+ * is scored by evaluateBoard (turned into a win chance).
+ *
+ * The tree lives in a preallocated arena of parallel primitive arrays (no object per node);
+ * a node's children are one contiguous block, so a node only needs its first child and count.
+ * The tree is kept between moves: if the next position is a child or grandchild of the
+ * old root (our move, then the opponent's), that subtree becomes the new root.
+ * When the arena is full, the tree stops growing; the next search starts a fresh tree.
+ *
+ * Several threads can search one tree. They claim a leaf's expansion with a CAS, and
+ * add a "virtual loss" to every node on their path until the result comes back,
+ * so the other threads prefer different lines meanwhile.
+ * One search at a time per MctsSearch (each GameEngine keeps its own).
+ */
+public class MctsSearch {
+
+    public static final int ROLLOUT_RANDOM = 0;
+    public static final int ROLLOUT_GUIDED = 1;
+
+    // Default arena: about 24 bytes per node, so 1M nodes is ~24 MB
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    // Rollouts longer than this are stopped and scored by the evaluator
+    private static final int ROLLOUT_PLIES = 40;
+
+    // Chance of a random move in a guided rollout, so rollouts are not all alike
+    private static final double GUIDED_RANDOMNESS = 0.25;
+
+    // Evaluator score that counts as roughly a 73% win chance (a man is 10)
+    private static final double EVAL_SCALE = 30.0;
+
+    // UCT exploration constant, for results in [0, 1]
+    private static final double EXPLORATION = 1.0;
+
+    // Playouts a thread "borrows" as losses on every node of its path while its playout runs
+    private static final int VIRTUAL_LOSS = 3;
+
+    // A result is stored as 0..WIN points (1000 = win, 500 = draw) so it can be added atomically
+    private static final long WIN = 1000;
+
+    // Node states
+    private static final int LEAF = 0;
+    private static final int EXPANDING = 1;
+    private static final int EXPANDED = 2;
+    private static final int TERMINAL = 3; // The side to move has no moves (and has lost)
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final GameEngine engine;
+    private final int threads;
+    private int rolloutPolicy = ROLLOUT_GUIDED;
+
+    // --- Arena: node i is (move[i], firstChild[i], childCount[i], state[i], visits[i], value[i]) ---
+    private final int capacity;
+    private final int[] move;       // Packed move that leads to the node
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] state;
+    private final int[] visits;     // Playouts through the node (plus virtual losses in flight)
+    private final long[] value;     // Sum of results for the side that made move[i]
+    private final AtomicInteger used = new AtomicInteger();
+
+    private int root = -1;
+    private Piece[][] rootBoard;
+    private int rootColor;
+
+    // Last search
+    private final AtomicLong playouts = new AtomicLong();
+    private int reusedVisits;
+    private long elapsedNanos;
+
+    public MctsSearch(GameEngine engine, int threads) {
+        this(engine, threads, DEFAULT_CAPACITY);
+    }
+
+    public MctsSearch(GameEngine engine, int threads, int capacity) {
+        this.engine = engine;
+        this.threads = Math.max(1, threads);
+        this.capacity = capacity;
+        move = new int[capacity];
+        firstChild = new int[capacity];
+        childCount = new int[capacity];
+        state = new int[capacity];
+        visits = new int[capacity];
+        value = new long[capacity];
+    }
+
+    public void setRolloutPolicy(int policy) { this.rolloutPolicy = policy; }
+    public int getThreads() { return threads; }
+
+    /** Playouts of the last search (including ones run by helper threads). */
+    public long getPlayouts() { return playouts.get(); }
+
+    /** Playouts the last search inherited from the previous tree (0 = fresh tree). */
+    public int getReusedVisits() { return reusedVisits; }
+
+    /** Nodes in the arena after the last search. */
+    public int getNodeCount() { return Math.min(used.get(), capacity); }
+
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    /** Win chance of the chosen move, for the side that searched (0..1), from its playouts. */
+    public double getBestWinRate() {
+        int best = bestChild(root);
+        return best < 0 || visits[best] == 0 ? 0.5 : value[best] / (double) (WIN * visits[best]);
+    }
+
+    /** The most-visited line from the root. */
+    public List<int[]> getPrincipalVariation() {
+        List<int[]> line = new ArrayList<>();
+        for (int n = bestChild(root); n >= 0 && line.size() < Search.MAX_PLY; n = bestChild(n)) {
+            line.add(MoveList.toArray(move[n]));
+        }
+        return line;
+    }
+
+    /** Forgets the tree (e.g. for a new game). */
+    public void clear() {
+        root = -1;
+        rootBoard = null;
+    }
+
+    /**
+     * Returns the best move for color on b, or null if it has no legal moves.
+     * Searches until millis have passed or maxPlayouts playouts were run (0 = no cap; at least one must be set).
+     * b is not changed. Random choices come from rnd (one seed from it per thread).
+     */
+    public int[] search(Piece[][] b, int color, long millis, long maxPlayouts, RandomGenerator rnd) {
+        long start = System.nanoTime();
+        long deadline = millis > 0 ? start + millis * 1_000_000L : Long.MAX_VALUE;
+        long cap = maxPlayouts > 0 ? maxPlayouts : Long.MAX_VALUE;
+        playouts.set(0);
+        reusedVisits = 0;
+
+        MoveList rootMoves = new MoveList();
+        engine.generateMoves(b, color, rootMoves);
+        if (rootMoves.isEmpty()) return null;
+        if (rootMoves.size() == 1) return MoveList.toArray(rootMoves.get(0)); // Nothing to think about
+
+        setRoot(b, color);
+        Worker[] workers = new Worker[threads];
+        for (int t = 0; t < threads; t++) workers[t] = new Worker(new SplittableRandom(rnd.nextLong()));
+        Thread[] helpers = new Thread[threads - 1];
+        for (int t = 1; t < threads; t++) {
+            Worker w = workers[t];
+            helpers[t - 1] = new Thread(() -> w.run(deadline, cap), "mcts-" + t);
+            helpers[t - 1].setDaemon(true);
+            helpers[t - 1].start();
+        }
+        workers[0].run(deadline, cap);
+        for (Thread h : helpers) {
+            try {
+                h.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+
+        int best = bestChild(root);
+        return MoveList.toArray(best >= 0 ? move[best] : rootMoves.get(0));
+    }
+
+    // --- Tree ---
+
+    // Keeps the subtree of the current position if the old tree has it, else starts over
+    private void setRoot(Piece[][] b, int color) {
+        if (rootBoard != null && used.get() < capacity) {
+            long key = engine.getVariant().hash(b, color);
+            int found = findDescendant(root, rootBoard, rootColor, key, 2);
+            if (found >= 0) {
+                root = found;
+                rootBoard = engine.cloneBoard(b);
+                rootColor = color;
+                reusedVisits = visits[root];
+                return;
+            }
+        }
+        used.set(0);
+        root = allocate(1);
+        initNode(root, 0);
+        rootBoard = engine.cloneBoard(b);
+        rootColor = color;
+    }
+
+    private int findDescendant(int node, Piece[][] b, int color, long key, int depth) {
+        if (depth == 0 || (int) INTS.getAcquire(state, node) != EXPANDED) return -1;
+        int opponent = color == Piece.WHITE ? Piece.RED : Piece.WHITE;
+        Piece[][] child = engine.getVariant().newBoard();
+        for (int i = 0; i < childCount[node]; i++) {
+            int c = firstChild[node] + i;
+            copyBoard(b, child);
+            play(child, move[c]);
+            if (engine.getVariant().hash(child, opponent) == key) return c;
+            int deeper = findDescendant(c, child, opponent, key, depth - 1);
+            if (deeper >= 0) return deeper;
+        }
+        return -1;
+    }
+
+    // Reserves n consecutive nodes; -1 when the arena is full
+    private int allocate(int n) {
+        int first = used.getAndAdd(n);
+        if (first + n > capacity) return -1;
+        return first;
+    }
+
+    private void initNode(int n, int m) {
+        move[n] = m;
+        firstChild[n] = -1;
+        childCount[n] = 0;
+        visits[n] = 0;
+        value[n] = 0;
+        INTS.setRelease(state, n, LEAF);
+    }
+
+    private int bestChild(int node) {
+        if (node < 0 || (int) INTS.getAcquire(state, node) != EXPANDED) return -1;
+        int best = -1;
+        for (int i = 0; i < childCount[node]; i++) {
+            int c = firstChild[node] + i;
+            if (best < 0 || visits[c] > visits[best]) best = c;
+        }
+        return best;
+    }
+
+    /** Plays a packed move on b; a man that is crowned is replaced first, since boards share Piece objects. */
+    private void play(Piece[][] b, int m) {
+        int r1 = MoveList.fromRow(m), c1 = MoveList.fromCol(m), r2 = MoveList.toRow(m), c2 = MoveList.toCol(m);
+        Piece p = b[r1][c1];
+        if (!p.isKing() && r2 == engine.getVariant().promotionRow(p.getColor())) {
+            b[r1][c1] = new Piece(p.getColor());
+        }
+        engine.executeMove(b, r1, c1, r2, c2);
+    }
+
+    private static void copyBoard(Piece[][] from, Piece[][] to) {
+        for (int r = 0; r < from.length; r++) System.arraycopy(from[r], 0, to[r], 0, from.length);
+    }
+
+    /** One search thread: its own boards, move buffers, path and random source. */
+    private final class Worker {
+        private final SplittableRandom rnd;
+        private final Piece[][] board = engine.getVariant().newBoard();
+        private final Piece[][] trial = engine.getVariant().newBoard();
+        private final MoveList moves = new MoveList();
+        private final int[] path = new int[Search.MAX_PLY * 4];
+
+        Worker(SplittableRandom rnd) { this.rnd = rnd; }
+
+        void run(long deadline, long cap) {
+            int n = 0;
+            while (playouts.get() < cap) {
+                // Reading the clock costs more than a short playout, so only every few
+                if ((++n & 15) == 0 && System.nanoTime() >= deadline) break;
+                playout();
+                playouts.incrementAndGet();
+            }
+        }
+
+        private void playout() {
+            copyBoard(rootBoard, board);
+            int color = rootColor;
+            int node = root;
+            int length = 0;
+            path[length++] = node;
+            INTS.getAndAdd(visits, node, VIRTUAL_LOSS);
+
+            // 1. Selection
+            while ((int) INTS.getAcquire(state, node) == EXPANDED && length < path.length) {
+                node = select(node);
+                play(board, move[node]);
+                color = color == Piece.WHITE ? Piece.RED : Piece.WHITE;
+                path[length++] = node;
+                INTS.getAndAdd(visits, node, VIRTUAL_LOSS);
+            }
+
+            // 2. Expansion and 3. rollout; result is for the side that moved into node
+            long result;
+            if ((int) INTS.getAcquire(state, node) == TERMINAL) {
+                result = WIN;
+            } else {
+                if (INTS.compareAndSet(state, node, LEAF, EXPANDING)) expand(node, color);
+                result = (int) INTS.getAcquire(state, node) == TERMINAL ? WIN : WIN - rollout(color);
+            }
+
+            // 4. Backpropagation, taking the virtual loss back off
+            for (int i = length - 1; i >= 0; i--) {
+                int n = path[i];
+                INTS.getAndAdd(visits, n, 1 - VIRTUAL_LOSS);
+                LONGS.getAndAdd(value, n, result);
+                result = WIN - result;
+            }
+        }
+
+        // UCT: win rate plus an exploration bonus; in-flight playouts count as losses
+        private int select(int node) {
+            double logParent = Math.log(Math.max(1, visits[node]));
+            int first = firstChild[node];
+            int best = first;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < childCount[node]; i++) {
+                int c = first + i;
+                int n = visits[c];
+                if (n == 0) return c; // Every child gets a first look (captures come first)
+                double q = (long) LONGS.getOpaque(value, c) / (double) (WIN * n);
+                double score = q + EXPLORATION * Math.sqrt(logParent / n);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = c;
+                }
+            }
+            return best;
+        }
+
+        private void expand(int node, int color) {
+            engine.generateMoves(board, color, moves);
+            if (moves.isEmpty()) {
+                INTS.setRelease(state, node, TERMINAL);
+                return;
+            }
+            moves.orderCapturesFirst();
+            int first = allocate(moves.size());
+            if (first < 0) { // Arena full: the node stays a leaf
+                INTS.setRelease(state, node, LEAF);
+                return;
+            }
+            for (int i = 0; i < moves.size(); i++) initNode(first + i, moves.get(i));
+            firstChild[node] = first;
+            childCount[node] = moves.size();
+            INTS.setRelease(state, node, EXPANDED);
+        }
+
+        /** Plays on from board with color to move; returns color's result in 0..WIN. */
+        private long rollout(int color) {
+            int side = color;
+            for (int ply = 0; ply < ROLLOUT_PLIES; ply++) {
+                engine.generateMoves(board, side, moves);
+                if (moves.isEmpty()) return side == color ? 0 : WIN;
+                int m = rolloutPolicy == ROLLOUT_GUIDED && rnd.nextDouble() >= GUIDED_RANDOMNESS
+                        ? greedyMove(side)
+                        : moves.get(rnd.nextInt(moves.size()));
+                play(board, m);
+                side = side == Piece.WHITE ? Piece.RED : Piece.WHITE;
+            }
+            int eval = engine.evaluateBoard(board);
+            if (color == Piece.RED) eval = -eval;
+            return Math.round(WIN / (1 + Math.exp(-eval / EVAL_SCALE)));
+        }
+
+        // The move whose resulting position evaluateBoard likes best for side (ties: the first)
+        private int greedyMove(int side) {
+            int best = moves.get(0);
+            int bestEval = Integer.MIN_VALUE;
+            for (int i = 0; i < moves.size(); i++) {
+                copyBoard(board, trial);
+                play(trial, moves.get(i));
+                int eval = engine.evaluateBoard(trial);
+                if (side == Piece.RED) eval = -eval;
+                if (eval > bestEval) {
+                    bestEval = eval;
+                    best = moves.get(i);
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics.java
+ * Tiny in-process metrics registry: named latency histograms that can be dumped on demand
+ * (Game Option > Dump Metrics in the game window, METRICS on the server).
+ * Recording is lock-free; see LatencyHistogram.
+ */
+public final class Metrics {
+
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private Metrics() { }
+
+    /** Returns the histogram with this name, creating it on first use. */
+    public static LatencyHistogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /** Registers an existing histogram (e.g. one owned by a SearchScheduler) under a name. */
+    public static void register(String name, LatencyHistogram histogram) {
+        HISTOGRAMS.put(name, histogram);
+    }
+
+    /** Records the time since startNanos (a System.nanoTime() value) under name. */
+    public static void recordSince(String name, long startNanos) {
+        histogram(name).recordNanos(System.nanoTime() - startNanos);
+    }
+
+    /** One line per histogram, sorted by name. */
+    public static String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            LatencyHistogram h = e.getValue();
+            sb.append(String.format("%-24s count=%-8d mean_us=%-8d p50_us=%-8d p99_us=%-8d max_us<=%d%n",
+                    e.getKey(), h.getCount(), h.getMeanMicros(),
+                    h.getPercentileMicros(50), h.getPercentileMicros(99), h.getPercentileMicros(100)));
+        }
+        return sb.toString();
+    }
+
+    public static void dump(PrintStream out) {
+        out.print(dump());
+        out.flush();
+    }
+
+    public static void reset() {
+        for (LatencyHistogram h : HISTOGRAMS.values()) h.reset();
+    }
+}
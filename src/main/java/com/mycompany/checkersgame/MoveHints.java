@@ -0,0 +1,177 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * MoveHints.java
+ * Hints for the player's side of a position, worked out on a background thread so the board
+ * only has to draw them:
+ * - pieces that must capture (when forceCapture is on and a capture exists),
+ * - pieces the opponent could capture if it were its move,
+ * - the best move and its score, from a short search.
+ * A position's hints are computed once and kept by its Zobrist hash (the last CACHE_SIZE
+ * positions), so going back to a position, or repainting it, costs nothing. The cheap part
+ * is published first and the search result follows; the listener hears about both.
+ * request() replaces any older request: its search is stopped, its result not published.
+ */
+public class MoveHints {
+
+    private static final int CACHE_SIZE = 256;
+    private static final long SEARCH_MILLIS = 400;
+    private static final int SEARCH_DEPTH = 12;
+
+    /** The hints for one position; immutable once published. */
+    public static final class Hints {
+        private final long hash;
+        private final boolean[] mustCapture;  // By square r * size + c
+        private final boolean[] underAttack;
+        private final int[] bestMove;         // null until the search has finished
+        private final int score;              // For the hinted side, a man is 10
+        private final int depth;
+
+        private Hints(long hash, boolean[] mustCapture, boolean[] underAttack, int[] bestMove, int score, int depth) {
+            this.hash = hash;
+            this.mustCapture = mustCapture;
+            this.underAttack = underAttack;
+            this.bestMove = bestMove;
+            this.score = score;
+            this.depth = depth;
+        }
+
+        public long getHash() { return hash; }
+        public boolean mustCapture(int square) { return mustCapture[square]; }
+        public boolean isUnderAttack(int square) { return underAttack[square]; }
+        public int[] getBestMove() { return bestMove; }
+        public int getScore() { return score; }
+        public int getDepth() { return depth; }
+        public boolean isSearched() { return bestMove != null; }
+    }
+
+    private final GameEngine engine;
+    private final Runnable listener;
+    private final TranspositionTable tt = new TranspositionTable(4); // Its own: the AI's may be in use
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "move-hints");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private final Map<Long, Hints> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Hints> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private long requestedHash;
+    private Future<?> pending;
+    private volatile Search search;
+
+    /** listener runs on the hint thread whenever new hints are published (e.g. to repaint). */
+    public MoveHints(GameEngine engine, Runnable listener) {
+        this.engine = engine;
+        this.listener = listener;
+    }
+
+    /** The hints for the position with this hash, or null if they are not ready (yet). */
+    public synchronized Hints get(long hash) {
+        return cache.get(hash);
+    }
+
+    /**
+     * Asks for color's hints on board (hash being its Zobrist hash with color to move).
+     * Nothing happens if they are cached or already being worked on; the board is copied.
+     */
+    public synchronized void request(Piece[][] board, int color, long hash) {
+        Hints cached = cache.get(hash);
+        if ((cached != null && cached.isSearched()) || (hash == requestedHash && pending != null && !pending.isDone())) return;
+        cancel();
+        requestedHash = hash;
+        Piece[][] b = engine.cloneBoard(board);
+        pending = worker.submit(() -> compute(b, color, hash));
+    }
+
+    /** Stops the search in progress, if any (e.g. when the AI starts thinking). */
+    public synchronized void cancel() {
+        Search s = search;
+        if (s != null) s.stop();
+        if (pending != null) pending.cancel(false);
+        pending = null;
+        requestedHash = 0; // A stopped search's move is not published
+    }
+
+    /** Stops the hint thread for good. */
+    public void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    private void compute(Piece[][] b, int color, long hash) {
+        Hints hints = get(hash);
+        if (hints == null) {
+            hints = new Hints(hash, captureOrigins(b, color), capturedSquares(b, opponent(color)), null, 0, 0);
+            publish(hints);
+        }
+
+        Search s = new Search(engine);
+        s.setTranspositionTable(tt);
+        search = s;
+        synchronized (this) {
+            if (hash != requestedHash) return; // Cancelled before the search could be stopped
+        }
+        int[] best = s.search(b, color, SEARCH_DEPTH, System.nanoTime() + SEARCH_MILLIS * 1_000_000L);
+        search = null;
+        if (best == null || (s.wasAborted() && s.getCompletedDepth() == 0)) return; // No move, or cancelled early
+        synchronized (this) {
+            if (hash != requestedHash) return; // Overtaken by a newer request
+        }
+        int score = color == Piece.WHITE ? s.getBestScore() : -s.getBestScore();
+        publish(new Hints(hash, hints.mustCapture, hints.underAttack, best, score, s.getCompletedDepth()));
+    }
+
+    private void publish(Hints hints) {
+        synchronized (this) {
+            cache.put(hints.hash, hints);
+        }
+        if (listener != null) listener.run();
+    }
+
+    // Squares of color's pieces with a capture, if captures are mandatory
+    private boolean[] captureOrigins(Piece[][] b, int color) {
+        int size = b.length;
+        boolean[] squares = new boolean[size * size];
+        if (!engine.isForceCapture()) return squares;
+        MoveList moves = new MoveList();
+        engine.generateMoves(b, color, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int m = moves.get(i);
+            if ((m & MoveList.CAPTURE) != 0) squares[(m & 15) * size + (m >>> 4 & 15)] = true;
+        }
+        return squares;
+    }
+
+    // Squares of the pieces color could capture if it were to move
+    private boolean[] capturedSquares(Piece[][] b, int color) {
+        int size = b.length;
+        boolean[] squares = new boolean[size * size];
+        MoveList moves = new MoveList();
+        engine.generateMoves(b, color, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int m = moves.get(i);
+            if ((m & MoveList.CAPTURE) == 0) continue;
+            int r1 = m & 15, c1 = m >>> 4 & 15, r2 = m >>> 8 & 15, c2 = m >>> 12 & 15;
+            int rDir = Integer.signum(r2 - r1), cDir = Integer.signum(c2 - c1);
+            for (int r = r1 + rDir, c = c1 + cDir; r != r2; r += rDir, c += cDir) {
+                if (b[r][c] != null) squares[r * size + c] = true;
+            }
+        }
+        return squares;
+    }
+
+    private static int opponent(int color) {
+        return color == Piece.RED ? Piece.WHITE : Piece.RED;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * MoveList.java
+ * Reusable move buffer of packed ints, so move generation in the search allocates nothing.
+ * Search keeps one MoveList per ply and clears it instead of building a new List<int[]>.
+ *
+ * Packed move: bits 0-3 from row, 4-7 from col, 8-11 to row, 12-15 to col,
+ * bit 16 JUMP (moved 2+ squares, the same test the rest of the code uses for "capture"),
+ * bit 17 CAPTURE (actually removes a piece; a flying king's long slide is a JUMP but not a CAPTURE).
+ */
+public class MoveList {
+
+    public static final int JUMP = 1 << 16;
+    public static final int CAPTURE = 1 << 17;
+
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(128);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+    }
+
+    public void clear() { size = 0; }
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public int get(int i) { return moves[i]; }
+
+    public void add(int move) {
+        if (size == moves.length) moves = java.util.Arrays.copyOf(moves, size * 2);
+        moves[size++] = move;
+    }
+
+    /** Keeps only jumps, in their original order; returns how many are left. */
+    public int keepJumps() {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if ((moves[i] & JUMP) != 0) moves[n++] = moves[i];
+        }
+        size = n;
+        return n;
+    }
+
+    /** Stable partition that puts captures before quiet moves (cheap move ordering for alpha-beta). */
+    public void orderCapturesFirst() {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int m = moves[i];
+            if ((m & CAPTURE) != 0) {
+                System.arraycopy(moves, n, moves, n + 1, i - n);
+                moves[n++] = m;
+            }
+        }
+    }
+
+    /** Moves the given move (compared by squares) to index 0, keeping the others in order. */
+    public void moveToFront(int move) {
+        for (int i = 0; i < size; i++) {
+            if ((moves[i] & 0xFFFF) == (move & 0xFFFF)) {
+                int m = moves[i];
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = m;
+                return;
+            }
+        }
+    }
+
+    // --- Packed move helpers ---
+
+    public static int pack(int r1, int c1, int r2, int c2) {
+        int m = r1 | (c1 << 4) | (r2 << 8) | (c2 << 12);
+        return Math.abs(r2 - r1) >= 2 ? m | JUMP : m;
+    }
+
+    public static int fromRow(int m) { return m & 15; }
+    public static int fromCol(int m) { return (m >>> 4) & 15; }
+    public static int toRow(int m) { return (m >>> 8) & 15; }
+    public static int toCol(int m) { return (m >>> 12) & 15; }
+    public static boolean isJump(int m) { return (m & JUMP) != 0; }
+    public static boolean isCapture(int m) { return (m & CAPTURE) != 0; }
+
+    /** The {r1, c1, r2, c2} form used outside the search. */
+    public static int[] toArray(int m) {
+        return new int[]{fromRow(m), fromCol(m), toRow(m), toCol(m)};
+    }
+}
@@ -0,0 +1,186 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * NnueBench.java
+ * Compares the evaluation network with the hand-written evaluator (GameEngine.evaluateBoard):
+ * 1. Speed: evaluations per second on positions from engine games, for the hand-written
+ *    evaluator, the network recomputed from the board, and the network updated incrementally
+ *    the way Search does it, each with the scalar and (if available) the vector loops;
+ *    then search speed (nodes/s) at a fixed depth.
+ * 2. Strength: a match at a fixed depth, network against hand-written, and optionally one
+ *    at a fixed time per move (the network is slower per node, so this is the fairer test).
+ *    Every opening (a few random moves) is played twice with the colors swapped.
+ *
+ * Usage: java --add-modules jdk.incubator.vector NnueBench [weights|-] [games] [depth] [msPerMove]
+ *        ("-" or nothing = the bundled network; default 200 games at depth 4, no timed match)
+ */
+public class NnueBench {
+
+    private static final int POSITIONS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        NnueNetwork net = args.length > 0 && !args[0].equals("-")
+                ? NnueNetwork.load(Path.of(args[0])) : NnueNetwork.getDefault();
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int millis = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        if (net == null) {
+            System.out.println("No network: pass a weight file (see NnueTrainer)");
+            return;
+        }
+        System.out.println("Network 128x" + net.getHiddenSize() + "x2 -> " + net.getSecondSize()
+                + " -> 1, loops: " + NnueKernels.best().name());
+
+        List<Piece[][]> boards = new ArrayList<>();
+        List<Integer> colors = new ArrayList<>();
+        samplePositions(boards, colors);
+
+        System.out.println();
+        System.out.println("--- Evaluations per second (" + boards.size() + " positions) ---");
+        GameEngine rules = new GameEngine(true, 1);
+        report("hand-written", () -> {
+            for (Piece[][] b : boards) sink += rules.evaluateBoard(b);
+            return boards.size();
+        });
+        NnueKernels[] kernels = NnueKernels.best() == NnueKernels.scalar()
+                ? new NnueKernels[]{NnueKernels.scalar()}
+                : new NnueKernels[]{NnueKernels.scalar(), NnueKernels.best()};
+        for (NnueKernels k : kernels) {
+            NnueNetwork n = net.withKernels(k);
+            float[] w = n.newAccumulator(), r = n.newAccumulator(), scratch = n.newScratch();
+            report("network, full (" + k.name() + ")", () -> {
+                for (int i = 0; i < boards.size(); i++) {
+                    n.refresh(boards.get(i), w, r);
+                    sink += colors.get(i) == Piece.WHITE ? n.evaluate(w, r, scratch) : n.evaluate(r, w, scratch);
+                }
+                return boards.size();
+            });
+            report("network, incremental (" + k.name() + ")", () -> incremental(n, boards, colors));
+        }
+
+        System.out.println();
+        System.out.println("--- Search speed at depth " + (depth + 2) + " ---");
+        searchSpeed("hand-written", null, boards, colors, depth + 2);
+        for (NnueKernels k : kernels) searchSpeed("network (" + k.name() + ")", net.withKernels(k), boards, colors, depth + 2);
+
+        System.out.println();
+        System.out.println("--- Match at depth " + depth + ", " + games + " games ---");
+        match(net, games, AiLevel.fixedDepth(depth));
+        if (millis > 0) {
+            System.out.println();
+            System.out.println("--- Match at " + millis + " ms per move, " + games + " games ---");
+            match(net, games, new AiLevel(0, millis + " ms", AiLevel.SEARCH, Search.MAX_PLY, 0, millis, 0));
+        }
+    }
+
+    // Positions from a few noisy engine games, both sides to move
+    private static void samplePositions(List<Piece[][]> boards, List<Integer> colors) {
+        SplittableRandom rnd = new SplittableRandom(7);
+        for (int g = 0; boards.size() < POSITIONS; g++) {
+            GameEngine engine = new GameEngine(true, 1);
+            engine.setSeed(g);
+            Piece[][] board = engine.getBoard();
+            int color = Piece.RED;
+            for (int ply = 0; ply < SelfPlay.MAX_PLIES && boards.size() < POSITIONS; ply++) {
+                int[] m = engine.findMoveForLevel(board, color, 3 + rnd.nextInt(3));
+                if (m == null) break;
+                boards.add(engine.cloneBoard(board));
+                colors.add(color);
+                engine.executeMove(board, m[0], m[1], m[2], m[3]);
+                color = color == Piece.RED ? Piece.WHITE : Piece.RED;
+            }
+        }
+    }
+
+    // What a search leaf costs: copy the parent's accumulators, move one piece, evaluate (once per piece)
+    private static int incremental(NnueNetwork n, List<Piece[][]> boards, List<Integer> colors) {
+        float[] pw = n.newAccumulator(), pr = n.newAccumulator();
+        float[] w = n.newAccumulator(), r = n.newAccumulator(), scratch = n.newScratch();
+        int evals = 0;
+        for (int i = 0; i < boards.size(); i++) {
+            Piece[][] b = boards.get(i);
+            n.refresh(b, pw, pr);
+            for (int sq = 0; sq < NnueNetwork.SQUARES; sq++) {
+                int row = sq / 4, col = 2 * (sq % 4) + (row % 2 == 0 ? 1 : 0);
+                Piece p = b[row][col];
+                if (p == null) continue;
+                System.arraycopy(pw, 0, w, 0, w.length);
+                System.arraycopy(pr, 0, r, 0, r.length);
+                n.removePiece(w, r, p, row, col);
+                n.addPiece(w, r, p, 7 - row, 7 - col); // Any square will do for timing
+                sink += colors.get(i) == Piece.WHITE ? n.evaluate(w, r, scratch) : n.evaluate(r, w, scratch);
+                evals++;
+            }
+        }
+        return evals;
+    }
+
+    // One timed pass; returns how many evaluations it did
+    private interface Work { int run(); }
+
+    // Results go here so the JIT cannot drop the work
+    private static long sink;
+
+    private static void report(String name, Work work) {
+        for (int i = 0; i < 20; i++) work.run(); // Warm up
+        long evals = 0;
+        long start = System.nanoTime();
+        long end = start + 1_000_000_000L;
+        while (System.nanoTime() < end) evals += work.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-36s %,12.0f evals/s%n", name, evals / seconds);
+    }
+
+    private static void searchSpeed(String name, NnueNetwork net, List<Piece[][]> boards, List<Integer> colors, int depth) {
+        GameEngine engine = new GameEngine(true, 1);
+        engine.setNetwork(net);
+        Search search = new Search(engine);
+        long nodes = 0, nanos = 0;
+        for (int i = 0; i < boards.size(); i += 20) {
+            search.search(boards.get(i), colors.get(i), depth, Search.NO_DEADLINE);
+            nodes += search.getStats().nodes;
+            nanos += search.getStats().elapsedNanos;
+        }
+        System.out.printf("%-36s %,12.0f nodes/s  (%,d nodes)%n", name, nodes / (nanos / 1e9), nodes);
+    }
+
+    private static void match(NnueNetwork net, int games, AiLevel level) {
+        int wins = 0, draws = 0, losses = 0;
+        for (int g = 0; g < games; g++) {
+            long opening = SelfPlay.gameSeed(2024, g / 2);
+            int netColor = g % 2 == 0 ? Piece.RED : Piece.WHITE;
+            int winner = playGame(net, netColor, level, opening);
+            if (winner == 0) draws++;
+            else if (winner == netColor) wins++;
+            else losses++;
+        }
+        System.out.printf("Network +%d =%d -%d: %.1f%%%n", wins, draws, losses, 100.0 * (wins + draws / 2.0) / games);
+    }
+
+    /** Returns the winner, or 0 for a draw at the ply limit. */
+    private static int playGame(NnueNetwork net, int netColor, AiLevel level, long opening) {
+        GameEngine plain = new GameEngine(true, 1);
+        GameEngine neural = new GameEngine(true, 1);
+        neural.setNetwork(net);
+        SplittableRandom rnd = new SplittableRandom(opening);
+        int randomPlies = 2 + rnd.nextInt(5);
+        Piece[][] board = plain.getBoard();
+        int color = Piece.RED;
+        for (int ply = 0; ply < SelfPlay.MAX_PLIES; ply++) {
+            int[] m;
+            if (ply < randomPlies) {
+                List<int[]> moves = plain.getAllLegalMoves(board, color);
+                m = moves.isEmpty() ? null : moves.get(rnd.nextInt(moves.size()));
+            } else {
+                m = (color == netColor ? neural : plain).findMoveForLevel(board, color, level);
+            }
+            if (m == null) return color == Piece.RED ? Piece.WHITE : Piece.RED;
+            plain.executeMove(board, m[0], m[1], m[2], m[3]);
+            color = color == Piece.RED ? Piece.WHITE : Piece.RED;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * NnueKernels.java
+ * The few float loops NnueNetwork spends its time in, written as plain scalar Java.
+ * NnueVectorKernels overrides them with jdk.incubator.vector code; best() picks that
+ * version only when the incubator module is present (java --add-modules jdk.incubator.vector),
+ * so the game still runs on a plain JVM, just with these loops.
+ */
+public class NnueKernels {
+
+    private static final NnueKernels SCALAR = new NnueKernels();
+    private static final NnueKernels BEST = loadBest();
+
+    // Set -Dmakhos.nnue.scalar=true to keep the vector code out (e.g. to compare the two)
+    private static NnueKernels loadBest() {
+        if (Boolean.getBoolean("makhos.nnue.scalar")) return SCALAR;
+        try {
+            return (NnueKernels) Class.forName("NnueVectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Module not added (or no such class): stay scalar
+            return SCALAR;
+        }
+    }
+
+    /** The plain loops. */
+    public static NnueKernels scalar() { return SCALAR; }
+
+    /** The vector loops when available, else the plain ones. */
+    public static NnueKernels best() { return BEST; }
+
+    public String name() { return "scalar"; }
+
+    /** acc[i] += w[off + i] for i < n. */
+    public void add(float[] acc, float[] w, int off, int n) {
+        for (int i = 0; i < n; i++) acc[i] += w[off + i];
+    }
+
+    /** acc[i] -= w[off + i] for i < n. */
+    public void sub(float[] acc, float[] w, int off, int n) {
+        for (int i = 0; i < n; i++) acc[i] -= w[off + i];
+    }
+
+    /** dst[dstOff + i] = src[i] clamped to [0, 1] (the clipped ReLU) for i < n. */
+    public void clip(float[] src, float[] dst, int dstOff, int n) {
+        for (int i = 0; i < n; i++) dst[dstOff + i] = Math.min(1f, Math.max(0f, src[i]));
+    }
+
+    /** Sum of a[i] * w[wOff + i] for i < n. */
+    public float dot(float[] a, float[] w, int wOff, int n) {
+        float sum = 0;
+        for (int i = 0; i < n; i++) sum += a[i] * w[wOff + i];
+        return sum;
+    }
+}
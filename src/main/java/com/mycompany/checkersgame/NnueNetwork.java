@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * NnueNetwork.java
+ * Small evaluation network in the NNUE style, as an optional replacement for GameEngine.evaluateBoard.
+ *
+ * Input: 128 features, one per (piece kind, dark square): own man, own king, enemy man, enemy king
+ * on each of the 32 squares. Each side sees the board from its own end (RED's view is turned
+ * 180 degrees), so both sides share the first-layer weights.
+ * Layers: 128 -> H1 for each side (the accumulators), both side's H1 clipped to [0, 1] and joined
+ * with the side to move first -> H2 clipped -> 1 score, in evaluateBoard's units (a man is 10).
+ *
+ * The first layer is a sum of weight columns, one per piece on the board, so a move only
+ * changes a few columns: Search keeps one pair of accumulators per ply and updates them in
+ * makeMove (lift the mover and anything it jumps, put the mover down) instead of recounting.
+ * The loops run through NnueKernels, vectorised when jdk.incubator.vector is available.
+ *
+ * Weights come from a file written by NnueTrainer (little-endian):
+ * "MKNN", int version, int H1, int H2, then float w1[128][H1], b1[H1], w2[H2][2*H1], b2[H2], w3[H2], b3.
+ * A network is read-only once loaded, so one can be shared by any number of searches.
+ */
+public class NnueNetwork {
+
+    public static final int SQUARES = 32;
+    public static final int FEATURES = 4 * SQUARES;
+    public static final int VERSION = 1;
+    private static final int MAGIC = 0x4E4E4B4D; // "MKNN" read as a little-endian int
+
+    // Bundled weights (see NnueTrainer), looked up once by getDefault()
+    public static final String DEFAULT_RESOURCE = "/makhos.nnue";
+
+    // Keeps a badly trained net from producing scores that look like wins
+    private static final int MAX_EVAL = 10_000;
+
+    final int h1;
+    final int h2;
+    final float[] w1; // [feature][h1], a column per feature so updates read one contiguous run
+    final float[] b1;
+    final float[] w2; // [h2][2 * h1]
+    final float[] b2;
+    final float[] w3;
+    float b3;
+
+    private NnueKernels kernels = NnueKernels.best();
+
+    /** An all-zero network of the given sizes (NnueTrainer fills it in). */
+    public NnueNetwork(int h1, int h2) {
+        this.h1 = h1;
+        this.h2 = h2;
+        w1 = new float[FEATURES * h1];
+        b1 = new float[h1];
+        w2 = new float[h2 * 2 * h1];
+        b2 = new float[h2];
+        w3 = new float[h2];
+    }
+
+    // --- Loading and saving ---
+
+    private static final class DefaultHolder {
+        static final NnueNetwork NETWORK = loadDefault();
+
+        private static NnueNetwork loadDefault() {
+            try (InputStream in = NnueNetwork.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+                return in == null ? null : read(in);
+            } catch (IOException e) {
+                System.err.println("Could not load " + DEFAULT_RESOURCE + ": " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /** The bundled network, loaded on first use; null if the jar has none (or it is damaged). */
+    public static NnueNetwork getDefault() {
+        return DefaultHolder.NETWORK;
+    }
+
+    public static NnueNetwork load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    public static NnueNetwork read(InputStream in) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(in.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buf.getInt() != MAGIC) throw new IOException("Not a network file");
+            int version = buf.getInt();
+            if (version != VERSION) throw new IOException("Unsupported network version " + version);
+            int h1 = buf.getInt(), h2 = buf.getInt();
+            if (h1 <= 0 || h2 <= 0 || h1 > 4096 || h2 > 4096) throw new IOException("Bad layer sizes " + h1 + "x" + h2);
+
+            NnueNetwork net = new NnueNetwork(h1, h2);
+            buf.asFloatBuffer().get(net.w1).get(net.b1).get(net.w2).get(net.b2).get(net.w3);
+            buf.position(buf.position() + 4 * (net.w1.length + net.b1.length + net.w2.length + net.b2.length + net.w3.length));
+            net.b3 = buf.getFloat();
+            return net;
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IOException("Network file is truncated", e);
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    public void write(OutputStream out) throws IOException {
+        int floats = w1.length + b1.length + w2.length + b2.length + w3.length + 1;
+        ByteBuffer buf = ByteBuffer.allocate(16 + 4 * floats).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(h1).putInt(h2);
+        for (float[] a : new float[][]{w1, b1, w2, b2, w3}) {
+            for (float f : a) buf.putFloat(f);
+        }
+        buf.putFloat(b3);
+        out.write(buf.array());
+    }
+
+    /** This network's weights with other loops (NnueBench compares scalar and vector). */
+    public NnueNetwork withKernels(NnueKernels k) {
+        NnueNetwork n = new NnueNetwork(h1, h2, this);
+        n.kernels = k;
+        return n;
+    }
+
+    private NnueNetwork(int h1, int h2, NnueNetwork shared) {
+        this.h1 = h1;
+        this.h2 = h2;
+        w1 = shared.w1;
+        b1 = shared.b1;
+        w2 = shared.w2;
+        b2 = shared.b2;
+        w3 = shared.w3;
+        b3 = shared.b3;
+    }
+
+    public int getHiddenSize() { return h1; }
+    public int getSecondSize() { return h2; }
+    public NnueKernels getKernels() { return kernels; }
+
+    // --- Features ---
+
+    /** Dark square number 0-31 of (r, c), row by row. */
+    public static int square(int r, int c) {
+        return r * 4 + c / 2;
+    }
+
+    /** Feature index of piece p on (r, c) as seen by perspective (WHITE or RED). */
+    public static int feature(int perspective, Piece p, int r, int c) {
+        int sq = square(r, c);
+        if (perspective == Piece.RED) sq = SQUARES - 1 - sq; // Turned around, so RED also "moves down"
+        int kind = (p.getColor() == perspective ? 0 : 2) + (p.isKing() ? 1 : 0);
+        return kind * SQUARES + sq;
+    }
+
+    // --- Inference ---
+
+    /** A new accumulator (H1 floats). */
+    public float[] newAccumulator() { return new float[h1]; }
+
+    /** Scratch space evaluate() needs; one per thread. */
+    public float[] newScratch() { return new float[2 * h1 + h2]; }
+
+    /** Recomputes both accumulators of b from scratch. */
+    public void refresh(Piece[][] b, float[] accWhite, float[] accRed) {
+        System.arraycopy(b1, 0, accWhite, 0, h1);
+        System.arraycopy(b1, 0, accRed, 0, h1);
+        for (int r = 0; r < GameEngine.ROWS; r++) {
+            for (int c = 0; c < GameEngine.COLS; c++) {
+                if (b[r][c] != null) addPiece(accWhite, accRed, b[r][c], r, c);
+            }
+        }
+    }
+
+    public void addPiece(float[] accWhite, float[] accRed, Piece p, int r, int c) {
+        kernels.add(accWhite, w1, feature(Piece.WHITE, p, r, c) * h1, h1);
+        kernels.add(accRed, w1, feature(Piece.RED, p, r, c) * h1, h1);
+    }
+
+    public void removePiece(float[] accWhite, float[] accRed, Piece p, int r, int c) {
+        kernels.sub(accWhite, w1, feature(Piece.WHITE, p, r, c) * h1, h1);
+        kernels.sub(accRed, w1, feature(Piece.RED, p, r, c) * h1, h1);
+    }
+
+    /** Score for the side to move, from its accumulator and the other side's. */
+    public int evaluate(float[] accToMove, float[] accOther, float[] scratch) {
+        int in = 2 * h1;
+        kernels.clip(accToMove, scratch, 0, h1);
+        kernels.clip(accOther, scratch, h1, h1);
+        for (int j = 0; j < h2; j++) {
+            float z = b2[j] + kernels.dot(scratch, w2, j * in, in);
+            scratch[in + j] = Math.min(1f, Math.max(0f, z));
+        }
+        float out = b3;
+        for (int j = 0; j < h2; j++) out += w3[j] * scratch[in + j];
+        return Math.max(-MAX_EVAL, Math.min(MAX_EVAL, Math.round(out)));
+    }
+
+    /** Score of b for color without any accumulators kept around (slow; for tools and tests). */
+    public int evaluate(Piece[][] b, int color) {
+        float[] w = newAccumulator(), r = newAccumulator();
+        refresh(b, w, r);
+        return color == Piece.WHITE ? evaluate(w, r, newScratch()) : evaluate(r, w, newScratch());
+    }
+}
@@ -0,0 +1,341 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * NnueTrainer.java
+ * Builds NnueNetwork weights by distillation: positions from engine games are scored by a
+ * deeper Search with the normal evaluator, and the network learns to give that score
+ * straight away. A network trained at depth D plays a bit as if each leaf had looked D plies further.
+ *
+ * 1. Play games between noisy ladder levels (3-6) after a few random opening moves,
+ *    and keep a sample of the distinct positions (not the forced ones).
+ * 2. Score each position with a depth-D search (side to move's view, clipped to +-MAX_TARGET).
+ * 3. Fit the network with Adam on the squared error, holding 10% back to report the fit.
+ * Games are seeded like SelfPlay, so the same arguments give the same file.
+ * Positions come from the default rules (forced capture, flying kings).
+ *
+ * Usage: java NnueTrainer <out.nnue> [positions] [depth] [epochs] [seed]   (default 100000 6 40 1)
+ * The defaults made the bundled src/main/resources/makhos.nnue (about 5 minutes on one core).
+ */
+public class NnueTrainer {
+
+    public static final int H1 = 32;
+    public static final int H2 = 16;
+
+    // Targets beyond this are winning anyway; clipping keeps them from dominating the error
+    private static final int MAX_TARGET = 250;
+
+    // The network is trained on score / TARGET_SCALE, and the last layer is scaled back when saving
+    private static final float TARGET_SCALE = 100f;
+
+    private static final int BATCH = 128;
+    private static final float LEARNING_RATE = 0.001f;
+
+    /** One training position: the features of both sides, side to move first, and the target score. */
+    private static final class Sample {
+        final int[] toMove;
+        final int[] other;
+        final float target;
+        final int linear; // evaluateBoard for the side to move, only to compare the fit
+
+        Sample(int[] toMove, int[] other, float target, int linear) {
+            this.toMove = toMove;
+            this.other = other;
+            this.target = target;
+            this.linear = linear;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java NnueTrainer <out.nnue> [positions] [depth] [epochs] [seed]");
+            return;
+        }
+        Path out = Path.of(args[0]);
+        int positions = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+        int epochs = args.length > 3 ? Integer.parseInt(args[3]) : 40;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+        long start = System.nanoTime();
+        List<Piece[][]> boards = new ArrayList<>();
+        List<Integer> colors = new ArrayList<>();
+        int games = collectPositions(positions, seed, boards, colors);
+        System.out.printf("Collected %d positions from %d games in %.1f s%n",
+                boards.size(), games, (System.nanoTime() - start) / 1e9);
+
+        start = System.nanoTime();
+        Sample[] samples = label(boards, colors, depth);
+        System.out.printf("Scored them at depth %d in %.1f s%n", depth, (System.nanoTime() - start) / 1e9);
+
+        start = System.nanoTime();
+        NnueNetwork net = train(samples, epochs, seed);
+        System.out.printf("Trained in %.1f s%n", (System.nanoTime() - start) / 1e9);
+        net.save(out);
+        System.out.println("Wrote " + out);
+    }
+
+    // --- 1. Positions ---
+
+    private static int collectPositions(int wanted, long seed, List<Piece[][]> boards, List<Integer> colors) {
+        Set<Long> seen = new HashSet<>();
+        int game = 0;
+        while (boards.size() < wanted) {
+            long gameSeed = SelfPlay.gameSeed(seed, game++);
+            SplittableRandom rnd = new SplittableRandom(gameSeed);
+            GameEngine engine = new GameEngine(true, 1);
+            engine.setSeed(gameSeed);
+            AiLevel red = AiLevel.of(3 + rnd.nextInt(4));
+            AiLevel white = AiLevel.of(3 + rnd.nextInt(4));
+            int randomPlies = 2 + rnd.nextInt(5);
+            Piece[][] board = engine.getBoard();
+            int color = Piece.RED;
+
+            for (int ply = 0; ply < SelfPlay.MAX_PLIES && boards.size() < wanted; ply++) {
+                List<int[]> moves = engine.getAllLegalMoves(board, color);
+                if (moves.isEmpty()) break;
+                if (moves.size() > 1 && rnd.nextInt(3) == 0 && seen.add(Variant.MAK_HOS.hash(board, color))) {
+                    boards.add(engine.cloneBoard(board));
+                    colors.add(color);
+                }
+                int[] m = ply < randomPlies
+                        ? moves.get(rnd.nextInt(moves.size()))
+                        : engine.findMoveForLevel(board, color, color == Piece.RED ? red : white);
+                engine.executeMove(board, m[0], m[1], m[2], m[3]);
+                color = color == Piece.RED ? Piece.WHITE : Piece.RED;
+            }
+        }
+        return game;
+    }
+
+    // --- 2. Targets ---
+
+    private static Sample[] label(List<Piece[][]> boards, List<Integer> colors, int depth) {
+        GameEngine rules = new GameEngine(true, 1);
+        ThreadLocal<Search> searches = ThreadLocal.withInitial(() -> new Search(rules));
+        Sample[] samples = new Sample[boards.size()];
+        IntStream.range(0, samples.length).parallel().forEach(i -> {
+            Piece[][] b = boards.get(i);
+            int color = colors.get(i);
+            Search search = searches.get();
+            search.search(b, color, depth, Search.NO_DEADLINE);
+            int score = search.getBestScore();
+            int linear = rules.evaluateBoard(b);
+            if (color == Piece.RED) {
+                score = -score;
+                linear = -linear;
+            }
+            score = Math.max(-MAX_TARGET, Math.min(MAX_TARGET, score));
+            samples[i] = new Sample(features(b, color), features(b, color == Piece.WHITE ? Piece.RED : Piece.WHITE),
+                    score / TARGET_SCALE, linear);
+        });
+        return samples;
+    }
+
+    private static int[] features(Piece[][] b, int perspective) {
+        int[] f = new int[NnueNetwork.FEATURES];
+        int n = 0;
+        for (int r = 0; r < GameEngine.ROWS; r++) {
+            for (int c = 0; c < GameEngine.COLS; c++) {
+                if (b[r][c] != null) f[n++] = NnueNetwork.feature(perspective, b[r][c], r, c);
+            }
+        }
+        return java.util.Arrays.copyOf(f, n);
+    }
+
+    // --- 3. Fitting ---
+
+    private static NnueNetwork train(Sample[] samples, int epochs, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        shuffle(samples, rnd);
+        int validation = samples.length / 10;
+        Sample[] test = java.util.Arrays.copyOfRange(samples, 0, validation);
+        Sample[] train = java.util.Arrays.copyOfRange(samples, validation, samples.length);
+
+        NnueNetwork net = new NnueNetwork(H1, H2);
+        init(net.w1, 0.1f, rnd);
+        java.util.Arrays.fill(net.b1, 0.5f); // Start in the middle of the clipped range
+        init(net.w2, (float) Math.sqrt(1.0 / (2 * H1)), rnd);
+        java.util.Arrays.fill(net.b2, 0.5f);
+        init(net.w3, (float) Math.sqrt(1.0 / H2), rnd);
+
+        double linearError = 0;
+        for (Sample s : test) linearError += sq(s.linear - s.target * TARGET_SCALE);
+        System.out.printf("Hand-written evaluator: validation RMSE %.1f%n", Math.sqrt(linearError / test.length));
+
+        Adam adam = new Adam(net);
+        Pass pass = new Pass(net);
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            shuffle(train, rnd);
+            double trainError = 0;
+            for (int from = 0; from < train.length; from += BATCH) {
+                adam.zeroGrad();
+                int to = Math.min(train.length, from + BATCH);
+                for (int i = from; i < to; i++) trainError += pass.backward(train[i], adam, 1f / (to - from));
+                adam.step();
+            }
+            if (epoch == 1 || epoch % 5 == 0 || epoch == epochs) {
+                double testError = 0;
+                for (Sample s : test) testError += sq(pass.forward(s) - s.target);
+                System.out.printf("Epoch %d: train RMSE %.1f, validation RMSE %.1f%n", epoch,
+                        Math.sqrt(trainError / train.length) * TARGET_SCALE,
+                        Math.sqrt(testError / test.length) * TARGET_SCALE);
+            }
+        }
+
+        // Bake the target scale into the last layer, so the network speaks evaluateBoard's units
+        for (int j = 0; j < H2; j++) net.w3[j] *= TARGET_SCALE;
+        net.b3 *= TARGET_SCALE;
+        return net;
+    }
+
+    private static void init(float[] w, float range, SplittableRandom rnd) {
+        for (int i = 0; i < w.length; i++) w[i] = (float) ((rnd.nextDouble() * 2 - 1) * range);
+    }
+
+    private static void shuffle(Sample[] a, SplittableRandom rnd) {
+        for (int i = a.length - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            Sample t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    private static double sq(double x) { return x * x; }
+
+    private static float clip(float x) { return Math.min(1f, Math.max(0f, x)); }
+
+    // Slope of the clipped ReLU: 1 inside (0, 1), flat outside
+    private static float slope(float x) { return x > 0f && x < 1f ? 1f : 0f; }
+
+    /** Plain float forward and backward pass (training speed does not matter much next to labelling). */
+    private static final class Pass {
+        private final NnueNetwork net;
+        private final float[] accToMove = new float[H1];
+        private final float[] accOther = new float[H1];
+        private final float[] x = new float[2 * H1];
+        private final float[] z2 = new float[H2];
+        private final float[] y2 = new float[H2];
+        private final float[] dz2 = new float[H2];
+        private final float[] dAcc = new float[2 * H1];
+
+        Pass(NnueNetwork net) { this.net = net; }
+
+        float forward(Sample s) {
+            accumulate(s.toMove, accToMove);
+            accumulate(s.other, accOther);
+            for (int i = 0; i < H1; i++) {
+                x[i] = clip(accToMove[i]);
+                x[H1 + i] = clip(accOther[i]);
+            }
+            float out = net.b3;
+            for (int j = 0; j < H2; j++) {
+                float z = net.b2[j];
+                for (int i = 0; i < 2 * H1; i++) z += net.w2[j * 2 * H1 + i] * x[i];
+                z2[j] = z;
+                y2[j] = clip(z);
+                out += net.w3[j] * y2[j];
+            }
+            return out;
+        }
+
+        private void accumulate(int[] features, float[] acc) {
+            System.arraycopy(net.b1, 0, acc, 0, H1);
+            for (int f : features) {
+                for (int i = 0; i < H1; i++) acc[i] += net.w1[f * H1 + i];
+            }
+        }
+
+        /** Adds this sample's gradient (times weight) to adam's buffers; returns its squared error. */
+        double backward(Sample s, Adam g, float weight) {
+            float diff = forward(s) - s.target;
+            float d = 2 * diff * weight;
+
+            g.b3 += d;
+            for (int j = 0; j < H2; j++) {
+                g.w3[j] += d * y2[j];
+                dz2[j] = d * net.w3[j] * slope(z2[j]);
+                g.b2[j] += dz2[j];
+            }
+            java.util.Arrays.fill(dAcc, 0f);
+            for (int j = 0; j < H2; j++) {
+                if (dz2[j] == 0f) continue;
+                int row = j * 2 * H1;
+                for (int i = 0; i < 2 * H1; i++) {
+                    g.w2[row + i] += dz2[j] * x[i];
+                    dAcc[i] += dz2[j] * net.w2[row + i];
+                }
+            }
+            for (int i = 0; i < H1; i++) {
+                dAcc[i] *= slope(accToMove[i]);
+                dAcc[H1 + i] *= slope(accOther[i]);
+                g.b1[i] += dAcc[i] + dAcc[H1 + i];
+            }
+            for (int f : s.toMove) {
+                for (int i = 0; i < H1; i++) g.w1[f * H1 + i] += dAcc[i];
+            }
+            for (int f : s.other) {
+                for (int i = 0; i < H1; i++) g.w1[f * H1 + i] += dAcc[H1 + i];
+            }
+            return (double) diff * diff;
+        }
+    }
+
+    /** Gradient buffers and the Adam optimiser state, one set per weight array of the network. */
+    private static final class Adam {
+        private static final float BETA1 = 0.9f, BETA2 = 0.999f, EPS = 1e-8f;
+
+        private final NnueNetwork net;
+        final float[] w1, b1, w2, b2, w3;
+        float b3;
+        private final float[][] params, grads, m, v;
+        private float mB3, vB3;
+        private int t;
+
+        Adam(NnueNetwork net) {
+            this.net = net;
+            w1 = new float[net.w1.length];
+            b1 = new float[net.b1.length];
+            w2 = new float[net.w2.length];
+            b2 = new float[net.b2.length];
+            w3 = new float[net.w3.length];
+            params = new float[][]{net.w1, net.b1, net.w2, net.b2, net.w3};
+            grads = new float[][]{w1, b1, w2, b2, w3};
+            m = new float[params.length][];
+            v = new float[params.length][];
+            for (int k = 0; k < params.length; k++) {
+                m[k] = new float[params[k].length];
+                v[k] = new float[params[k].length];
+            }
+        }
+
+        void zeroGrad() {
+            for (float[] g : grads) java.util.Arrays.fill(g, 0f);
+            b3 = 0;
+        }
+
+        void step() {
+            t++;
+            float c1 = 1 - (float) Math.pow(BETA1, t);
+            float c2 = 1 - (float) Math.pow(BETA2, t);
+            for (int k = 0; k < params.length; k++) {
+                float[] p = params[k], g = grads[k], mk = m[k], vk = v[k];
+                for (int i = 0; i < p.length; i++) {
+                    mk[i] = BETA1 * mk[i] + (1 - BETA1) * g[i];
+                    vk[i] = BETA2 * vk[i] + (1 - BETA2) * g[i] * g[i];
+                    p[i] -= LEARNING_RATE * (mk[i] / c1) / ((float) Math.sqrt(vk[i] / c2) + EPS);
+                }
+            }
+            mB3 = BETA1 * mB3 + (1 - BETA1) * b3;
+            vB3 = BETA2 * vB3 + (1 - BETA2) * b3 * b3;
+            net.b3 -= LEARNING_RATE * (mB3 / c1) / ((float) Math.sqrt(vB3 / c2) + EPS);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * NnueVectorKernels.java
+ * NnueKernels with the Vector API: each loop works on as many floats at once as the CPU's
+ * widest vector holds (8 with AVX2, 16 with AVX-512), then finishes the tail one by one.
+ * Only ever loaded through NnueKernels.best(), which falls back to the scalar loops
+ * when jdk.incubator.vector is not available.
+ */
+public class NnueVectorKernels extends NnueKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public String name() { return "vector x" + SPECIES.length(); }
+
+    @Override
+    public void add(float[] acc, float[] w, int off, int n) {
+        int i = 0;
+        for (int upper = SPECIES.loopBound(n); i < upper; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, acc, i).add(FloatVector.fromArray(SPECIES, w, off + i)).intoArray(acc, i);
+        }
+        for (; i < n; i++) acc[i] += w[off + i];
+    }
+
+    @Override
+    public void sub(float[] acc, float[] w, int off, int n) {
+        int i = 0;
+        for (int upper = SPECIES.loopBound(n); i < upper; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, acc, i).sub(FloatVector.fromArray(SPECIES, w, off + i)).intoArray(acc, i);
+        }
+        for (; i < n; i++) acc[i] -= w[off + i];
+    }
+
+    @Override
+    public void clip(float[] src, float[] dst, int dstOff, int n) {
+        int i = 0;
+        for (int upper = SPECIES.loopBound(n); i < upper; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, src, i).max(0f).min(1f).intoArray(dst, dstOff + i);
+        }
+        for (; i < n; i++) dst[dstOff + i] = Math.min(1f, Math.max(0f, src[i]));
+    }
+
+    @Override
+    public float dot(float[] a, float[] w, int wOff, int n) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int upper = SPECIES.loopBound(n); i < upper; i += SPECIES.length()) {
+            sum = FloatVector.fromArray(SPECIES, a, i).fma(FloatVector.fromArray(SPECIES, w, wOff + i), sum);
+        }
+        float s = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) s += a[i] * w[wOff + i];
+        return s;
+    }
+}
@@ -0,0 +1,334 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Notation.java
+ * FEN-style positions and PDN-style move text for every Variant.
+ *
+ * Squares are numbered over the dark squares, row-major from the top, size / 2 per row:
+ * 1-32 on 8x8 (Mak Hos: WHITE starts on 1-12, RED on 21-32) and 1-50 on 10x10,
+ * i.e. GameRecord square index + 1.
+ *
+ * FEN:  side ":" W<pieces> ":" R<pieces> [":F0"|":F1"] [":K1"|":K2"|":V"<variant key>]
+ *   side is R (or B) for RED, W for WHITE; pieces are comma-separated squares,
+ *   "K" marks a king and ranges like 1-12 are allowed. F = forceCapture, K = kingMoveRule
+ *   (Mak Hos), V = a variant by key; only the offered ones (Variant.byKey) are read back.
+ *   Example (opening): R:W1-12:R21-32:F1:K1
+ * Moves: "22-18" for a step, "22x15" for a capture.
+ */
+public class Notation {
+
+    public static final String OPENING_FEN = "R:W1-12:R21-32";
+
+    /** Parses a FEN; missing rule fields fall back to the current settings. */
+    public static Position parseFen(CharSequence fen) {
+        return parseFen(fen, CheckersBoard.forceCapture, CheckersBoard.kingMoveRule);
+    }
+
+    public static Position parseFen(CharSequence fen, boolean defaultForce, int defaultKingRule) {
+        return parseFen(fen, defaultForce, Variant.makHos(defaultKingRule));
+    }
+
+    /** Parses a FEN by index, without splitting or regex, so bulk loads allocate little. */
+    public static Position parseFen(CharSequence fen, boolean defaultForce, Variant defaultVariant) {
+        boolean force = defaultForce;
+        int side = 0;
+
+        int i = skipSpacesAndQuotes(fen, 0);
+        int end = fen.length();
+        while (end > i && (Character.isWhitespace(fen.charAt(end - 1)) || fen.charAt(end - 1) == '"' || fen.charAt(end - 1) == '.')) end--;
+
+        // The board size depends on the variant, so its field is read before any pieces
+        Variant variant = parseVariant(fen, i, end, defaultVariant);
+        Piece[][] board = variant.newBoard();
+
+        boolean first = true;
+        while (i < end) {
+            int fieldEnd = i;
+            while (fieldEnd < end && fen.charAt(fieldEnd) != ':') fieldEnd++;
+            if (fieldEnd == i) throw bad(fen, "empty field");
+            char tag = Character.toUpperCase(fen.charAt(i));
+
+            if (first) {
+                side = colorOf(tag, fen);
+                if (fieldEnd != i + 1) throw bad(fen, "side to move");
+                first = false;
+            } else if (tag == 'F' && fieldEnd == i + 2) {
+                force = fen.charAt(i + 1) != '0';
+            } else if ((tag == 'K' && fieldEnd == i + 2) || tag == 'V') {
+                // Read by parseVariant
+            } else {
+                parsePieces(fen, i + 1, fieldEnd, colorOf(tag, fen), board);
+            }
+            i = fieldEnd + 1;
+        }
+        if (side == 0) throw bad(fen, "side to move");
+        return new Position(board, side, force, variant);
+    }
+
+    // The V field's variant, else Mak Hos with the K field's king rule, else the default
+    private static Variant parseVariant(CharSequence fen, int i, int end, Variant defaultVariant) {
+        Variant variant = defaultVariant;
+        boolean first = true;
+        while (i < end) {
+            int fieldEnd = i;
+            while (fieldEnd < end && fen.charAt(fieldEnd) != ':') fieldEnd++;
+            char tag = fieldEnd > i ? Character.toUpperCase(fen.charAt(i)) : 0;
+            if (first) {
+                first = false;
+            } else if (tag == 'V') {
+                Variant v = Variant.byKey(fen.subSequence(i + 1, fieldEnd).toString().trim());
+                if (v == null) throw bad(fen, "variant");
+                return v;
+            } else if (tag == 'K' && fieldEnd == i + 2) {
+                int kingRule = fen.charAt(i + 1) - '0';
+                if (kingRule != 1 && kingRule != 2) throw bad(fen, "king rule");
+                variant = Variant.makHos(kingRule);
+            }
+            i = fieldEnd + 1;
+        }
+        return variant;
+    }
+
+    private static void parsePieces(CharSequence fen, int i, int end, int color, Piece[][] board) {
+        int size = board.length;
+        while (i < end) {
+            while (i < end && Character.isWhitespace(fen.charAt(i))) i++;
+            if (i == end) break;
+            boolean king = false;
+            if (Character.toUpperCase(fen.charAt(i)) == 'K') {
+                king = true;
+                i++;
+            }
+            int from = 0, digits = 0;
+            while (i < end && Character.isDigit(fen.charAt(i))) {
+                from = from * 10 + (fen.charAt(i++) - '0');
+                digits++;
+            }
+            if (digits == 0) throw bad(fen, "square number");
+            int to = from;
+            if (i < end && fen.charAt(i) == '-') {
+                i++;
+                to = 0;
+                while (i < end && Character.isDigit(fen.charAt(i))) to = to * 10 + (fen.charAt(i++) - '0');
+            }
+            for (int sq = from; sq <= to; sq++) {
+                if (sq < 1 || sq > size * size / 2) throw bad(fen, "square " + sq);
+                Piece p = new Piece(color);
+                if (king) p.promote();
+                board[GameRecord.squareRow(size, sq - 1)][GameRecord.squareCol(size, sq - 1)] = p;
+            }
+            if (i < end && fen.charAt(i) == ',') i++;
+            else if (i < end) throw bad(fen, "unexpected '" + fen.charAt(i) + "'");
+        }
+    }
+
+    public static String toFen(Position p) {
+        StringBuilder sb = new StringBuilder(96);
+        sb.append(p.getSideToMove() == Piece.RED ? 'R' : 'W');
+        appendPieces(sb.append(":W"), p.getBoard(), Piece.WHITE);
+        appendPieces(sb.append(":R"), p.getBoard(), Piece.RED);
+        sb.append(":F").append(p.isForceCapture() ? 1 : 0);
+        if (isMakHos(p.getVariant())) sb.append(":K").append(p.getKingMoveRule());
+        else sb.append(":V").append(p.getVariant().getKey());
+        return sb.toString();
+    }
+
+    private static boolean isMakHos(Variant v) {
+        return v == Variant.MAK_HOS || v == Variant.MAK_HOS_SHORT;
+    }
+
+    private static void appendPieces(StringBuilder sb, Piece[][] board, int color) {
+        int size = board.length;
+        boolean first = true;
+        for (int sq = 0; sq < size * size / 2; sq++) {
+            Piece p = board[GameRecord.squareRow(size, sq)][GameRecord.squareCol(size, sq)];
+            if (p == null || p.getColor() != color) continue;
+            if (!first) sb.append(',');
+            if (p.isKing()) sb.append('K');
+            sb.append(sq + 1);
+            first = false;
+        }
+    }
+
+    // --- Moves ---
+
+    /** "22-18" or "22x15"; b is the board BEFORE the move (used to tell captures from king slides). */
+    public static String moveToText(Piece[][] b, int[] m) {
+        boolean capture = false;
+        if (Math.abs(m[2] - m[0]) >= 2) {
+            int rDir = Integer.signum(m[2] - m[0]);
+            int cDir = Integer.signum(m[3] - m[1]);
+            for (int r = m[0] + rDir, c = m[1] + cDir; r != m[2]; r += rDir, c += cDir) {
+                if (b[r][c] != null) capture = true;
+            }
+        }
+        int size = b.length;
+        return (GameRecord.toSquare(size, m[0], m[1]) + 1) + (capture ? "x" : "-") + (GameRecord.toSquare(size, m[2], m[3]) + 1);
+    }
+
+    /** A line of moves (e.g. a principal variation) starting from b, which is left untouched. */
+    public static String lineToText(GameEngine engine, Piece[][] b, List<int[]> line) {
+        Piece[][] board = engine.cloneBoard(b);
+        StringBuilder sb = new StringBuilder();
+        for (int[] m : line) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(moveToText(board, m));
+            engine.executeMove(board, m[0], m[1], m[2], m[3]);
+        }
+        return sb.toString();
+    }
+
+    /** Text for a GameRecord packed move. */
+    public static String packedToText(int packed) {
+        int from = (packed & 31) + 1;
+        int to = ((packed >>> 5) & 31) + 1;
+        return from + ((packed & GameRecord.CAPTURE_FLAG) != 0 ? "x" : "-") + to;
+    }
+
+    /** Parses a move on the 8x8 board; see below. */
+    public static int[] parseMove(CharSequence s, int start, int end) {
+        return parseMove(s, start, end, GameEngine.ROWS);
+    }
+
+    /**
+     * Parses "22-18" / "22x15" on a size x size board (for multi-jump text only the first and
+     * last squares are used). Returns {r1, c1, r2, c2} or null if the text is not a move.
+     */
+    public static int[] parseMove(CharSequence s, int start, int end, int size) {
+        int from = 0, to = 0, i = start;
+        while (i < end && Character.isDigit(s.charAt(i))) from = from * 10 + (s.charAt(i++) - '0');
+        if (i == start || i >= end || (s.charAt(i) != '-' && s.charAt(i) != 'x' && s.charAt(i) != 'X')) return null;
+        while (i < end) {
+            if (s.charAt(i) != '-' && s.charAt(i) != 'x' && s.charAt(i) != 'X') return null;
+            i++;
+            int digitsStart = i;
+            to = 0;
+            while (i < end && Character.isDigit(s.charAt(i))) to = to * 10 + (s.charAt(i++) - '0');
+            if (i == digitsStart) return null;
+        }
+        int squares = size * size / 2;
+        if (from < 1 || from > squares || to < 1 || to > squares) return null;
+        return new int[]{GameRecord.squareRow(size, from - 1), GameRecord.squareCol(size, from - 1),
+                         GameRecord.squareRow(size, to - 1), GameRecord.squareCol(size, to - 1)};
+    }
+
+    // --- Files ---
+
+    /**
+     * Loads test positions: one FEN per line, blank lines and lines starting with # are skipped.
+     * Anything after the FEN on a line (separated by whitespace) is ignored, e.g. an expected best move.
+     */
+    public static List<Position> loadPositions(Path file) throws IOException {
+        List<Position> positions = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            readPositions(in, positions);
+        }
+        return positions;
+    }
+
+    public static void readPositions(Reader reader, List<Position> into) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader br ? br : new BufferedReader(reader);
+        String line;
+        while ((line = in.readLine()) != null) {
+            String fen = fenPart(line);
+            if (fen != null) into.add(parseFen(fen));
+        }
+    }
+
+    /** The FEN at the start of a position-file line, or null for blank/comment lines. */
+    public static String fenPart(String line) {
+        int start = skipSpacesAndQuotes(line, 0);
+        if (start >= line.length() || line.charAt(start) == '#') return null;
+        int end = start;
+        while (end < line.length() && !Character.isWhitespace(line.charAt(end))) end++;
+        return line.substring(start, end);
+    }
+
+    /** Writes one game as PDN: tags (rule tags added automatically), then numbered move text and result. */
+    public static void writePdn(Appendable out, Map<String, String> tags, Position start, GameRecord game) throws IOException {
+        if (tags != null) {
+            for (Map.Entry<String, String> tag : tags.entrySet()) writeTag(out, tag.getKey(), tag.getValue());
+        }
+        writeTag(out, "GameType", isMakHos(game.getVariant()) ? "Mak Hos" : game.getVariant().getName());
+        writeTag(out, "ForceCapture", game.isForceCapture() ? "1" : "0");
+        if (isMakHos(game.getVariant())) writeTag(out, "KingRule", Integer.toString(game.getKingMoveRule()));
+        else writeTag(out, "Variant", game.getVariant().getKey());
+        if (start != null) writeTag(out, "FEN", toFen(start));
+        String result = resultToText(game.getResult());
+        writeTag(out, "Result", result);
+
+        int side = start != null ? start.getSideToMove() : Piece.RED;
+        int moveNumber = 1;
+        int lineLength = 0;
+        for (int i = 0; i < game.getMoveCount(); i++) {
+            StringBuilder token = new StringBuilder(12);
+            if (side == Piece.RED) token.append(moveNumber).append(". ");
+            else if (i == 0) token.append(moveNumber).append("... ");
+            token.append(packedToText(game.getPackedMove(i)));
+
+            if (lineLength + token.length() > 78) {
+                out.append('\n');
+                lineLength = 0;
+            } else if (lineLength > 0) {
+                out.append(' ');
+                lineLength++;
+            }
+            out.append(token);
+            lineLength += token.length();
+
+            if (side == Piece.WHITE) moveNumber++;
+            side = side == Piece.RED ? Piece.WHITE : Piece.RED;
+        }
+        out.append(lineLength > 0 ? " " : "").append(result).append("\n\n");
+    }
+
+    private static void writeTag(Appendable out, String name, String value) throws IOException {
+        out.append('[').append(name).append(" \"").append(value.replace("\"", "'")).append("\"]\n");
+    }
+
+    // PDN results are from the first player's (RED's) point of view
+    public static String resultToText(int result) {
+        if (result == GameRecord.RESULT_RED_WIN) return "1-0";
+        if (result == GameRecord.RESULT_WHITE_WIN) return "0-1";
+        if (result == GameRecord.RESULT_DRAW) return "1/2-1/2";
+        return "*";
+    }
+
+    /** Returns a GameRecord result code, or -1 if the text is not a result token. */
+    public static int parseResult(CharSequence s) {
+        if (same(s, "1-0") || same(s, "2-0")) return GameRecord.RESULT_RED_WIN;
+        if (same(s, "0-1") || same(s, "0-2")) return GameRecord.RESULT_WHITE_WIN;
+        if (same(s, "1/2-1/2") || same(s, "1-1")) return GameRecord.RESULT_DRAW;
+        if (same(s, "*")) return GameRecord.RESULT_UNKNOWN;
+        return -1;
+    }
+
+    private static boolean same(CharSequence a, String b) {
+        if (a.length() != b.length()) return false;
+        for (int i = 0; i < b.length(); i++) if (a.charAt(i) != b.charAt(i)) return false;
+        return true;
+    }
+
+    private static int colorOf(char c, CharSequence fen) {
+        if (c == 'W') return Piece.WHITE;
+        if (c == 'R' || c == 'B') return Piece.RED;
+        throw bad(fen, "color '" + c + "'");
+    }
+
+    private static int skipSpacesAndQuotes(CharSequence s, int i) {
+        while (i < s.length() && (Character.isWhitespace(s.charAt(i)) || s.charAt(i) == '"')) i++;
+        return i;
+    }
+
+    private static IllegalArgumentException bad(CharSequence fen, String what) {
+        return new IllegalArgumentException("Bad FEN (" + what + "): " + fen);
+    }
+}
@@ -0,0 +1,230 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PdnReader.java
+ * Streaming PDN parser: reads one game at a time straight from a Reader,
+ * reusing a single token buffer, so large archives can be imported in constant memory.
+ * Understands tags, {comments}, ; line comments, move numbers, "22-18"/"22x15" moves and results,
+ * plus the rule tags ForceCapture, KingRule (Mak Hos) and Variant (an offered variant by key; see Variant).
+ * A game of any other variant (e.g. [Variant "russian"]) is read past with its error set.
+ *
+ * Usage: java PdnReader <in.pdn> <out.mkr>   converts an archive into game records
+ */
+public class PdnReader implements Closeable {
+
+    /**
+     * One parsed game. error is set (and the moves stop) if the game contained an illegal move;
+     * with a bad FEN, KingRule or Variant tag start and record are null too.
+     */
+    public static class Game {
+        public final Map<String, String> tags = new LinkedHashMap<>();
+        public Position start;
+        public GameRecord record;
+        public String error;
+
+        /** True if the game starts from the normal opening (so the record alone can replay it). */
+        public boolean fromOpening() { return !tags.containsKey("FEN"); }
+    }
+
+    private final Reader in;
+    private final StringBuilder token = new StringBuilder(64);
+    private int peeked = -2;
+    private long gameNumber;
+
+    public PdnReader(Reader in) {
+        this.in = in instanceof BufferedReader ? in : new BufferedReader(in, 1 << 16);
+    }
+
+    public static PdnReader open(Path file) throws IOException {
+        return new PdnReader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+    }
+
+    /** Returns the next game, or null at end of input. */
+    public Game next() throws IOException {
+        Game game = new Game();
+        boolean seenMove = false;
+
+        GameEngine engine = null;
+        int side = Piece.RED;
+
+        while (true) {
+            int ch = skipWhitespace();
+            if (ch < 0) break;
+
+            if (ch == '[') {
+                if (seenMove) break; // Tags of the next game
+                read();
+                readTag(game);
+            } else if (ch == '{') {
+                skipUntil('}');
+            } else if (ch == ';') {
+                skipUntil('\n');
+            } else {
+                readToken();
+                if (token.length() == 0) continue; // Bare move number
+
+                int result = Notation.parseResult(token);
+                if (result >= 0) {
+                    if (game.start == null && game.error == null) game.record = newRecord(game);
+                    if (game.record != null) game.record.setResult(result);
+                    seenMove = true;
+                    break;
+                }
+
+                if (game.start == null && game.error == null) game.record = newRecord(game);
+                if (game.start == null) { // Bad header: the moves are read past
+                    seenMove = true;
+                    continue;
+                }
+                int[] m = Notation.parseMove(token, 0, token.length(), game.start.getVariant().getSize());
+                if (m == null) continue; // Move number like "12." or "12..."
+
+                if (engine == null) {
+                    engine = game.start.toEngine();
+                    side = game.start.getSideToMove();
+                }
+                seenMove = true;
+                if (game.error != null) continue;
+
+                if (!legal(engine, side, m)) {
+                    game.error = "Illegal move " + token + " in game " + (gameNumber + 1);
+                    continue;
+                }
+                game.record.addMove(engine.getBoard(), m[0], m[1], m[2], m[3]);
+                engine.executeMove(engine.getBoard(), m[0], m[1], m[2], m[3]);
+                side = side == Piece.RED ? Piece.WHITE : Piece.RED;
+            }
+        }
+
+        if (!seenMove && game.tags.isEmpty()) return null;
+        if (game.start == null && game.error == null) game.record = newRecord(game);
+        gameNumber++;
+        return game;
+    }
+
+    public long getGamesRead() { return gameNumber; }
+
+    // Sets game.start from the tags and returns its record; for a bad FEN, KingRule or Variant tag
+    // it sets error and returns null instead, so one bad header only skips its own game
+    private GameRecord newRecord(Game game) {
+        boolean force = "1".equals(game.tags.getOrDefault("ForceCapture", CheckersBoard.forceCapture ? "1" : "0"));
+        try {
+            Variant variant = tagVariant(game);
+            String fen = game.tags.get("FEN");
+            game.start = fen != null
+                    ? Notation.parseFen(fen, force, variant)
+                    : new Position(variant.initialBoard(), Piece.RED, force, variant);
+        } catch (IllegalArgumentException e) {
+            game.error = "Bad header in game " + (gameNumber + 1) + ": " + e.getMessage();
+            return null;
+        }
+        return new GameRecord(game.start.getVariant(), game.start.isForceCapture());
+    }
+
+    // The Variant tag, else Mak Hos with the KingRule tag (or the current settings)
+    private static Variant tagVariant(Game game) {
+        String key = game.tags.get("Variant");
+        if (key != null) {
+            Variant v = Variant.byKey(key);
+            if (v == null) throw new IllegalArgumentException("unknown variant " + key);
+            return v;
+        }
+        return Variant.makHos(Integer.parseInt(game.tags.getOrDefault("KingRule", Integer.toString(CheckersBoard.kingMoveRule))));
+    }
+
+    // One of side's legal moves, so a capture the game's ForceCapture rule required cannot be skipped
+    private static boolean legal(GameEngine engine, int side, int[] m) {
+        for (int[] legal : engine.getAllLegalMoves(engine.getBoard(), side)) {
+            if (legal[0] == m[0] && legal[1] == m[1] && legal[2] == m[2] && legal[3] == m[3]) return true;
+        }
+        return false;
+    }
+
+    // --- Low level character handling ---
+
+    private void readTag(Game game) throws IOException {
+        token.setLength(0);
+        int ch;
+        while ((ch = read()) >= 0 && !Character.isWhitespace(ch) && ch != '"' && ch != ']') token.append((char) ch);
+        String name = token.toString();
+
+        while (ch >= 0 && ch != '"' && ch != ']') ch = read();
+        token.setLength(0);
+        if (ch == '"') {
+            while ((ch = read()) >= 0 && ch != '"') {
+                if (ch == '\\') ch = read();
+                if (ch >= 0) token.append((char) ch);
+            }
+            while (ch >= 0 && ch != ']') ch = read();
+        }
+        game.tags.put(name, token.toString());
+    }
+
+    private void readToken() throws IOException {
+        token.setLength(0);
+        int ch;
+        while ((ch = peek()) >= 0 && !Character.isWhitespace(ch) && ch != '[' && ch != '{' && ch != ';') {
+            token.append((char) read());
+        }
+        // Drop move-number dots ("12." / "12...") so "12.22-18" style text still parses
+        int dot = token.lastIndexOf(".");
+        if (dot >= 0) token.delete(0, dot + 1);
+    }
+
+    private int skipWhitespace() throws IOException {
+        int ch;
+        while ((ch = peek()) >= 0 && Character.isWhitespace(ch)) read();
+        return ch;
+    }
+
+    private void skipUntil(char end) throws IOException {
+        int ch;
+        while ((ch = read()) >= 0 && ch != end) { }
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) peeked = in.read();
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int ch = peek();
+        peeked = -2;
+        return ch;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java PdnReader <in.pdn> <out.mkr>");
+            return;
+        }
+        long imported = 0, skipped = 0;
+        try (PdnReader reader = open(Path.of(args[0]));
+             GameRecordWriter writer = GameRecordWriter.append(Path.of(args[1]))) {
+            Game game;
+            while ((game = reader.next()) != null) {
+                // Game records always start from the opening
+                if (game.error != null || !game.fromOpening()) {
+                    skipped++;
+                    continue;
+                }
+                writer.write(game.record);
+                imported++;
+            }
+        }
+        System.out.println("Imported " + imported + " games, skipped " + skipped);
+    }
+}
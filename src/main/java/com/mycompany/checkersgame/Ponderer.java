@@ -0,0 +1,82 @@
+/**
+ * Ponderer.java
+ * Searches on the opponent's time: while the player thinks, it assumes the player will
+ * answer with the predicted move and searches the AI's reply to that in the background.
+ * The search shares the engine's TranspositionTable, so even a ponder miss leaves
+ * useful entries behind for the normal search.
+ * - Ponder hit: the player made the predicted move, keep(...) hands over the result.
+ * - Ponder miss: stop() ends the background search within about a thousand nodes.
+ * All methods are meant to be called from one thread (the Swing event thread).
+ */
+public class Ponderer {
+
+    // Safety cap, so a forgotten ponder search cannot run forever
+    private static final long PONDER_LIMIT_MILLIS = 60_000;
+
+    private final GameEngine engine;
+
+    private Thread thread;
+    private Search search;
+    private int[] predicted;
+    private volatile int[] result;
+
+    public Ponderer(GameEngine engine) {
+        this.engine = engine;
+    }
+
+    /** Starts pondering color's reply to predicted (the opponent's move) on a copy of board. */
+    public void start(Piece[][] board, int[] predicted, int color) {
+        stop();
+        Piece[][] b = engine.cloneBoard(board);
+        engine.executeMove(b, predicted[0], predicted[1], predicted[2], predicted[3]);
+
+        Search s = new Search(engine);
+        s.setTranspositionTable(engine.getTranspositionTable());
+        long deadline = System.nanoTime() + PONDER_LIMIT_MILLIS * 1_000_000L;
+        this.search = s;
+        this.predicted = predicted;
+        this.result = null;
+        thread = new Thread(() -> result = s.search(b, color, Search.MAX_PLY, deadline), "ponder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    public boolean isPondering() { return thread != null; }
+
+    /** True if the move just played is the one being pondered on. */
+    public boolean isPredicted(int r1, int c1, int r2, int c2) {
+        return predicted != null && predicted[0] == r1 && predicted[1] == c1 && predicted[2] == r2 && predicted[3] == c2;
+    }
+
+    /**
+     * Ponder hit: stops the search and returns its move if it did at least as much work as
+     * level would (its depth, node cap or time cap); otherwise null, and the caller searches normally.
+     */
+    public int[] keep(AiLevel level) {
+        Search s = search;
+        if (!stop() || s.getCompletedDepth() == 0) return null;
+        SearchStats stats = s.getStats();
+        boolean enough = s.getCompletedDepth() >= level.getDepth()
+                || (level.getNodeLimit() > 0 && stats.getNodes() >= level.getNodeLimit())
+                || (level.getTimeMillis() > 0 && stats.getElapsedNanos() >= level.getTimeMillis() * 1_000_000L);
+        return enough ? result : null;
+    }
+
+    /** The ponder search of the last keep() or stop(), for its numbers. */
+    public Search getLastSearch() { return search; }
+
+    /** Stops any ponder search and waits for it to end; returns false if none was running. */
+    public boolean stop() {
+        if (thread == null) return false;
+        search.stop();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        predicted = null;
+        return true;
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Position.java
+ * A board setup plus the side to move and the rules (variant and forceCapture) it should be played under.
+ * Used to load test positions (see Notation for the FEN format).
+ */
+public class Position {
+
+    private final Piece[][] board;
+    private final int sideToMove;
+    private final boolean forceCapture;
+    private final Variant variant;
+
+    /** A Mak Hos position, kingMoveRule 1 (flying king) or 2 (short king). */
+    public Position(Piece[][] board, int sideToMove, boolean forceCapture, int kingMoveRule) {
+        this(board, sideToMove, forceCapture, Variant.makHos(kingMoveRule));
+    }
+
+    public Position(Piece[][] board, int sideToMove, boolean forceCapture, Variant variant) {
+        this.board = board;
+        this.sideToMove = sideToMove;
+        this.forceCapture = forceCapture;
+        this.variant = variant;
+    }
+
+    /** The current position of a running game. */
+    public static Position of(GameEngine engine, int sideToMove) {
+        return new Position(engine.cloneBoard(engine.getBoard()), sideToMove, engine.isForceCapture(), engine.getVariant());
+    }
+
+    public Piece[][] getBoard() { return board; }
+    public int getSideToMove() { return sideToMove; }
+    public boolean isForceCapture() { return forceCapture; }
+    public int getKingMoveRule() { return variant.getKingMoveRule(); }
+    public Variant getVariant() { return variant; }
+
+    /** A fresh engine with this position's rules and a copy of its board. */
+    public GameEngine toEngine() {
+        return new GameEngine(variant, forceCapture, board);
+    }
+
+    @Override
+    public String toString() {
+        return Notation.toFen(this);
+    }
+}
@@ -0,0 +1,523 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Search.java
+ * Alpha-beta search over a GameEngine's rules, in negamax form with Principal Variation
+ * Search (PVS): the first move of each node gets the full window, the rest a zero window
+ * that only proves they are no better; a move that does beat it is searched again in full.
+ * With a deadline it deepens iteratively (1, 2, ... maxDepth) and returns the best move
+ * of the deepest iteration that finished in time, starting each iteration from an
+ * aspiration window around the previous score. Without one it searches maxDepth directly.
+ * On a clock a TimeManager can end the deepening early, once another iteration is not worth its time.
+ * SearchOptions switch the selective parts: late move reductions, futility pruning and
+ * capture / single-reply extensions.
+ * For the difficulty ladder (AiLevel) a search can also be capped by nodes, and random
+ * noise can be added to the root move scores.
+ * It also keeps the score and principal variation (PV) of the last finished iteration.
+ * Moves are generated into one preallocated MoveList per ply and positions are copied
+ * into one preallocated board per ply, so the search allocates (almost) nothing per node.
+ * An optional TranspositionTable (shared, e.g. with a pondering search) stores bounds and
+ * best moves by position hash; stop() ends a search early from another thread.
+ * With an NnueNetwork (the engine's, see GameEngine.setNetwork) leaves are scored by the
+ * network instead of evaluateBoard; its accumulators are kept per ply like the hash.
+ * With few pieces left the engine's EndgameSolver answers instead (exact win, loss or draw,
+ * and the shortest win), unless it was switched off with setEndgameSolver(null).
+ * One Search object per thread; it is not thread-safe.
+ */
+public class Search {
+
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    // Deepest ply the PV table can hold
+    public static final int MAX_PLY = 64;
+
+    // Score for a side that has no legal moves (it loses); ply is subtracted so faster wins score higher
+    public static final int WIN_SCORE = 100_000;
+
+    // Bigger than any score, and safe to negate
+    private static final int INFINITY = WIN_SCORE + 1;
+
+    // Half-width of the first aspiration window (a man is worth 10)
+    private static final int ASPIRATION_WINDOW = 20;
+
+    // How often (in nodes) the clock is checked
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    private final GameEngine engine;
+    private final Variant variant;
+
+    private long deadline = NO_DEADLINE;
+    private long nodeLimit; // 0 = none
+    private boolean iterative;
+    private TimeManager timeManager;
+    private int rootNoise;
+    private RandomGenerator rng;
+    private volatile boolean stopRequested;
+    private boolean aborted;
+    private int nodesUntilCheck;
+    private int completedDepth;
+
+    // Move buffer per ply, reused by every node at that ply
+    private final MoveList[] plyMoves = new MoveList[MAX_PLY + 1];
+
+    // Board per ply; plyBoards[ply] holds the position after the move played at ply - 1
+    private final Piece[][][] plyBoards;
+
+    // Zobrist hash of plyBoards[ply] (plyHash[0] is the root), kept up to date by makeMove
+    private final long[] plyHash = new long[MAX_PLY + 1];
+    private TranspositionTable tt;
+    private SearchOptions options = new SearchOptions();
+    private int rootDepth; // Depth of the current iteration; extensions stop at twice this
+
+    // Optional evaluation network, with both sides' accumulators for each ply's board
+    private NnueNetwork network;
+    private float[][] plyAccWhite;
+    private float[][] plyAccRed;
+    private float[] nnueScratch;
+
+    // Triangular PV table of packed moves: pv[ply] holds the best line found from that ply
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private List<int[]> bestLine = new ArrayList<>();
+    private int bestScore;
+    private int rootScore; // Score of the last finished root search, for the side to move
+
+    // Exact results for small endings (the engine's, shared); null to always search
+    private EndgameSolver endgame;
+
+    // Instrumentation (per Search, so per thread)
+    private final SearchStats stats = new SearchStats();
+    private EngineListener listener;
+
+    public Search(GameEngine engine) {
+        this.engine = engine;
+        this.variant = engine.getVariant();
+        int size = variant.getSize();
+        plyBoards = new Piece[MAX_PLY + 1][size][size];
+        for (int i = 0; i <= MAX_PLY; i++) plyMoves[i] = new MoveList();
+        setNetwork(engine.getNetwork());
+        endgame = engine.getEndgameSolver();
+    }
+
+    public void setListener(EngineListener listener) { this.listener = listener; }
+    public void setTranspositionTable(TranspositionTable tt) { this.tt = tt; }
+    public void setEndgameSolver(EndgameSolver endgame) { this.endgame = endgame; }
+    public void setOptions(SearchOptions options) { this.options = options; }
+    public SearchOptions getOptions() { return options; }
+
+    /** Scores leaves with network (null = GameEngine.evaluateBoard). New searches take the engine's network. */
+    public void setNetwork(NnueNetwork network) {
+        this.network = network;
+        if (network == null) return;
+        plyAccWhite = new float[MAX_PLY + 1][];
+        plyAccRed = new float[MAX_PLY + 1][];
+        for (int i = 0; i <= MAX_PLY; i++) {
+            plyAccWhite[i] = network.newAccumulator();
+            plyAccRed[i] = network.newAccumulator();
+        }
+        nnueScratch = network.newScratch();
+    }
+
+    public NnueNetwork getNetwork() { return network; }
+
+    /** Stops after about this many nodes (0 = no cap); like a deadline, it makes the search deepen iteratively. */
+    public void setNodeLimit(long nodeLimit) { this.nodeLimit = nodeLimit; }
+
+    /** Deepens 1, 2, ... maxDepth even without a deadline or node cap, so every depth reports an iteration. */
+    public void setIterative(boolean iterative) { this.iterative = iterative; }
+
+    /** Playing on a clock: after each iteration the manager decides whether to go one deeper (null = off). */
+    public void setTimeManager(TimeManager timeManager) { this.timeManager = timeManager; }
+
+    /** Adds a random 0..noise to every root move's score (0 = off), so weaker levels vary their play. */
+    public void setRootNoise(int noise, RandomGenerator rng) {
+        this.rootNoise = noise;
+        this.rng = rng;
+    }
+
+    /**
+     * Asks a running search to finish as if its deadline had passed (safe from any thread).
+     * The search returns the best move of its last finished iteration. A stopped Search stays stopped.
+     */
+    public void stop() { stopRequested = true; }
+
+    /** Counters of the current or last search. */
+    public SearchStats getStats() { return stats; }
+
+    /** Depth of the last fully searched iteration (0 if none finished). */
+    public int getCompletedDepth() { return completedDepth; }
+
+    /** True if the last search ran out of time before reaching maxDepth. */
+    public boolean wasAborted() { return aborted; }
+
+    /** Score of the last finished iteration, from WHITE's point of view. */
+    public int getBestScore() { return bestScore; }
+
+    /** Principal variation of the last finished iteration, starting with the best move. */
+    public List<int[]> getPrincipalVariation() { return bestLine; }
+
+    /**
+     * Returns the best move for color, or null if it has no legal moves.
+     * Scores are always from WHITE's point of view, so RED picks the minimum.
+     */
+    public int[] search(Piece[][] b, int color, int maxDepth, long deadlineNanos) {
+        FlightEvents.SearchEvent event = new FlightEvents.SearchEvent();
+        event.begin();
+        stats.reset();
+
+        int[] best = iterate(b, color, maxDepth, deadlineNanos);
+
+        stats.elapsedNanos = System.nanoTime() - stats.startNanos;
+        if (listener != null) listener.onSearchFinished(stats);
+        event.end();
+        if (event.shouldCommit()) {
+            event.depth = stats.depth;
+            event.selDepth = stats.selDepth;
+            event.score = stats.score;
+            event.nodes = stats.nodes;
+            event.leafEvals = stats.leafEvals;
+            event.betaCutoffs = stats.betaCutoffs;
+            event.ttHits = stats.ttHits;
+            event.nps = stats.getNps();
+            event.aborted = aborted;
+            event.pv = Notation.lineToText(engine, b, bestLine);
+            event.commit();
+        }
+        return best;
+    }
+
+    private int[] iterate(Piece[][] b, int color, int maxDepth, long deadlineNanos) {
+        deadline = deadlineNanos;
+        aborted = false;
+        nodesUntilCheck = TIME_CHECK_INTERVAL;
+        completedDepth = 0;
+        maxDepth = Math.min(maxDepth, MAX_PLY);
+        bestLine = new ArrayList<>();
+        plyHash[0] = variant.hash(b, color);
+        if (network != null) network.refresh(b, plyAccWhite[0], plyAccRed[0]);
+        bestScore = evaluate(b, 0, Piece.WHITE);
+
+        MoveList moves = plyMoves[0];
+        engine.generateMoves(b, color, moves);
+        if (moves.isEmpty()) return null;
+        if (moves.size() == 1) { // Nothing to think about
+            int[] only = MoveList.toArray(moves.get(0));
+            bestLine.add(only);
+            return only;
+        }
+        int[] solved = probeEndgame(b, color);
+        if (solved != null) return solved;
+
+        int bestMove = moves.get(0);
+        int startDepth = deadlineNanos == NO_DEADLINE && nodeLimit == 0 && !iterative && timeManager == null ? maxDepth : 1;
+        for (int depth = startDepth; depth <= maxDepth; depth++) {
+            int move = depth > 1 && completedDepth > 0 && rootNoise == 0
+                    ? aspirationSearch(b, color, moves, depth)
+                    : searchRoot(b, color, moves, depth, -INFINITY, INFINITY);
+            if (aborted) break;
+            bestMove = move;
+            completedDepth = depth;
+            bestScore = color == Piece.WHITE ? rootScore : -rootScore;
+            moves.moveToFront(bestMove); // Search it first next iteration
+            bestLine = new ArrayList<>(pvLength[0]);
+            for (int i = 0; i < pvLength[0]; i++) bestLine.add(MoveList.toArray(pv[0][i]));
+
+            stats.depth = depth;
+            stats.score = bestScore;
+            stats.pv = bestLine;
+            stats.elapsedNanos = System.nanoTime() - stats.startNanos;
+            if (listener != null) {
+                stats.pvText = Notation.lineToText(engine, b, bestLine);
+                listener.onIteration(stats);
+            }
+            if (timeManager != null && timeManager.stopAfterIteration(depth, bestMove, rootScore)) break;
+        }
+        return MoveList.toArray(bestMove);
+    }
+
+    // Plays a solved ending without searching; the "depth" is then the distance to its end
+    private int[] probeEndgame(Piece[][] b, int color) {
+        if (endgame == null) return null;
+        EndgameSolver.Result r = endgame.probe(b, color);
+        if (r == null || r.getMove() == null) return null;
+        bestScore = r.toSearchScore(color);
+        rootScore = color == Piece.WHITE ? bestScore : -bestScore;
+        completedDepth = MAX_PLY; // As good as any depth asked for
+        bestLine = endgame.principalVariation(b, color, MAX_PLY);
+        stats.depth = r.getDistance();
+        stats.score = bestScore;
+        stats.pv = bestLine;
+        stats.elapsedNanos = System.nanoTime() - stats.startNanos;
+        if (listener != null) {
+            stats.pvText = Notation.lineToText(engine, b, bestLine);
+            listener.onIteration(stats);
+        }
+        return r.getMove();
+    }
+
+    /**
+     * Searches the root in a narrow window around the previous iteration's score.
+     * If the score falls outside, that side of the window is widened (doubling each time) and the root searched again.
+     */
+    private int aspirationSearch(Piece[][] b, int color, MoveList moves, int depth) {
+        int previous = rootScore;
+        int delta = ASPIRATION_WINDOW;
+        int alpha = Math.max(previous - delta, -INFINITY);
+        int beta = Math.min(previous + delta, INFINITY);
+        while (true) {
+            int move = searchRoot(b, color, moves, depth, alpha, beta);
+            if (aborted) return move;
+            if (rootScore <= alpha && alpha > -INFINITY) {
+                alpha = Math.max(alpha - delta, -INFINITY);
+            } else if (rootScore >= beta && beta < INFINITY) {
+                beta = Math.min(beta + delta, INFINITY);
+            } else {
+                return move;
+            }
+            delta *= 2;
+            stats.researches++;
+        }
+    }
+
+    // Root moves keep generation order on the first iteration, so fixed-depth ties go to the same move as before
+    private int searchRoot(Piece[][] b, int color, MoveList moves, int depth, int alpha, int beta) {
+        int opponent = color == Piece.WHITE ? Piece.RED : Piece.WHITE;
+        int bestMove = -1;
+        int best = -INFINITY;
+        rootDepth = depth;
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            Piece[][] tempBoard = makeMove(b, 1, move);
+
+            int score;
+            if (rootNoise > 0) {
+                // Every move needs its true score before the noise goes on, so no zero windows here
+                score = -negamax(tempBoard, depth - 1, 1, opponent, -INFINITY, INFINITY);
+                score += rng.nextInt(rootNoise + 1);
+            } else if (i == 0) {
+                score = -negamax(tempBoard, depth - 1, 1, opponent, -beta, -alpha);
+            } else {
+                score = -negamax(tempBoard, depth - 1, 1, opponent, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    stats.researches++;
+                    score = -negamax(tempBoard, depth - 1, 1, opponent, -beta, -alpha);
+                }
+            }
+            if (aborted) return bestMove;
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                updatePv(0, move);
+            }
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) break; // Fail high: the aspiration window is too low
+        }
+        rootScore = best;
+        return bestMove;
+    }
+
+    /**
+     * Copies parent into the board for ply and plays move on it.
+     * Piece objects are shared between plies; a man that is about to be crowned is
+     * replaced by a fresh Piece first, since promote() changes the object in place.
+     */
+    private Piece[][] makeMove(Piece[][] parent, int ply, int move) {
+        Piece[][] b = plyBoards[ply];
+        for (int r = 0; r < b.length; r++) System.arraycopy(parent[r], 0, b[r], 0, b.length);
+
+        int r1 = MoveList.fromRow(move), c1 = MoveList.fromCol(move);
+        int r2 = MoveList.toRow(move), c2 = MoveList.toCol(move);
+        Piece p = b[r1][c1];
+        if (!p.isKing() && r2 == variant.promotionRow(p.getColor())) {
+            b[r1][c1] = new Piece(p.getColor());
+        }
+
+        // Hash (and network accumulators): flip the side, lift the mover and anything it jumps, then drop it (maybe crowned)
+        float[] accWhite = null, accRed = null;
+        if (network != null) {
+            accWhite = plyAccWhite[ply];
+            accRed = plyAccRed[ply];
+            System.arraycopy(plyAccWhite[ply - 1], 0, accWhite, 0, accWhite.length);
+            System.arraycopy(plyAccRed[ply - 1], 0, accRed, 0, accRed.length);
+            network.removePiece(accWhite, accRed, p, r1, c1);
+        }
+        long h = plyHash[ply - 1] ^ variant.getSideKey() ^ variant.pieceKey(p, r1, c1);
+        if (MoveList.isCapture(move)) {
+            int rDir = Integer.signum(r2 - r1), cDir = Integer.signum(c2 - c1);
+            for (int cr = r1 + rDir, cc = c1 + cDir; cr != r2; cr += rDir, cc += cDir) {
+                if (b[cr][cc] != null) {
+                    h ^= variant.pieceKey(b[cr][cc], cr, cc);
+                    if (network != null) network.removePiece(accWhite, accRed, b[cr][cc], cr, cc);
+                }
+            }
+        }
+        engine.executeMove(b, r1, c1, r2, c2);
+        plyHash[ply] = h ^ variant.pieceKey(b[r2][c2], r2, c2);
+        if (network != null) network.addPiece(accWhite, accRed, b[r2][c2], r2, c2);
+        return b;
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][0] = move;
+        int childLength = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, childLength);
+        pvLength[ply] = childLength + 1;
+    }
+
+    /** Returns the score of b for color (the side to move), within [alpha, beta] or a bound outside it. */
+    private int negamax(Piece[][] b, int depth, int ply, int color, int alpha, int beta) {
+        pvLength[ply] = 0;
+        stats.nodes++;
+        if (ply > stats.selDepth) stats.selDepth = ply;
+        if (--nodesUntilCheck <= 0) {
+            nodesUntilCheck = TIME_CHECK_INTERVAL;
+            if (stopRequested || (nodeLimit > 0 && stats.nodes >= nodeLimit)
+                    || (deadline != NO_DEADLINE && System.nanoTime() >= deadline)) {
+                aborted = true;
+            }
+        }
+        if (aborted) return 0;
+
+        // Terminal test: the side to move with no legal moves has lost
+        if (!engine.hasAnyLegalMove(b, color)) {
+            return -(WIN_SCORE - ply);
+        }
+
+        if (depth == 0) {
+            stats.leafEvals++;
+            return evaluate(b, ply, color);
+        }
+
+        boolean pvNode = beta - alpha > 1;
+
+        // Transposition table: take a usable bound, and remember the stored best move for ordering
+        int alphaOrig = alpha;
+        int ttMove = 0;
+        if (tt != null) {
+            long entry = tt.probe(plyHash[ply]);
+            if (entry != 0) {
+                stats.ttHits++;
+                ttMove = TranspositionTable.move(entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    int s = scoreFromTable(TranspositionTable.score(entry), ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT) return s;
+                    if (bound == TranspositionTable.LOWER) alpha = Math.max(alpha, s);
+                    else beta = Math.min(beta, s);
+                    if (alpha >= beta) return s;
+                }
+            }
+        }
+
+        MoveList moves = plyMoves[ply];
+        engine.generateMoves(b, color, moves);
+        moves.orderCapturesFirst();
+        if (ttMove != 0) moves.moveToFront(ttMove);
+
+        int extensionLimit = Math.min(2 * rootDepth, MAX_PLY);
+        if (options.singleReplyExtension && moves.size() == 1 && ply + depth < extensionLimit) {
+            depth++;
+            stats.extensions++;
+        }
+
+        // Futility: is this node so far below alpha that a quiet move cannot help?
+        boolean futile = false;
+        if (options.futilityPruning && !pvNode && depth < options.futilityMargins.length
+                && Math.abs(alpha) < WIN_SCORE - MAX_PLY) {
+            futile = evaluate(b, ply, color) + options.futilityMargins[depth] <= alpha;
+        }
+
+        int opponent = color == Piece.WHITE ? Piece.RED : Piece.WHITE;
+        int bestMove = 0;
+        int best = -INFINITY;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            boolean quiet = !MoveList.isCapture(move) && !promotes(b, move);
+            if (futile && quiet && i > 0) {
+                stats.futilityPrunes++;
+                continue;
+            }
+            Piece[][] tempBoard = makeMove(b, ply + 1, move);
+
+            int newDepth = depth - 1;
+            if (options.captureExtension && newDepth == 0 && MoveList.isCapture(move) && ply + 1 < extensionLimit) {
+                newDepth++;
+                stats.extensions++;
+            }
+
+            int score;
+            if (i == 0) {
+                score = -negamax(tempBoard, newDepth, ply + 1, opponent, -beta, -alpha);
+            } else {
+                // Late quiet moves are tried shallower first; only a move that beats alpha gets the full depth
+                int reduction = 0;
+                if (options.lateMoveReductions && quiet && depth >= options.lmrMinDepth && i >= options.lmrMoveIndex) {
+                    reduction = Math.min(options.lmrReduction, newDepth - 1);
+                    if (reduction > 0) stats.reductions++;
+                }
+                // Zero window: only prove this move is no better than alpha; search again if it is
+                score = -negamax(tempBoard, newDepth - reduction, ply + 1, opponent, -alpha - 1, -alpha);
+                if (reduction > 0 && score > alpha) {
+                    stats.researches++;
+                    score = -negamax(tempBoard, newDepth, ply + 1, opponent, -alpha - 1, -alpha);
+                }
+                if (score > alpha && score < beta) {
+                    stats.researches++;
+                    score = -negamax(tempBoard, newDepth, ply + 1, opponent, -beta, -alpha);
+                }
+            }
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                updatePv(ply, move);
+            }
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) {
+                stats.betaCutoffs++;
+                break;
+            }
+        }
+
+        if (tt != null && !aborted) {
+            int bound = best <= alphaOrig ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            tt.store(plyHash[ply], bestMove, depth, bound, scoreToTable(best, ply));
+        }
+        return best;
+    }
+
+    /** Static score of the board at ply for color (the side to move). */
+    private int evaluate(Piece[][] b, int ply, int color) {
+        if (network != null) {
+            return color == Piece.WHITE
+                    ? network.evaluate(plyAccWhite[ply], plyAccRed[ply], nnueScratch)
+                    : network.evaluate(plyAccRed[ply], plyAccWhite[ply], nnueScratch);
+        }
+        int eval = engine.evaluateBoard(b);
+        return color == Piece.WHITE ? eval : -eval;
+    }
+
+    // A man stepping onto the last row; crowning changes the score a lot, so it is never "quiet"
+    private boolean promotes(Piece[][] b, int move) {
+        Piece p = b[MoveList.fromRow(move)][MoveList.fromCol(move)];
+        return !p.isKing() && MoveList.toRow(move) == variant.promotionRow(p.getColor());
+    }
+
+    // Win scores depend on the ply they were found at; the table stores them relative to the node
+    private static int scoreToTable(int score, int ply) {
+        if (score >= WIN_SCORE - MAX_PLY) return score + ply;
+        if (score <= -(WIN_SCORE - MAX_PLY)) return score - ply;
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= WIN_SCORE - MAX_PLY) return score - ply;
+        if (score <= -(WIN_SCORE - MAX_PLY)) return score + ply;
+        return score;
+    }
+}
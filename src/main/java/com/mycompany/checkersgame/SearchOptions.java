@@ -0,0 +1,58 @@
+/**
+ * SearchOptions.java
+ * Switches and parameters for the selective parts of Search.
+ * Each technique can be turned off on its own; fullWidth() turns them all off,
+ * which gives the plain PVS result (used as the reference by SearchSuite).
+ *
+ * Null-move pruning is left out on purpose: zugzwang is common in draughts endings
+ * (having to move is often what loses), so "passing" is not a safe lower bound there.
+ */
+public class SearchOptions {
+
+    // Late move reductions: quiet moves late in the list are first searched one ply shallower,
+    // and only searched again at full depth if they turn out better than alpha
+    public boolean lateMoveReductions = true;
+    public int lmrMinDepth = 3;   // Remaining depth needed before anything is reduced
+    public int lmrMoveIndex = 3;  // The first moves of a node are never reduced
+    public int lmrReduction = 1;  // Plies taken off
+
+    // Futility pruning: close to the leaves, in zero-window nodes, quiet moves are skipped
+    // when the static score plus a margin still cannot reach alpha
+    public boolean futilityPruning = true;
+    public int[] futilityMargins = {0, 10, 25}; // By remaining depth; pruning only below the array length
+
+    // Extensions, limited to lines of twice the nominal depth
+    public boolean captureExtension = true;     // A capture at the horizon is searched one ply deeper (see the recapture)
+    public boolean singleReplyExtension = true; // A forced (only) move does not use up depth
+
+    /** All selective techniques off. */
+    public static SearchOptions fullWidth() {
+        SearchOptions o = new SearchOptions();
+        o.lateMoveReductions = false;
+        o.futilityPruning = false;
+        o.captureExtension = false;
+        o.singleReplyExtension = false;
+        return o;
+    }
+
+    public SearchOptions copy() {
+        SearchOptions o = new SearchOptions();
+        o.lateMoveReductions = lateMoveReductions;
+        o.lmrMinDepth = lmrMinDepth;
+        o.lmrMoveIndex = lmrMoveIndex;
+        o.lmrReduction = lmrReduction;
+        o.futilityPruning = futilityPruning;
+        o.futilityMargins = futilityMargins.clone();
+        o.captureExtension = captureExtension;
+        o.singleReplyExtension = singleReplyExtension;
+        return o;
+    }
+
+    @Override
+    public String toString() {
+        return "lmr=" + (lateMoveReductions ? lmrMinDepth + "/" + lmrMoveIndex + "/" + lmrReduction : "off")
+                + " futility=" + (futilityPruning ? java.util.Arrays.toString(futilityMargins) : "off")
+                + " captureExt=" + (captureExtension ? "on" : "off")
+                + " singleReplyExt=" + (singleReplyExtension ? "on" : "off");
+    }
+}
@@ -0,0 +1,204 @@
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SearchScheduler.java
+ * Shared pool of AI search workers for hosting many games in one JVM.
+ * - A fixed number of platform worker threads (default: one per core), so searches never oversubscribe the CPUs.
+ * - Requests are queued shortest-deadline-first and each search stops at its own time budget
+ *   (or its game clock's TimeManager); a forced move is answered without queueing.
+ * - Under overload it degrades gracefully: one ply shallower when the queue is longer than the pool,
+ *   makeHeuristicMove-style play when the budget is already spent or the queue is full.
+ */
+public class SearchScheduler {
+
+    // Below this much remaining budget a search is not worth starting
+    private static final long MIN_SEARCH_NANOS = 5_000_000L;
+
+    private final PriorityBlockingQueue<Request> queue = new PriorityBlockingQueue<>();
+    private final Thread[] workers;
+    private final int maxQueue;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // --- Metrics ---
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong reducedDepth = new AtomicLong();
+    private final AtomicLong heuristicFallbacks = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+
+    public SearchScheduler(int workerCount, int maxQueue) {
+        this.maxQueue = maxQueue;
+        Metrics.register("scheduler.queue.wait", queueWait);
+        Metrics.register("scheduler.move.latency", moveLatency);
+        workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::workerLoop, "search-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    public SearchScheduler() {
+        this(Runtime.getRuntime().availableProcessors(), 10_000);
+    }
+
+    /**
+     * Queues a search for color on a private copy of board.
+     * The future always completes with a move (or null if color has no legal moves).
+     */
+    public CompletableFuture<int[]> submit(GameEngine engine, Piece[][] board, int color, int depth, long budgetMillis) {
+        return submit(engine, board, color, AiLevel.fixedDepth(depth), budgetMillis);
+    }
+
+    /** Same, with a ladder level's limits; a level's own time cap wins if it is shorter than budgetMillis. */
+    public CompletableFuture<int[]> submit(GameEngine engine, Piece[][] board, int color, AiLevel level, long budgetMillis) {
+        if (level.getTimeMillis() > 0) budgetMillis = Math.min(budgetMillis, level.getTimeMillis());
+        long now = System.nanoTime();
+        return submit(new Request(engine, engine.cloneBoard(board), color, level, null,
+                now, now + budgetMillis * 1_000_000L, sequence.getAndIncrement()));
+    }
+
+    /**
+     * Same, for a game on a clock: the time manager's hard budget is the deadline (time spent
+     * queueing is on the clock too) and it may end the search earlier.
+     */
+    public CompletableFuture<int[]> submit(GameEngine engine, Piece[][] board, int color, AiLevel level, TimeManager time) {
+        return submit(new Request(engine, engine.cloneBoard(board), color, level, time,
+                System.nanoTime(), time.getDeadline(), sequence.getAndIncrement()));
+    }
+
+    private CompletableFuture<int[]> submit(Request req) {
+        submitted.incrementAndGet();
+
+        List<int[]> moves = req.engine.getAllLegalMoves(req.board, req.color);
+        if (moves.size() <= 1) {
+            // Forced (or no) move: answered at once, no queue slot or search needed
+            complete(req, moves.isEmpty() ? null : moves.get(0));
+        } else if (queue.size() >= maxQueue) {
+            // Admission control: answer cheaply on the caller's thread instead of queueing
+            rejected.incrementAndGet();
+            finishWithHeuristic(req);
+        } else {
+            queue.add(req);
+        }
+        return req.result;
+    }
+
+    public void shutdown() {
+        for (Thread t : workers) t.interrupt();
+    }
+
+    private void workerLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Request req;
+            try {
+                req = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                runRequest(req);
+            } catch (RuntimeException e) {
+                req.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void runRequest(Request req) {
+        long start = System.nanoTime();
+        queueWait.recordNanos(start - req.submitNanos);
+
+        if (req.deadline - start < MIN_SEARCH_NANOS) {
+            finishWithHeuristic(req);
+            return;
+        }
+
+        int depth = req.level.getDepth();
+        if (queue.size() > workers.length && depth > 1) {
+            depth--;
+            reducedDepth.incrementAndGet();
+        }
+
+        // The level's limits, noise and endgame rules, as for any other game; the session waits meanwhile, so no sharing
+        Search search = req.engine.newSearch(req.level);
+        search.setTimeManager(req.time);
+        int[] move = search.search(req.board, req.color, depth, req.deadline);
+        if (search.wasAborted() && search.getCompletedDepth() == 0) {
+            finishWithHeuristic(req);
+            return;
+        }
+        complete(req, move);
+    }
+
+    private void finishWithHeuristic(Request req) {
+        heuristicFallbacks.incrementAndGet();
+        complete(req, req.engine.findHeuristicMove(req.board, req.color));
+    }
+
+    private void complete(Request req, int[] move) {
+        moveLatency.recordNanos(System.nanoTime() - req.submitNanos);
+        completed.incrementAndGet();
+        req.result.complete(move);
+    }
+
+    // --- Metrics accessors ---
+    public int getQueueDepth() { return queue.size(); }
+    public int getWorkerCount() { return workers.length; }
+    public long getSubmitted() { return submitted.get(); }
+    public long getCompleted() { return completed.get(); }
+    public long getReducedDepth() { return reducedDepth.get(); }
+    public long getHeuristicFallbacks() { return heuristicFallbacks.get(); }
+    public long getRejected() { return rejected.get(); }
+    public LatencyHistogram getQueueWait() { return queueWait; }
+    public LatencyHistogram getMoveLatency() { return moveLatency; }
+
+    /** One-line summary, e.g. for the server STATS command. */
+    public String getStatsLine() {
+        return "queue=" + getQueueDepth()
+                + " workers=" + workers.length
+                + " submitted=" + getSubmitted()
+                + " completed=" + getCompleted()
+                + " reduced=" + getReducedDepth()
+                + " heuristic=" + getHeuristicFallbacks()
+                + " rejected=" + getRejected()
+                + " wait_p99_us=" + queueWait.getPercentileMicros(99)
+                + " latency_p50_us=" + moveLatency.getPercentileMicros(50)
+                + " latency_p99_us=" + moveLatency.getPercentileMicros(99);
+    }
+
+    private static class Request implements Comparable<Request> {
+        final GameEngine engine;
+        final Piece[][] board;
+        final int color;
+        final AiLevel level;
+        final TimeManager time; // null = plain budget
+        final long submitNanos;
+        final long deadline;
+        final long seq;
+        final CompletableFuture<int[]> result = new CompletableFuture<>();
+
+        Request(GameEngine engine, Piece[][] board, int color, AiLevel level, TimeManager time,
+                long submitNanos, long deadline, long seq) {
+            this.engine = engine;
+            this.board = board;
+            this.color = color;
+            this.level = level;
+            this.time = time;
+            this.submitNanos = submitNanos;
+            this.deadline = deadline;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Request o) {
+            // Shortest deadline first, FIFO among equal deadlines
+            int cmp = Long.compare(deadline, o.deadline);
+            return cmp != 0 ? cmp : Long.compare(seq, o.seq);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SearchStats.java
+ * Counters for one search, owned by a single Search object (so by a single thread).
+ * Plain fields, no atomics: nothing is shared, so counting costs next to nothing.
+ * Listeners get the live object; call copy() to keep a snapshot.
+ */
+public class SearchStats {
+
+    long nodes;
+    long leafEvals;
+    long betaCutoffs;
+    long researches; // PVS, LMR and aspiration re-searches
+    long reductions;
+    long futilityPrunes;
+    long extensions;
+    long ttHits;
+    int depth;     // Last finished iteration
+    int selDepth;  // Deepest ply reached
+    int score;     // From WHITE's point of view
+    long startNanos;
+    long elapsedNanos;
+    List<int[]> pv = new ArrayList<>();
+    String pvText = "";
+
+    void reset() {
+        nodes = leafEvals = betaCutoffs = researches = ttHits = 0;
+        reductions = futilityPrunes = extensions = 0;
+        depth = selDepth = score = 0;
+        startNanos = System.nanoTime();
+        elapsedNanos = 0;
+        pv = new ArrayList<>();
+        pvText = "";
+    }
+
+    public long getNodes() { return nodes; }
+    public long getLeafEvals() { return leafEvals; }
+    public long getBetaCutoffs() { return betaCutoffs; }
+    public long getResearches() { return researches; }
+    public long getReductions() { return reductions; }
+    public long getFutilityPrunes() { return futilityPrunes; }
+    public long getExtensions() { return extensions; }
+    public long getTtHits() { return ttHits; }
+    public int getDepth() { return depth; }
+    public int getSelDepth() { return selDepth; }
+    public int getScore() { return score; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public List<int[]> getPrincipalVariation() { return pv; }
+    public String getPvText() { return pvText; }
+
+    /** Nodes per second over the elapsed time. */
+    public long getNps() {
+        return elapsedNanos <= 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    public SearchStats copy() {
+        SearchStats s = new SearchStats();
+        s.nodes = nodes;
+        s.leafEvals = leafEvals;
+        s.betaCutoffs = betaCutoffs;
+        s.researches = researches;
+        s.reductions = reductions;
+        s.futilityPrunes = futilityPrunes;
+        s.extensions = extensions;
+        s.ttHits = ttHits;
+        s.depth = depth;
+        s.selDepth = selDepth;
+        s.score = score;
+        s.startNanos = startNanos;
+        s.elapsedNanos = elapsedNanos;
+        s.pv = pv;
+        s.pvText = pvText;
+        return s;
+    }
+
+    @Override
+    public String toString() {
+        return "depth " + depth + " seldepth " + selDepth + " score " + score
+                + " nodes " + nodes + " evals " + leafEvals + " cutoffs " + betaCutoffs + " researches " + researches + " tthits " + ttHits
+                + " time " + elapsedNanos / 1_000_000 + " nps " + getNps() + " pv " + pvText;
+    }
+}
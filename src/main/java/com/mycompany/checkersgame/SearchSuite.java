@@ -0,0 +1,90 @@
+/**
+ * SearchSuite.java
+ * Fixed-position test suite for the selective search (SearchOptions).
+ * Runs every position with each technique on its own, all of them, and none (full width),
+ * and reports how many positions found the expected move and how many nodes it took.
+ *
+ * The positions come from engine games and all have one clearly best move
+ * (at least a man better than the next one in a full-width depth-9 search)
+ * that a shallow search misses, so they test tactics, not taste.
+ *
+ * Usage: java SearchSuite [depth]   (default 8)
+ */
+public class SearchSuite {
+
+    // { FEN, expected move }
+    private static final String[][] POSITIONS = {
+        {"R:W3,13,15,17,K26:R16,28,29:F1:K2", "28-24"}, // 14
+        {"W:W3,8,9,12,13:R11,19,21,24,31:F0:K2", "13-17"}, // 28
+        {"R:W1,4,5,19,20,26:RK3,13,17,21,25,28,30,32:F0:K1", "17-14"}, // 16
+        {"W:W1,3,6,8,18:R10,15,25,28,32:F1:K2", "18-23"}, // 14
+        {"R:W5,8,15:RK3,12,20,21,28:F1:K1", "3-14"}, // 10
+        {"R:W1,3,5,8,12,13,K31:R10,18,24,29,32:F0:K2", "18-15"}, // 18
+        {"R:W3,7,11,13,17,27:RK12,18,23,29,30,32:F0:K1", "23-19"}, // 20
+        {"R:W2,4,9,13,18,22:RK3,21,24,25,29,31:F1:K1", "3-14"}, // 23
+        {"R:W2,20,21,26:RK4,28,29:F1:K1", "4-25"}, // 40
+        {"R:W2,3,7,10,11,12,14:R13,27,28,29,30,31,32:F1:K2", "13-9"}, // 13
+        {"R:W3,8,13,18:RK5,12,21,28,29,32:F1:K2", "21-17"}, // 36
+        {"R:W1,3,4,9,20:R5,22,24,27,31,32:F1:K2", "22-17"}, // 19
+        {"R:W1,2,4,12,13,15:R10,20,21,22,24,28:F0:K2", "24-19"}, // 13
+        {"W:W1,4,5,11,12,18,19:R7,20,21,26,27,28,31:F0:K2", "19-23"}, // 24
+        {"R:W12,15,K20:RK5,6,21,26:F1:K2", "26-23"}, // 33
+        {"R:W4,8,12,14,20:R13,23,27,28,29:F1:K2", "13-9"}, // 10
+        {"W:W10,11,12,13,15,K31:RK1,16,17,22,24:F0:K1", "12x19"}, // 18
+        {"R:W1,2,4,18,19:R5,9,13,20,21,25,28,32:F0:K2", "20-16"}, // 12
+        {"W:W4,5,18:RK3,24,29:F1:K1", "18-23"}, // 47
+        {"W:W4,16,21:R9,29,31:F1:K2", "21-25"}, // 25
+        {"R:W3,5,7,11,12,14,21:R13,22,28,29,30,32:F1:K1", "13-9"}, // 13
+        {"W:W1,4,14,15,19:R13,27,28,29:F1:K1", "15-18"}, // 16
+        {"R:W1,3,5,12,26,K32:R10,13,20,24,28,29:F0:K2", "24-19"}, // 12
+        {"R:W3,5,12,22,K30:RK4,21,28,29,32:F1:K2", "29-25"}, // 13
+        {"W:W4,K21:RK5,10,13,28,29:F1:K2", "21-25"}, // 40
+        {"R:W3,4,11,16,18,23:RK1,20,21,28,32:F0:K2", "21-17"}, // 34
+        {"W:W2,11,12,13,18:R7,27,28,31,32:F0:K1", "18-22"}, // 12
+        {"W:W2,4,12,18,22,K30:R7,21,24,25:F0:K1", "2x11"}, // 24
+        {"R:W1,2,3,4,23:R5,21,22,28,32:F1:K2", "32-27"}, // 35
+        {"W:W5,16,18:RK1,20,26,28,32:F0:K1", "18-23"}, // 12
+        {"R:W1,2,4,5,10,K32:R12,13,20,21,24,29,31:F0:K2", "20-16"}, // 22
+        {"R:W1,2,3,11,12,16,K19:R14,20,32:F1:K1", "14-9"}, // 99876
+    };
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+
+        String[] names = {"full width", "lmr", "futility", "capture ext", "single-reply ext", "all"};
+        SearchOptions[] configs = new SearchOptions[names.length];
+        for (int i = 0; i < configs.length; i++) configs[i] = SearchOptions.fullWidth();
+        configs[1].lateMoveReductions = true;
+        configs[2].futilityPruning = true;
+        configs[3].captureExtension = true;
+        configs[4].singleReplyExtension = true;
+        configs[5] = new SearchOptions();
+
+        System.out.printf("%d positions, depth %d%n", POSITIONS.length, depth);
+        System.out.printf("%-18s %8s %12s %8s %8s%n", "options", "solved", "nodes", "nodes%", "ms");
+        long baseNodes = 0;
+        for (int i = 0; i < configs.length; i++) {
+            long[] result = run(configs[i], depth);
+            if (i == 0) baseNodes = result[1];
+            System.out.printf("%-18s %5d/%-2d %12d %7.1f%% %8d%n", names[i], result[0], POSITIONS.length,
+                    result[1], 100.0 * result[1] / baseNodes, result[2]);
+        }
+    }
+
+    /** Returns {solved, nodes, millis} for one set of options. */
+    static long[] run(SearchOptions options, int depth) {
+        long solved = 0, nodes = 0;
+        long start = System.nanoTime();
+        for (String[] entry : POSITIONS) {
+            Position pos = Notation.parseFen(entry[0]);
+            GameEngine engine = pos.toEngine();
+            Search search = new Search(engine);
+            search.setOptions(options);
+            search.setTranspositionTable(new TranspositionTable(8));
+            int[] move = search.search(engine.getBoard(), pos.getSideToMove(), depth, Search.NO_DEADLINE);
+            if (move != null && Notation.moveToText(engine.getBoard(), move).equals(entry[1])) solved++;
+            nodes += search.getStats().getNodes();
+        }
+        return new long[]{solved, nodes, (System.nanoTime() - start) / 1_000_000};
+    }
+}
@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SelfPlay.java
+ * Engine-vs-engine games written straight to a game record file, for analytics and training data.
+ * Worker threads pull game numbers from a counter, so memory stays flat for any game count.
+ * Game i is played with seed gameSeed(baseSeed, i), and the seed is stored in its record,
+ * so a run (or any single game) can be reproduced exactly. Only the order of games in the
+ * file depends on thread timing. Levels with a time cap (9, 10, 11) are not reproducible.
+ * SelfPlayCoordinator plays the same games spread over worker processes (and machines).
+ *
+ * --match plays two AIs against each other (no file) and reports the score and the CPU time
+ * each side used per move, to compare engines by strength per CPU-second. An AI is a ladder
+ * level, "ab:<ms>" (alpha-beta Search for ms per move) or "mcts:<ms>[:threads]" (MctsSearch;
+ * "mcts-random:..." uses plain random rollouts instead of guided ones).
+ * Every opening (a few random moves) is played twice, with the colors swapped; games run
+ * one at a time so the process CPU time of a move belongs to the side that made it.
+ *
+ * Usage: java SelfPlay <file> [games] [redLevel] [whiteLevel] [threads] [baseSeed]
+ *        java SelfPlay --stats <file>     (streams the file and prints a summary)
+ *        java SelfPlay --match <ai1> <ai2> [games] [baseSeed]   (e.g. --match mcts:100 ab:100 50)
+ */
+public class SelfPlay {
+
+    public static final int MAX_PLIES = GameSession.MAX_PLIES;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: java SelfPlay <file> [games] [redLevel] [whiteLevel] [threads] [baseSeed]");
+            System.out.println("       java SelfPlay --stats <file>");
+            System.out.println("       java SelfPlay --match <ai1> <ai2> [games] [baseSeed]   (ai: level, ab:<ms> or mcts:<ms>[:threads])");
+            return;
+        }
+        if (args[0].equals("--stats")) {
+            printStats(Path.of(args[1]));
+            return;
+        }
+        if (args[0].equals("--match")) {
+            int games = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+            long baseSeed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+            match(args[1], args[2], games, baseSeed);
+            return;
+        }
+
+        Path file = Path.of(args[0]);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int redLevel = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int whiteLevel = args.length > 3 ? Integer.parseInt(args[3]) : AiLevel.HARDCORE;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        long baseSeed = args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime();
+
+        long start = System.nanoTime();
+        try (GameRecordWriter writer = GameRecordWriter.append(file)) {
+            AtomicInteger next = new AtomicInteger();
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < games) {
+                        GameRecord game = playGame(CheckersBoard.forceCapture, CheckersBoard.kingMoveRule,
+                                redLevel, whiteLevel, gameSeed(baseSeed, i));
+                        synchronized (writer) {
+                            try {
+                                writer.write(game);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                    }
+                }, "self-play-" + t);
+                workers[t].start();
+            }
+            for (Thread w : workers) w.join();
+        }
+        long ms = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Wrote " + games + " games to " + file + " in " + ms + " ms (base seed " + baseSeed + ")");
+    }
+
+    /** Seed of game i of a run; a SplitMix64 step, so neighbouring games get unrelated seeds. */
+    public static long gameSeed(long baseSeed, long i) {
+        long z = baseSeed + (i + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Plays one game, RED first, with a fresh random seed and returns its record. */
+    public static GameRecord playGame(boolean forceCapture, int kingMoveRule, int redLevel, int whiteLevel) {
+        return playGame(forceCapture, kingMoveRule, redLevel, whiteLevel, java.util.concurrent.ThreadLocalRandom.current().nextLong());
+    }
+
+    /** Plays one game, RED first, with the given seed; the same arguments always give the same game. */
+    public static GameRecord playGame(boolean forceCapture, int kingMoveRule, int redLevel, int whiteLevel, long seed) {
+        GameEngine engine = new GameEngine(forceCapture, kingMoveRule);
+        engine.setSeed(seed);
+        GameRecord record = GameRecord.forEngine(engine);
+        Piece[][] board = engine.getBoard();
+        int color = Piece.RED;
+
+        for (int ply = 0; ply < MAX_PLIES; ply++) {
+            if (engine.isProvenDraw(board, color)) break; // A solved draw: no need to play it out
+            int[] m = engine.findMoveForLevel(board, color, color == Piece.RED ? redLevel : whiteLevel);
+            if (m == null) {
+                // No legal moves: the side to move loses
+                record.setResult(color == Piece.RED ? GameRecord.RESULT_WHITE_WIN : GameRecord.RESULT_RED_WIN);
+                return record;
+            }
+            record.addMove(board, m[0], m[1], m[2], m[3]);
+            engine.executeMove(board, m[0], m[1], m[2], m[3]);
+            color = color == Piece.RED ? Piece.WHITE : Piece.RED;
+        }
+        record.setResult(GameRecord.RESULT_DRAW);
+        return record;
+    }
+
+    // --- Engine matches ---
+
+    private static final com.sun.management.OperatingSystemMXBean OS =
+            (com.sun.management.OperatingSystemMXBean) java.lang.management.ManagementFactory.getOperatingSystemMXBean();
+
+    private static void match(String spec1, String spec2, int games, long baseSeed) {
+        String[] specs = {spec1, spec2};
+        int[] points = new int[2]; // Half points
+        int[] wins = new int[2];
+        long[] cpuNanos = new long[2];
+        long[] moves = new long[2];
+
+        for (int g = 0; g < games; g++) {
+            int first = g % 2; // Which AI plays RED
+            GameEngine[] engines = new GameEngine[2];
+            AiLevel[] levels = new AiLevel[2];
+            long seed = gameSeed(baseSeed, g / 2); // Both games of a pair start alike
+            for (int i = 0; i < 2; i++) {
+                engines[i] = new GameEngine(CheckersBoard.forceCapture, CheckersBoard.kingMoveRule);
+                engines[i].setSeed(gameSeed(seed, i));
+                levels[i] = parseAi(specs[i], engines[i]);
+            }
+
+            java.util.SplittableRandom opening = new java.util.SplittableRandom(seed);
+            int randomPlies = 2 + opening.nextInt(5);
+            Piece[][] board = engines[0].getBoard();
+            int color = Piece.RED;
+            int winner = 0;
+            for (int ply = 0; ply < MAX_PLIES; ply++) {
+                if (engines[0].isProvenDraw(board, color)) break;
+                int side = (color == Piece.RED) == (first == 0) ? 0 : 1;
+                int[] m;
+                if (ply < randomPlies) {
+                    java.util.List<int[]> legal = engines[0].getAllLegalMoves(board, color);
+                    m = legal.isEmpty() ? null : legal.get(opening.nextInt(legal.size()));
+                } else {
+                    long cpu = OS.getProcessCpuTime();
+                    m = engines[side].findMoveForLevel(board, color, levels[side]);
+                    cpuNanos[side] += OS.getProcessCpuTime() - cpu;
+                    moves[side]++;
+                }
+                if (m == null) {
+                    winner = 2 - side; // The other AI wins; stored as its index + 1 (0 = draw)
+                    break;
+                }
+                engines[0].executeMove(board, m[0], m[1], m[2], m[3]);
+                color = color == Piece.RED ? Piece.WHITE : Piece.RED;
+            }
+            if (winner == 0) {
+                points[0]++;
+                points[1]++;
+            } else {
+                points[winner - 1] += 2;
+                wins[winner - 1]++;
+            }
+        }
+
+        int draws = games - wins[0] - wins[1];
+        for (int i = 0; i < 2; i++) {
+            double cpuPerMove = moves[i] == 0 ? 0 : cpuNanos[i] / 1e6 / moves[i];
+            System.out.printf("%-16s +%d =%d -%d  %5.1f%%  CPU %.1f ms/move%n", specs[i],
+                    wins[i], draws, wins[1 - i], 50.0 * points[i] / games, cpuPerMove);
+        }
+    }
+
+    // A ladder level, ab:<ms> or mcts[-random]:<ms>[:threads]; MCTS threads and rollouts are set on the engine
+    private static AiLevel parseAi(String spec, GameEngine engine) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "ab" -> {
+                return new AiLevel(0, spec, AiLevel.SEARCH, Search.MAX_PLY, 0, Long.parseLong(parts[1]), 0);
+            }
+            case "mcts", "mcts-random" -> {
+                int threads = parts.length > 2 ? Integer.parseInt(parts[2]) : 1;
+                MctsSearch mcts = new MctsSearch(engine, threads);
+                if (parts[0].equals("mcts-random")) mcts.setRolloutPolicy(MctsSearch.ROLLOUT_RANDOM);
+                engine.setMctsSearch(mcts);
+                return new AiLevel(0, spec, AiLevel.MCTS, 0, 0, Long.parseLong(parts[1]), 0);
+            }
+            default -> {
+                return AiLevel.of(Integer.parseInt(spec));
+            }
+        }
+    }
+
+    private static void printStats(Path file) throws IOException {
+        long games = 0, moves = 0, captures = 0;
+        long[] results = new long[4];
+        try (GameRecordReader reader = GameRecordReader.open(file)) {
+            for (GameRecord game : reader) {
+                games++;
+                moves += game.getMoveCount();
+                results[game.getResult()]++;
+                for (int i = 0; i < game.getMoveCount(); i++) {
+                    if ((game.getPackedMove(i) & GameRecord.CAPTURE_FLAG) != 0) captures++;
+                }
+            }
+        }
+        System.out.println("Games: " + games + "  Moves: " + moves + "  Captures: " + captures);
+        System.out.println("Red wins: " + results[GameRecord.RESULT_RED_WIN]
+                + "  White wins: " + results[GameRecord.RESULT_WHITE_WIN]
+                + "  Draws: " + results[GameRecord.RESULT_DRAW]);
+    }
+}
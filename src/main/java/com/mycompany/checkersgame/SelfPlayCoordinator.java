@@ -0,0 +1,227 @@
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SelfPlayCoordinator.java
+ * SelfPlay spread over worker processes: each worker is its own JVM (one per core is the
+ * idea), started by the coordinator and driven over its stdin/stdout pipes.
+ * - The games of a run are cut into batches (game numbers first..first+count-1). A worker
+ *   gets one batch at a time as a line "BATCH first count" and answers with the batch's
+ *   games in the game record format (GameRecordWriter), all at once when the batch is done.
+ * - The coordinator appends a batch to the file only when all its games have arrived. If a
+ *   worker dies (or its pipe breaks) in the middle, what it sent of that batch is dropped, the
+ *   batch goes back to the queue for any worker, and the worker is started again.
+ * - Game i still has seed SelfPlay.gameSeed(baseSeed, i), so the file holds the same games
+ *   as a SelfPlay run with the same arguments, whichever worker played them (the order differs).
+ * Workers on other machines are started over ssh with the same java and class path, which
+ *   must exist there too; "host:count" in the worker list adds count workers on host.
+ *
+ * Usage: java SelfPlayCoordinator <file> [games] [workers] [redLevel] [whiteLevel] [baseSeed] [batchSize]
+ *        workers: a count of local workers and/or host:count entries, e.g. 4 or 4,node2:8
+ *        java SelfPlayCoordinator --worker redLevel whiteLevel baseSeed forceCapture kingMoveRule  (started by the above)
+ */
+public class SelfPlayCoordinator {
+
+    private static final int DEFAULT_BATCH = 8;
+    private static final int MAX_RESTARTS = 5; // Per worker slot; past that the slot gives up
+
+    private record Batch(int first, int count) { }
+
+    private final Path file;
+    private final int redLevel, whiteLevel;
+    private final long baseSeed;
+    private final LinkedBlockingQueue<Batch> pending = new LinkedBlockingQueue<>();
+    private final AtomicInteger batchesLeft = new AtomicInteger();
+    private final AtomicInteger resubmitted = new AtomicInteger();
+    private final AtomicInteger restarts = new AtomicInteger();
+    private GameRecordWriter writer;
+
+    private SelfPlayCoordinator(Path file, int redLevel, int whiteLevel, long baseSeed) {
+        this.file = file;
+        this.redLevel = redLevel;
+        this.whiteLevel = whiteLevel;
+        this.baseSeed = baseSeed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: java SelfPlayCoordinator <file> [games] [workers] [redLevel] [whiteLevel] [baseSeed] [batchSize]");
+            System.out.println("       workers: local count and/or host:count entries, e.g. 4 or 4,node2:8");
+            return;
+        }
+        if (args[0].equals("--worker")) {
+            runWorker(args);
+            return;
+        }
+        Path file = Path.of(args[0]);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        String workers = args.length > 2 ? args[2] : Integer.toString(Runtime.getRuntime().availableProcessors());
+        int redLevel = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        int whiteLevel = args.length > 4 ? Integer.parseInt(args[4]) : AiLevel.HARDCORE;
+        long baseSeed = args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime();
+        int batchSize = args.length > 6 ? Integer.parseInt(args[6]) : DEFAULT_BATCH;
+
+        new SelfPlayCoordinator(file, redLevel, whiteLevel, baseSeed).run(games, parseWorkers(workers), batchSize);
+    }
+
+    // One entry per worker: null for a local one, else the host to ssh to
+    private static List<String> parseWorkers(String spec) {
+        List<String> hosts = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            int colon = part.lastIndexOf(':');
+            String host = colon < 0 ? null : part.substring(0, colon);
+            int count = Integer.parseInt(colon < 0 ? part : part.substring(colon + 1));
+            for (int i = 0; i < count; i++) hosts.add(host);
+        }
+        return hosts;
+    }
+
+    private void run(int games, List<String> hosts, int batchSize) throws Exception {
+        for (int first = 0; first < games; first += batchSize) {
+            pending.add(new Batch(first, Math.min(batchSize, games - first)));
+        }
+        batchesLeft.set(pending.size());
+
+        long start = System.nanoTime();
+        try (GameRecordWriter w = GameRecordWriter.append(file)) {
+            writer = w;
+            List<Thread> slots = new ArrayList<>();
+            for (int i = 0; i < hosts.size(); i++) {
+                String host = hosts.get(i);
+                Thread t = new Thread(() -> runSlot(host), "self-play-slot-" + i);
+                t.start();
+                slots.add(t);
+            }
+            for (Thread t : slots) t.join();
+        }
+        long ms = (System.nanoTime() - start) / 1_000_000;
+        if (batchesLeft.get() > 0) {
+            System.out.println("Stopped with " + batchesLeft.get() + " batches unplayed: every worker failed too often");
+        }
+        System.out.printf("Wrote %d games to %s in %d ms with %d workers (%.1f games/s), %d batches resubmitted, %d worker restarts (base seed %d)%n",
+                writer.getGamesWritten(), file, ms, hosts.size(), writer.getGamesWritten() * 1000.0 / Math.max(1, ms),
+                resubmitted.get(), restarts.get(), baseSeed);
+    }
+
+    // One worker slot: keeps a worker process fed with batches, restarting it when it dies
+    private void runSlot(String host) {
+        int failures = 0;
+        while (batchesLeft.get() > 0 && failures <= MAX_RESTARTS) {
+            Process p;
+            try {
+                p = startWorker(host);
+            } catch (IOException e) {
+                System.err.println("Cannot start worker" + (host == null ? "" : " on " + host) + ": " + e.getMessage());
+                failures++;
+                continue;
+            }
+            Batch batch = null;
+            try (Writer commands = new OutputStreamWriter(p.getOutputStream(), StandardCharsets.US_ASCII);
+                 GameRecordReader results = new GameRecordReader(p.getInputStream())) {
+                while ((batch = nextBatch()) != null) {
+                    commands.write("BATCH " + batch.first() + " " + batch.count() + "\n");
+                    commands.flush();
+                    GameRecord[] games = new GameRecord[batch.count()];
+                    for (int i = 0; i < games.length; i++) {
+                        games[i] = results.next();
+                        if (games[i] == null) throw new IOException("worker exited during a batch");
+                    }
+                    synchronized (writer) {
+                        for (GameRecord g : games) writer.write(g);
+                        writer.flush();
+                    }
+                    batchesLeft.decrementAndGet();
+                    batch = null;
+                }
+                commands.write("QUIT\n");
+                commands.flush();
+                p.waitFor();
+                return;
+            } catch (IOException | InterruptedException e) {
+                failures++;
+                if (batch != null) {
+                    pending.add(batch); // Any slot may pick it up again
+                    resubmitted.incrementAndGet();
+                }
+                System.err.println("Worker" + (host == null ? "" : " on " + host) + " failed (" + e.getMessage() + "), "
+                        + (failures <= MAX_RESTARTS ? "restarting" : "giving up on this slot"));
+                p.destroyForcibly();
+                if (failures <= MAX_RESTARTS) restarts.incrementAndGet();
+            }
+        }
+    }
+
+    // The next batch, or null once every batch is written. Waits while others are still out
+    // with other workers: one of them may fail and come back.
+    private Batch nextBatch() throws InterruptedException {
+        while (batchesLeft.get() > 0) {
+            Batch b = pending.poll(100, TimeUnit.MILLISECONDS);
+            if (b != null) return b;
+        }
+        return null;
+    }
+
+    private Process startWorker(String host) throws IOException {
+        List<String> cmd = new ArrayList<>();
+        if (host != null) {
+            cmd.add("ssh");
+            cmd.add(host);
+        }
+        cmd.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(SelfPlayCoordinator.class.getName());
+        cmd.add("--worker");
+        cmd.add(Integer.toString(redLevel));
+        cmd.add(Integer.toString(whiteLevel));
+        cmd.add(Long.toString(baseSeed));
+        cmd.add(Boolean.toString(CheckersBoard.forceCapture));
+        cmd.add(Integer.toString(CheckersBoard.kingMoveRule));
+        return new ProcessBuilder(cmd).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    // --- Worker side ---
+
+    private static void runWorker(String[] args) throws IOException {
+        int redLevel = Integer.parseInt(args[1]);
+        int whiteLevel = Integer.parseInt(args[2]);
+        long baseSeed = Long.parseLong(args[3]);
+        boolean forceCapture = Boolean.parseBoolean(args[4]);
+        int kingMoveRule = Integer.parseInt(args[5]);
+
+        // stdout carries only game records; anything printed by accident goes to stderr
+        GameRecordWriter out = new GameRecordWriter(new FileOutputStream(FileDescriptor.out));
+        System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true));
+        out.flush(); // The header, so the coordinator's reader can open
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+        String line;
+        while ((line = in.readLine()) != null && !line.equals("QUIT")) {
+            String[] parts = line.split(" ");
+            if (!parts[0].equals("BATCH")) continue;
+            int first = Integer.parseInt(parts[1]);
+            int count = Integer.parseInt(parts[2]);
+            GameRecord[] games = new GameRecord[count];
+            for (int i = 0; i < count; i++) {
+                games[i] = SelfPlay.playGame(forceCapture, kingMoveRule, redLevel, whiteLevel,
+                        SelfPlay.gameSeed(baseSeed, first + i));
+            }
+            for (GameRecord g : games) out.write(g);
+            out.flush();
+        }
+        out.close();
+    }
+}
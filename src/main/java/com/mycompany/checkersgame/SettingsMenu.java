@@ -15,7 +15,7 @@ public class SettingsMenu extends JFrame {
         
         setTitle("Mak Hos Pro - Settings");
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        setSize(800, 480); 
+        setSize(800, 520); 
         setLocationRelativeTo(null);
         setResizable(false);
 
@@ -27,8 +27,15 @@ public class SettingsMenu extends JFrame {
         tabbedPane.setFont(new Font("Segoe UI", Font.BOLD, 14));
         
         tabbedPane.addTab("🎨 Visual & Aids", createVisualSettingsPanel());
-        tabbedPane.addTab("🧠 AI & Rules", createRulesSettingsPanel());
-        tabbedPane.addTab("ℹ️ Other", createOtherSettingsPanel());
+        tabbedPane.addTab("🧠 AI & Rules", new JPanel());
+        tabbedPane.addTab("ℹ️ Other", new JPanel());
+        // The other tabs are built the first time they are opened (most visits only need the first)
+        tabbedPane.addChangeListener(e -> {
+            int i = tabbedPane.getSelectedIndex();
+            if (i > 0 && ((JPanel) tabbedPane.getComponentAt(i)).getComponentCount() == 0) {
+                tabbedPane.setComponentAt(i, i == 1 ? createRulesSettingsPanel() : createOtherSettingsPanel());
+            }
+        });
 
         mainPanel.add(tabbedPane, BorderLayout.CENTER);
         
@@ -46,6 +53,12 @@ public class SettingsMenu extends JFrame {
         bottomPanel.add(btnClose);
         
         btnClose.addActionListener(e -> dispose());
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                LocalStore.saveSettings(); // Kept for the next start (Save & Close or the window's X)
+            }
+        });
         mainPanel.add(bottomPanel, BorderLayout.SOUTH);
 
         add(mainPanel);
@@ -95,6 +108,8 @@ public class SettingsMenu extends JFrame {
 
         panel.add(createSectionTitle("Game Aids"));
         panel.add(createSettingPanel("Show Legal Moves:", createShowLegalMovesCheckbox(), "Highlights valid squares when a piece is selected."));
+        panel.add(createSettingPanel("Hint Mode:", createShowHintsCheckbox(), "On your turn: the suggested move and its score, pieces the AI can take, captures you must make."));
+        panel.add(createSettingPanel("Show AI Search Stats:", createShowSearchStatsCheckbox(), "Shows depth, nodes, speed and best line of the last AI search."));
         
         panel.add(Box.createVerticalGlue()); 
         return panel;
@@ -150,6 +165,36 @@ public class SettingsMenu extends JFrame {
     }
 
 
+    private JCheckBox createShowHintsCheckbox() {
+        JCheckBox cb = new JCheckBox();
+        cb.setSelected(CheckersBoard.showHints);
+        cb.addActionListener(e -> CheckersBoard.showHints = cb.isSelected());
+        return cb;
+    }
+
+    private JCheckBox createShowSearchStatsCheckbox() {
+        JCheckBox cb = new JCheckBox();
+        cb.setSelected(CheckersBoard.showSearchStats);
+        cb.addActionListener(e -> CheckersBoard.showSearchStats = cb.isSelected());
+        return cb;
+    }
+
+    private JCheckBox createPonderingCheckbox() {
+        JCheckBox cb = new JCheckBox();
+        cb.setSelected(CheckersBoard.pondering);
+        cb.addActionListener(e -> CheckersBoard.pondering = cb.isSelected());
+        return cb;
+    }
+
+    private JCheckBox createNeuralEvalCheckbox() {
+        JCheckBox cb = new JCheckBox();
+        cb.setSelected(CheckersBoard.neuralEval);
+        cb.setEnabled(NnueNetwork.getDefault() != null);
+        cb.addActionListener(e -> CheckersBoard.neuralEval = cb.isSelected());
+        return cb;
+    }
+
+
     // =========================================================
     // 2. AI & RULES SETTINGS TAB
     // =========================================================
@@ -161,6 +206,9 @@ public class SettingsMenu extends JFrame {
         
         panel.add(createSectionTitle("AI Reaction Speed"));
         panel.add(createSettingPanel("AI Speed (Delay in ms):", createAIDelaySlider(), "Higher value means AI thinks slower."));
+        panel.add(createSettingPanel("Game Clock:", createClockChooser(), "Minutes per side + seconds added after each move. The AI spends its own clock where the position needs it; running out of time loses."));
+        panel.add(createSettingPanel("AI Pondering:", createPonderingCheckbox(), "Strong AI levels (Hardcore and up) keep thinking while it is your turn, so it plays stronger in the same time."));
+        panel.add(createSettingPanel("Neural Evaluation:", createNeuralEvalCheckbox(), "Searching AI levels judge positions with a small trained network instead of counting pieces. Stronger, but each position costs more. Takes effect from the next game."));
         panel.add(Box.createRigidArea(new Dimension(0, 20)));
 
         panel.add(createSectionTitle("Game Rules Variation"));
@@ -185,6 +233,28 @@ public class SettingsMenu extends JFrame {
         return slider;
     }
 
+    // Minutes per side and increment in seconds; {0, 0} = no clock
+    private static final int[][] CLOCK_PRESETS = {{0, 0}, {1, 1}, {3, 2}, {5, 3}, {10, 5}, {15, 10}};
+
+    private JComboBox<String> createClockChooser() {
+        String[] names = {"Off", "1 min + 1 s", "3 min + 2 s", "5 min + 3 s", "10 min + 5 s", "15 min + 10 s"};
+        JComboBox<String> comboBox = new JComboBox<>(names);
+        comboBox.setSelectedIndex(0);
+        for (int i = 0; i < CLOCK_PRESETS.length; i++) {
+            if (CLOCK_PRESETS[i][0] == CheckersBoard.clockMinutes && CLOCK_PRESETS[i][1] == CheckersBoard.clockIncrement) {
+                comboBox.setSelectedIndex(i);
+            }
+        }
+        comboBox.setPreferredSize(new Dimension(250, 30));
+
+        comboBox.addActionListener(e -> {
+            int[] preset = CLOCK_PRESETS[comboBox.getSelectedIndex()];
+            CheckersBoard.clockMinutes = preset[0];
+            CheckersBoard.clockIncrement = preset[1];
+        });
+        return comboBox;
+    }
+
     private JCheckBox createForceCaptureCheckbox() {
         JCheckBox cb = new JCheckBox();
         cb.setSelected(CheckersBoard.forceCapture);
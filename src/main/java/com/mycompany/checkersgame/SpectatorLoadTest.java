@@ -0,0 +1,170 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SpectatorLoadTest.java
+ * Fan-out load for a GameServer: a few games (random-move player against level 1, so the
+ * AI costs nothing) each watched by many spectators, one virtual thread per connection.
+ * Every game waits until all its spectators are in, then plays with a pause between moves.
+ * Some spectators are slow on purpose (tiny receive buffer, a pause per line read): the
+ * server should let them skip to a new SNAPSHOT while everyone else keeps up.
+ * Reports the lines delivered per second and, for spectators that never had to skip, the
+ * delay from a player sending MOVE to a spectator reading it (both run in this process,
+ * so they share the clock).
+ *
+ * Usage: java SpectatorLoadTest [host] [port] [games] [spectatorsPerGame] [slowPercent] [moveDelayMs]
+ * Default: localhost 5555 4 500 5 5
+ */
+public class SpectatorLoadTest {
+
+    private static final int SLOW_READ_PAUSE_MS = 20;
+    private static final int SLOW_RECEIVE_BUFFER = 1024;
+
+    private static final AtomicLong linesRead = new AtomicLong();
+    private static final AtomicLong bytesRead = new AtomicLong();
+    private static final AtomicInteger fastSkipped = new AtomicInteger();
+    private static final AtomicInteger slowSkipped = new AtomicInteger();
+    private static final AtomicInteger failed = new AtomicInteger();
+    private static final ConcurrentLinkedQueue<long[]> lags = new ConcurrentLinkedQueue<>();
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int perGame = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+        int slowPercent = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+        long moveDelay = args.length > 5 ? Long.parseLong(args[5]) : 5;
+
+        long start = System.nanoTime();
+        try (ExecutorService spectators = Executors.newVirtualThreadPerTaskExecutor();
+             ExecutorService players = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int g = 0; g < games; g++) {
+                players.submit(() -> {
+                    try {
+                        hostGame(host, port, perGame, slowPercent, moveDelay, spectators);
+                    } catch (IOException | InterruptedException | RuntimeException e) {
+                        System.err.println("Game failed: " + e);
+                    }
+                });
+            }
+        } // close() waits for the players, then the spectators
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        int slow = games * perGame * slowPercent / 100;
+        System.out.println("Spectators: " + games * perGame + " (" + slow + " slow), failed: " + failed.get()
+                + ", wall time: " + elapsedMs + " ms");
+        System.out.printf("Delivered %d lines, %.1f MB (%d lines/s)%n",
+                linesRead.get(), bytesRead.get() / 1e6, linesRead.get() * 1000 / elapsedMs);
+        System.out.println("Skipped to a snapshot: fast " + fastSkipped.get() + ", slow " + slowSkipped.get());
+        long[] all = lags.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        if (all.length > 0) {
+            System.out.println("MOVE to spectator us  p50=" + percentile(all, 50) + "  p99=" + percentile(all, 99)
+                    + "  max=" + all[all.length - 1]);
+        }
+    }
+
+    // One game: start it, let its spectators in, then play random moves until it ends
+    private static void hostGame(String host, int port, int perGame, int slowPercent, long moveDelay,
+                                 ExecutorService spectators) throws IOException, InterruptedException {
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            socket.setTcpNoDelay(true);
+            in.readLine(); // HELLO
+            out.println("NEW 1");
+            String ok = in.readLine();
+            if (ok == null || !ok.startsWith("OK")) throw new IOException("NEW failed: " + ok);
+            int id = Integer.parseInt(ok.substring(ok.lastIndexOf(' ') + 1));
+            readUntilTurn(in);
+
+            AtomicLongArray sendTimes = new AtomicLongArray(GameSession.MAX_PLIES);
+            CountDownLatch joined = new CountDownLatch(perGame);
+            for (int i = 0; i < perGame; i++) {
+                boolean slow = i < perGame * slowPercent / 100;
+                spectators.submit(() -> spectate(host, port, id, slow, joined, sendTimes));
+            }
+            joined.await();
+
+            String reply = "TURN";
+            for (int k = 0; reply.startsWith("TURN"); k++) {
+                out.println("MOVES");
+                String movesLine = in.readLine();
+                if (movesLine == null || movesLine.length() <= 6) break;
+                String[] moves = movesLine.substring(6).split(";");
+                if (moveDelay > 0) Thread.sleep(moveDelay);
+                if (k < sendTimes.length()) sendTimes.set(k, System.nanoTime());
+                out.println("MOVE " + moves[ThreadLocalRandom.current().nextInt(moves.length)]);
+                reply = readUntilTurn(in);
+            }
+            out.println("QUIT");
+        }
+    }
+
+    // One spectator: reads the feed to the end; timing the k-th player move if it never skipped
+    private static void spectate(String host, int port, int id, boolean slow, CountDownLatch joined, AtomicLongArray sendTimes) {
+        boolean counted = false;
+        try (Socket socket = new Socket()) {
+            if (slow) socket.setReceiveBufferSize(SLOW_RECEIVE_BUFFER); // Before connecting, so the window stays small
+            socket.connect(new InetSocketAddress(host, port));
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            in.readLine(); // HELLO
+            out.println("SPECTATE " + id);
+            String ok = in.readLine();
+            joined.countDown();
+            counted = true;
+            if (ok == null || !ok.startsWith("OK")) throw new IOException("SPECTATE failed: " + ok);
+
+            long[] lag = new long[sendTimes.length()];
+            int redMoves = 0, snapshots = 0;
+            String line;
+            while ((line = in.readLine()) != null && !line.equals("END")) {
+                long now = System.nanoTime();
+                linesRead.incrementAndGet();
+                bytesRead.addAndGet(line.length() + 1);
+                if (line.startsWith("SNAPSHOT")) snapshots++;
+                else if (line.startsWith("MOVE RED") && redMoves < lag.length) {
+                    lag[redMoves] = (now - sendTimes.get(redMoves)) / 1000;
+                    redMoves++;
+                }
+                if (slow) Thread.sleep(SLOW_READ_PAUSE_MS);
+            }
+            if (snapshots > 1) {
+                (slow ? slowSkipped : fastSkipped).incrementAndGet();
+            } else if (!slow) {
+                lags.add(Arrays.copyOf(lag, redMoves));
+            }
+        } catch (IOException | InterruptedException e) {
+            failed.incrementAndGet();
+        } finally {
+            if (!counted) joined.countDown();
+        }
+    }
+
+    private static String readUntilTurn(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.startsWith("TURN") || line.startsWith("GAMEOVER") || line.startsWith("ERR")) return line;
+        }
+        throw new IOException("connection closed");
+    }
+
+    private static long percentile(long[] sorted, int p) {
+        int idx = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(idx, sorted.length - 1))];
+    }
+}
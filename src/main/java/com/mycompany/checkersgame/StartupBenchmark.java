@@ -0,0 +1,153 @@
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.SwingUtilities;
+
+/**
+ * StartupBenchmark.java
+ * Measures cold start: launches fresh JVMs on this class path and times, from the launch,
+ * when each reaches "main" (JVM up), "engine" (first level-6 AI move found), "menu" (MainMenu
+ * built) and "board" (a game window's board built). The last two need a display and are
+ * skipped on a headless machine. Each configuration runs several times; medians are printed.
+ * Configurations: the default JVM, C1 only (-XX:TieredStopAtLevel=1) and, if an AOT cache or
+ * CDS archive is given (or target/makhos.aot exists), the same with the cache.
+ *
+ * The cache comes from a training run of this class (--train), see the appcds profile in pom.xml:
+ *   JDK 25+: java -XX:AOTCacheOutput=target/makhos.aot -cp <jar> StartupBenchmark --train
+ *   older:   java -XX:ArchiveClassesAtExit=target/makhos.jsa -cp <jar> StartupBenchmark --train
+ * then start the game with -XX:AOTCache=target/makhos.aot (or -XX:SharedArchiveFile=target/makhos.jsa).
+ *
+ * Usage: java StartupBenchmark [runs] [cacheFile]      (default 5 runs)
+ *        java StartupBenchmark --probe | --train       (one child run; used by the above and by the build)
+ */
+public class StartupBenchmark {
+
+    private static final String[] STEPS = {"main", "engine", "menu", "board"};
+    private static final Path DEFAULT_CACHE = Path.of("target", "makhos.aot");
+    private static final long TRAIN_MOVE_MS = 200;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--probe")) {
+            probe(false);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--train")) {
+            probe(true);
+            return;
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        Path cache = args.length > 1 ? Path.of(args[1]) : Files.exists(DEFAULT_CACHE) ? DEFAULT_CACHE : null;
+
+        Map<String, List<String>> configs = new LinkedHashMap<>();
+        configs.put("default", List.of());
+        configs.put("C1 only", List.of("-XX:TieredStopAtLevel=1"));
+        if (cache != null) {
+            String flag = cache.toString().endsWith(".jsa") ? "-XX:SharedArchiveFile=" : "-XX:AOTCache=";
+            configs.put("cache " + cache.getFileName(), List.of(flag + cache));
+        }
+
+        System.out.printf("%-20s %10s %10s %10s %10s   (median of %d runs, ms since launch)%n",
+                "config", STEPS[0], STEPS[1], STEPS[2], STEPS[3], runs);
+        for (Map.Entry<String, List<String>> e : configs.entrySet()) {
+            long[][] times = new long[STEPS.length][runs];
+            for (int i = 0; i < runs; i++) {
+                long[] t = launch(e.getValue());
+                for (int s = 0; s < STEPS.length; s++) times[s][i] = t[s];
+            }
+            System.out.printf("%-20s", e.getKey());
+            for (long[] t : times) System.out.printf(" %10s", median(t));
+            System.out.println();
+        }
+    }
+
+    // One child JVM; returns the ms from launch to each step's line (-1 if it never came)
+    private static long[] launch(List<String> jvmFlags) throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.addAll(jvmFlags);
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(StartupBenchmark.class.getName());
+        cmd.add("--probe");
+
+        long[] times = new long[STEPS.length];
+        Arrays.fill(times, -1);
+        long start = System.nanoTime();
+        Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                int s = Arrays.asList(STEPS).indexOf(line.trim());
+                if (s >= 0) times[s] = (System.nanoTime() - start) / 1_000_000;
+                else System.err.println("  child: " + line);
+            }
+        }
+        p.waitFor();
+        return times;
+    }
+
+    private static String median(long[] t) {
+        long[] s = t.clone();
+        Arrays.sort(s);
+        long m = s[s.length / 2];
+        return m < 0 ? "-" : Long.toString(m);
+    }
+
+    // --- Child side ---
+
+    // Prints each step as it is reached; training also runs the rest of what a session touches
+    private static void probe(boolean training) throws Exception {
+        System.out.println("main");
+        System.out.flush();
+
+        GameEngine engine = new GameEngine(true, 1);
+        engine.findMoveForLevel(engine.getBoard(), Piece.WHITE, AiLevel.HARDCORE);
+        System.out.println("engine");
+        System.out.flush();
+
+        if (training) train();
+
+        if (!GraphicsEnvironment.isHeadless()) {
+            SwingUtilities.invokeAndWait(() -> {
+                MainMenu menu = new MainMenu();
+                menu.pack();
+                System.out.println("menu");
+                System.out.flush();
+                CheckersBoard board = new CheckersBoard(AiLevel.HARDCORE);
+                board.doLayout();
+                System.out.println("board");
+                System.out.flush();
+                if (training) new SettingsMenu(menu).pack();
+                menu.dispose();
+            });
+        }
+        System.exit(0); // Swing threads would keep the JVM alive
+    }
+
+    // The engine paths a typical session uses, so the training run records their classes
+    private static void train() {
+        EngineWarmup.run();
+        for (AiLevel level : AiLevel.all()) {
+            // Same kind of search as the level, but never more than a moment of it
+            AiLevel brief = new AiLevel(level.getLevel(), level.getName(), level.getKind(), level.getDepth(),
+                    level.getNodeLimit(), Math.min(level.getTimeMillis(), TRAIN_MOVE_MS), level.getRootNoise());
+            GameEngine engine = new GameEngine(true, 1);
+            engine.setSeed(level.getLevel());
+            engine.findMoveForLevel(engine.getBoard(), Piece.RED, brief);
+        }
+        GameClock clock = new GameClock(60_000, 1000);
+        GameEngine engine = new GameEngine(Variant.MAK_HOS_SHORT, true);
+        engine.findMoveForLevel(engine.getBoard(), Piece.RED, AiLevel.of(8), clock.newTimeManager(Piece.RED));
+        Notation.toFen(Position.of(engine, Piece.RED));
+        LocalStore.getDirectory();
+    }
+}
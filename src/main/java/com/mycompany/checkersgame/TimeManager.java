@@ -0,0 +1,89 @@
+/**
+ * TimeManager.java
+ * Decides how long one move may take when the game is played on a clock (see GameClock).
+ * - A soft budget from the time left, the increment and the move number (early moves get
+ *   a smaller share of the clock than a fixed split would give, the middle game a larger one).
+ * - A hard budget the search never passes (a few soft budgets, at most a part of the clock).
+ * - After every finished iteration Search asks stopAfterIteration(): the soft budget grows
+ *   while the best move keeps changing or the score drops, and shrinks while both stay put;
+ *   a new iteration is only started if it can probably finish within that budget.
+ * A position with a single legal move never gets here: Search answers it at once.
+ * The clock starts when the manager is created, so queueing (SearchScheduler) counts too.
+ */
+public class TimeManager {
+
+    // Moves still expected in a game at move 1; never plan for fewer than MIN_MOVES_LEFT
+    private static final int EXPECTED_MOVES = 40;
+    private static final int MIN_MOVES_LEFT = 12;
+
+    // Hard budget: at most this many soft budgets, and at most this share of the time left
+    private static final double MAX_SOFT_FACTOR = 4.0;
+    private static final double MAX_SHARE = 0.3;
+
+    // Kept back for the move to reach the board (and the GUI to repaint)
+    private static final long OVERHEAD_MS = 30;
+
+    // The next iteration costs about as much as all earlier ones together (or more), so one is
+    // only started while less than this part of the budget has gone
+    private static final double START_NEXT_SHARE = 0.5;
+
+    // Score drops (a man is 10) that count as trouble, and how much more time they buy
+    private static final int SMALL_DROP = 5;
+    private static final int BIG_DROP = 15;
+
+    private final long startNanos;
+    private final long softNanos;
+    private final long hardNanos;
+
+    private int lastMove = -1;
+    private int lastScore;
+    private double instability;  // Decaying count of best-move changes
+    private int stableIterations;
+
+    /** Budgets for a move with remainingMillis on the clock, incrementMillis per move, at moveNumber (from 1). */
+    public TimeManager(long remainingMillis, long incrementMillis, int moveNumber) {
+        this(remainingMillis, incrementMillis, moveNumber, 0);
+    }
+
+    /** Same, when the time control says how many moves the time is for (movesToGo, 0 = unknown). */
+    public TimeManager(long remainingMillis, long incrementMillis, int moveNumber, int movesToGo) {
+        startNanos = System.nanoTime();
+        long usable = Math.max(0, remainingMillis - OVERHEAD_MS);
+        int movesLeft = movesToGo > 0 ? movesToGo : Math.max(MIN_MOVES_LEFT, EXPECTED_MOVES - moveNumber);
+        long soft = Math.min(usable, usable / movesLeft + incrementMillis * 3 / 4);
+        long hard = Math.min(usable, Math.min((long) (soft * MAX_SOFT_FACTOR), Math.max(soft, (long) (usable * MAX_SHARE))));
+        softNanos = Math.max(1, soft) * 1_000_000L;
+        hardNanos = Math.max(1, hard) * 1_000_000L;
+    }
+
+    public long getSoftMillis() { return softNanos / 1_000_000L; }
+    public long getHardMillis() { return hardNanos / 1_000_000L; }
+
+    /** System.nanoTime() past which the search must stop. */
+    public long getDeadline() { return startNanos + hardNanos; }
+
+    public long getElapsedMillis() { return (System.nanoTime() - startNanos) / 1_000_000L; }
+
+    /**
+     * Called after each finished iteration with its best move and score (for the side to move);
+     * returns true if the search should stop and play that move.
+     */
+    public boolean stopAfterIteration(int depth, int bestMove, int score) {
+        if (Math.abs(score) >= Search.WIN_SCORE - Search.MAX_PLY) return true; // Decided: deeper will not change it
+
+        int drop = depth > 1 ? lastScore - score : 0;
+        boolean changed = depth > 1 && bestMove != lastMove;
+        instability = instability * 0.5 + (changed ? 1 : 0);
+        stableIterations = changed || drop >= SMALL_DROP ? 0 : stableIterations + 1;
+        lastMove = bestMove;
+        lastScore = score;
+
+        double factor = 1 + instability;
+        if (drop >= BIG_DROP) factor *= 1.5;
+        else if (drop >= SMALL_DROP) factor *= 1.2;
+        if (stableIterations >= 4) factor *= 0.6;
+
+        double budget = Math.min(hardNanos, softNanos * factor);
+        return System.nanoTime() - startNanos >= budget * START_NEXT_SHARE;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * TranspositionTable.java
+ * Fixed-size hash table of search results, keyed by Zobrist hashes of (board, side to move)
+ * from the game's Variant (each variant has its own keys).
+ * One entry per slot, two longs each; the stored key is XORed with the data so a torn
+ * write from another thread just looks like a miss. That lets a background search
+ * (pondering) and the normal AI search share one table without locks.
+ * A table belongs to one GameEngine, so the rules are the same for every entry.
+ */
+public class TranspositionTable {
+
+    // Bound types
+    public static final int EXACT = 0;
+    public static final int LOWER = 1; // Score is at least this (the search failed high)
+    public static final int UPPER = 2; // Score is at most this (the search failed low)
+
+    // --- Entry layout (data word) ---
+    // bits 0-17 move (MoveList packing), 18-25 depth, 26-27 bound, 28 valid, 32-63 score
+    private static final long VALID = 1L << 28;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    /** Creates a table of about sizeMb megabytes (rounded down to a power of two entries). */
+    public TranspositionTable(int sizeMb) {
+        int entries = Integer.highestOneBit(Math.max(1, sizeMb) * (1 << 20) / 16);
+        keys = new long[entries];
+        data = new long[entries];
+        mask = entries - 1;
+    }
+
+    /** Returns the entry's data word for key, or 0 if it is not in the table. */
+    public long probe(long key) {
+        int i = (int) key & mask;
+        long d = data[i];
+        return (keys[i] ^ d) == key && (d & VALID) != 0 ? d : 0;
+    }
+
+    /** Stores a result; a deeper entry for the same position is not overwritten by a shallower one. */
+    public void store(long key, int move, int depth, int bound, int score) {
+        int i = (int) key & mask;
+        long old = data[i];
+        if ((keys[i] ^ old) == key && depth(old) > depth) return;
+        long d = (move & 0x3FFFFL) | ((long) depth << 18) | ((long) bound << 26) | VALID | ((long) score << 32);
+        data[i] = d;
+        keys[i] = key ^ d;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(keys, 0);
+        java.util.Arrays.fill(data, 0);
+    }
+
+    public static int move(long d) { return (int) (d & 0x3FFFF); }
+    public static int depth(long d) { return (int) (d >>> 18) & 0xFF; }
+    public static int bound(long d) { return (int) (d >>> 26) & 3; }
+    public static int score(long d) { return (int) (d >> 32); }
+}
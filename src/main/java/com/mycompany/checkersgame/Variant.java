@@ -0,0 +1,198 @@
+import java.util.SplittableRandom;
+
+/**
+ * Variant.java
+ * The rules of one draughts variant, for GameEngine:
+ * - board size and how many rows of men each side starts with,
+ * - whether men may capture backwards and whether kings fly (move and capture along a whole
+ *   diagonal) or only step.
+ * Each variant builds its own tables once, when the class loads: the squares a man of each
+ * color and a king may reach from every square (in row-major order, the order GameEngine
+ * has always generated moves in) and the Zobrist keys for hashing its positions. So move
+ * generation just walks a short list, and a variant never pays for another's options.
+ *
+ * A move is still one step or one jump: this engine has no multi-jump capture sequences,
+ * so only the two Mak Hos variants are offered (values(), byKey, byId, and through them the
+ * settings, the server, the engine protocol and FEN/PDN). RUSSIAN and INTERNATIONAL have
+ * those games' boards, openings and men's backward captures, but neither their capture
+ * sequences nor International's majority capture, so they are not those games yet; they are
+ * kept for the engine's own tests of other board sizes (see all()) and are offered nowhere.
+ * The bundled evaluation network only knows the 8x8 board.
+ */
+public final class Variant {
+
+    //                                           id  key              name                     size rows backCapture flying
+    public static final Variant MAK_HOS       = new Variant(1, "makhos",       "Mak Hos",               8,  2, false, true);
+    public static final Variant MAK_HOS_SHORT = new Variant(2, "makhos-short", "Mak Hos (short king)",  8,  2, false, false);
+    // Not offered: no capture sequences yet (see above)
+    static final Variant RUSSIAN              = new Variant(3, "russian",      "Russian",               8,  3, true,  true);
+    static final Variant INTERNATIONAL        = new Variant(4, "international", "International (10x10)", 10, 4, true,  true);
+
+    private static final Variant[] OFFERED = {MAK_HOS, MAK_HOS_SHORT};
+    private static final Variant[] ALL = {MAK_HOS, MAK_HOS_SHORT, RUSSIAN, INTERNATIONAL};
+
+    private final int id;
+    private final String key;
+    private final String name;
+    private final int size;
+    private final int menRows;
+    private final boolean menCaptureBackward;
+    private final boolean flyingKings;
+
+    // Reachable squares per from-square (r * size + c), packed as (row | col << 4) like MoveList
+    private final int[][] redManTargets;
+    private final int[][] whiteManTargets;
+    private final int[][] kingTargets;
+
+    // Zobrist keys: [RED man, RED king, WHITE man, WHITE king][r * size + c]
+    private final long[][] pieceKeys;
+    private final long sideKey; // XORed in when WHITE is to move
+
+    private Variant(int id, String key, String name, int size, int menRows,
+                    boolean menCaptureBackward, boolean flyingKings) {
+        this.id = id;
+        this.key = key;
+        this.name = name;
+        this.size = size;
+        this.menRows = menRows;
+        this.menCaptureBackward = menCaptureBackward;
+        this.flyingKings = flyingKings;
+
+        redManTargets = buildTargets(Piece.RED, false);
+        whiteManTargets = buildTargets(Piece.WHITE, false);
+        kingTargets = buildTargets(0, true);
+
+        // Fixed seed per variant: hashes are stable across runs and differ between variants
+        SplittableRandom rnd = new SplittableRandom(0x4D414B484F53L + id);
+        pieceKeys = new long[4][size * size];
+        for (long[] keys : pieceKeys) {
+            for (int i = 0; i < keys.length; i++) keys[i] = rnd.nextLong();
+        }
+        sideKey = rnd.nextLong();
+    }
+
+    // Targets in row-major order: farthest row above first, then down; left before right in a row
+    private int[][] buildTargets(int color, boolean king) {
+        int[][] table = new int[size * size][];
+        int[] buf = new int[4 * size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int n = 0;
+                if ((r + c) % 2 != 0) {
+                    int maxStep = king && flyingKings ? size - 1 : 2;
+                    for (int tr = Math.max(0, r - maxStep); tr <= Math.min(size - 1, r + maxStep); tr++) {
+                        int k = Math.abs(tr - r);
+                        if (k == 0 || (!king && !manMayReach(color, tr - r))) continue;
+                        if (c - k >= 0) buf[n++] = tr | (c - k) << 4;
+                        if (c + k < size) buf[n++] = tr | (c + k) << 4;
+                    }
+                }
+                table[r * size + c] = java.util.Arrays.copyOf(buf, n);
+            }
+        }
+        return table;
+    }
+
+    // A man steps forward only; it jumps forward, and backward too where the variant allows
+    private boolean manMayReach(int color, int dr) {
+        boolean forward = color == Piece.RED ? dr < 0 : dr > 0;
+        return forward || (Math.abs(dr) == 2 && menCaptureBackward);
+    }
+
+    // --- Lookup ---
+
+    /** The variants players can choose. */
+    public static Variant[] values() { return OFFERED.clone(); }
+
+    /** Every rule set here, the ones not offered too. */
+    static Variant[] all() { return ALL.clone(); }
+
+    /** The offered variant with this key ("makhos" or "makhos-short"), or null. */
+    public static Variant byKey(String key) {
+        for (Variant v : OFFERED) {
+            if (v.key.equalsIgnoreCase(key)) return v;
+        }
+        return null;
+    }
+
+    /** The offered variant with this id (as game records store it), or Mak Hos. */
+    public static Variant byId(int id) {
+        for (Variant v : OFFERED) {
+            if (v.id == id) return v;
+        }
+        return MAK_HOS;
+    }
+
+    /** Mak Hos with the old kingMoveRule switch (1 = flying king, 2 = short king). */
+    public static Variant makHos(int kingMoveRule) {
+        return kingMoveRule == 2 ? MAK_HOS_SHORT : MAK_HOS;
+    }
+
+    public int getId() { return id; }
+    public String getKey() { return key; }
+    public String getName() { return name; }
+    public int getSize() { return size; }
+    public int getMenRows() { return menRows; }
+    public boolean isMenCaptureBackward() { return menCaptureBackward; }
+    public boolean hasFlyingKings() { return flyingKings; }
+
+    /** 1 with flying kings, 2 without: the kingMoveRule value the rest of the code knows. */
+    public int getKingMoveRule() { return flyingKings ? 1 : 2; }
+
+    /** The row where color's men are crowned. */
+    public int promotionRow(int color) {
+        return color == Piece.RED ? 0 : size - 1;
+    }
+
+    /** Squares p could move to from (r, c) on an empty board, packed (row | col << 4). */
+    public int[] targets(Piece p, int r, int c) {
+        int sq = r * size + c;
+        if (p.isKing()) return kingTargets[sq];
+        return p.getColor() == Piece.RED ? redManTargets[sq] : whiteManTargets[sq];
+    }
+
+    // --- Boards ---
+
+    public Piece[][] newBoard() {
+        return new Piece[size][size];
+    }
+
+    /** The starting position: menRows rows of men on the dark squares at each end, WHITE (AI) on top. */
+    public Piece[][] initialBoard() {
+        Piece[][] b = newBoard();
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if ((r + c) % 2 != 0) {
+                    if (r < menRows) b[r][c] = new Piece(Piece.WHITE);
+                    else if (r >= size - menRows) b[r][c] = new Piece(Piece.RED);
+                }
+            }
+        }
+        return b;
+    }
+
+    // --- Hashing ---
+
+    public long pieceKey(Piece p, int r, int c) {
+        int kind = (p.getColor() == Piece.RED ? 0 : 2) + (p.isKing() ? 1 : 0);
+        return pieceKeys[kind][r * size + c];
+    }
+
+    public long getSideKey() { return sideKey; }
+
+    /** Full Zobrist hash of a position; the search updates it incrementally from here. */
+    public long hash(Piece[][] b, int sideToMove) {
+        long h = sideToMove == Piece.WHITE ? sideKey : 0;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (b[r][c] != null) h ^= pieceKey(b[r][c], r, c);
+            }
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
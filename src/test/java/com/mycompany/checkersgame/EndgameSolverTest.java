@@ -0,0 +1,146 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * EndgameSolverTest.java
+ * Checks EndgameSolver against brute force on random endings of 2 and 3 pieces, in every
+ * rule set (Variant.all(), the ones not offered too): a plain alpha-beta search over the same end rule (GameEngine.getWinner's) must find
+ * every win or loss the solver reports within HORIZON plies at exactly its distance, and
+ * nothing decided within the horizon where the solver reports a draw or a longer result.
+ * The move the solver plays must keep its value. Also: probe() answers from the background
+ * analysis without waiting, another game with the same rules reuses that analysis, and hopeless
+ * material is given up on without being enumerated.
+ */
+public class EndgameSolverTest {
+
+    private static final int HORIZON = 7;
+    private static final int POSITIONS = 20; // Per variant and piece count
+    private static final int DECIDED = 10_000; // Brute-force score of a win in 0 plies
+
+    @Test
+    void matchesBruteForce() {
+        SplittableRandom random = new SplittableRandom(50);
+        int decided = 0;
+        for (Variant variant : Variant.all()) {
+            for (int pieces = 2; pieces <= 3; pieces++) {
+                for (int n = 0; n < POSITIONS; n++) {
+                    Piece[][] b = randomEnding(variant, pieces, random);
+                    int color = random.nextBoolean() ? Piece.RED : Piece.WHITE;
+                    GameEngine engine = new GameEngine(variant, n % 2 == 0, b);
+                    EndgameSolver.Result r = engine.getEndgameSolver().solve(b, color);
+                    String where = variant.getKey() + " " + Notation.toFen(Position.of(engine, color));
+                    assertNotNull(r, where + ": not solved");
+
+                    int expected = bruteForce(engine, b, color, HORIZON, 0, -DECIDED - 1, DECIDED + 1);
+                    if (r.getValue() != EndgameSolver.DRAW && r.getDistance() <= HORIZON) {
+                        int score = DECIDED - r.getDistance();
+                        assertEquals(r.getValue() == EndgameSolver.WIN ? score : -score, expected, where);
+                        decided++;
+                    } else {
+                        assertEquals(0, expected, where + ": solver says " + r.getValue() + " in " + r.getDistance());
+                    }
+                    assertMoveKeepsValue(engine, b, color, r, where);
+                }
+            }
+        }
+        assertTrue(decided > 40, "too few decided endings: " + decided);
+    }
+
+    @Test
+    void probeDoesNotWaitAndTablesAreShared() throws InterruptedException {
+        Piece[][] b = Variant.MAK_HOS.newBoard(); // Four pieces: no other test works this material out
+        b[0][1] = king(Piece.WHITE);
+        b[7][0] = king(Piece.RED);
+        b[5][2] = king(Piece.RED);
+        b[7][6] = king(Piece.RED);
+        GameEngine engine = new GameEngine(Variant.MAK_HOS, true, b);
+        EndgameSolver solver = engine.getEndgameSolver();
+        assertNull(solver.probe(b, Piece.RED)); // Queued, not worked out yet
+
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (solver.solvedValue(b, Piece.RED) < 0 && System.nanoTime() < deadline) Thread.sleep(10);
+        EndgameSolver.Result r = solver.probe(b, Piece.RED);
+        assertNotNull(r, "the background analysis never finished");
+        EndgameSolver.Result other = new GameEngine(Variant.MAK_HOS, true, b).getEndgameSolver().probe(b, Piece.RED);
+        assertNotNull(other, "another game worked the same ending out again");
+        assertEquals(r.getValue(), other.getValue());
+        assertEquals(r.getDistance(), other.getDistance());
+    }
+
+    @Test
+    void hopelessMaterialIsGivenUp() {
+        Piece[][] b = Variant.INTERNATIONAL.newBoard(); // Four kings on 10x10: far more than MAX_STATES
+        b[0][1] = king(Piece.WHITE);
+        b[0][3] = king(Piece.WHITE);
+        b[9][0] = king(Piece.RED);
+        b[9][2] = king(Piece.RED);
+        GameEngine engine = new GameEngine(Variant.INTERNATIONAL, true, b);
+        assertNull(engine.getEndgameSolver().solve(b, Piece.RED));
+        assertNull(engine.getEndgameSolver().probe(b, Piece.RED));
+        assertEquals(-1, engine.getEndgameSolver().solvedValue(b, Piece.RED));
+    }
+
+    // Negamax over the same end rule as the solver: +(DECIDED - ply) if the side to move has won
+    // (the other side has no move, RED checked first), 0 if nothing is decided within depth
+    private static int bruteForce(GameEngine engine, Piece[][] b, int color, int depth, int ply, int alpha, int beta) {
+        int winner = !engine.hasAnyLegalMove(b, Piece.RED) ? Piece.WHITE : !engine.hasAnyLegalMove(b, Piece.WHITE) ? Piece.RED : 0;
+        if (winner != 0) return winner == color ? DECIDED - ply : -(DECIDED - ply);
+        if (depth == 0) return 0;
+        MoveList moves = new MoveList();
+        engine.generateMoves(b, color, moves);
+        int best = -DECIDED - 1;
+        for (int i = 0; i < moves.size(); i++) {
+            int m = moves.get(i);
+            Piece[][] child = engine.cloneBoard(b);
+            engine.executeMove(child, MoveList.fromRow(m), MoveList.fromCol(m), MoveList.toRow(m), MoveList.toCol(m));
+            best = Math.max(best, -bruteForce(engine, child, opponent(color), depth - 1, ply + 1, -beta, -Math.max(alpha, best)));
+            if (best >= beta) break;
+        }
+        return best;
+    }
+
+    private static void assertMoveKeepsValue(GameEngine engine, Piece[][] b, int color, EndgameSolver.Result r, String where) {
+        if (r.getMove() == null) return; // The game is over here
+        int[] m = r.getMove();
+        Piece[][] child = engine.cloneBoard(b);
+        engine.executeMove(child, m[0], m[1], m[2], m[3]);
+        EndgameSolver.Result next = engine.getEndgameSolver().solve(child, opponent(color));
+        int expected = r.getValue() == EndgameSolver.WIN ? EndgameSolver.LOSS
+                : r.getValue() == EndgameSolver.LOSS ? EndgameSolver.WIN : EndgameSolver.DRAW;
+        assertEquals(expected, next.getValue(), where + ": value after the solver's move");
+        if (expected != EndgameSolver.DRAW) assertEquals(r.getDistance() - 1, next.getDistance(), where + ": distance after the solver's move");
+    }
+
+    // pieces men and kings on distinct dark squares, each side at least one; no man on its crowning row
+    private static Piece[][] randomEnding(Variant variant, int pieces, SplittableRandom random) {
+        int size = variant.getSize();
+        Piece[][] b = variant.newBoard();
+        for (int i = 0; i < pieces; i++) {
+            int color = i == 0 ? Piece.RED : i == 1 ? Piece.WHITE : random.nextBoolean() ? Piece.RED : Piece.WHITE;
+            boolean isKing = random.nextInt(3) == 0;
+            int r, c;
+            do {
+                r = random.nextInt(size);
+                c = random.nextInt(size);
+            } while ((r + c) % 2 == 0 || b[r][c] != null || (!isKing && r == variant.promotionRow(color)));
+            b[r][c] = isKing ? king(color) : new Piece(color);
+        }
+        return b;
+    }
+
+    private static Piece king(int color) {
+        Piece p = new Piece(color);
+        p.promote();
+        return p;
+    }
+
+    private static int opponent(int color) {
+        return color == Piece.RED ? Piece.WHITE : Piece.RED;
+    }
+}
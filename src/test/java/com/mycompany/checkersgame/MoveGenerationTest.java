@@ -0,0 +1,180 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * MoveGenerationTest.java
+ * Checks the packed move generator (GameEngine.generateMoves into a MoveList):
+ * - perft counts (leaf positions after n plies from the opening) for every variant, both
+ *   with and without forced capture, so a change to generation or executeMove shows up;
+ * - on positions from random games, the same moves in the same order as the original
+ *   CheckersBoard rules (every square tried, kept here as the reference), for both Mak Hos
+ *   king rules, and the CAPTURE flags and hasAnyLegalMove agreeing with them.
+ */
+public class MoveGenerationTest {
+
+    private static final int RANDOM_GAMES = 200;
+    private static final int MAX_GAME_PLIES = 120;
+
+    @Test
+    void perftMakHos() {
+        long[] forced = {7, 49, 392, 3136, 26592, 218695};
+        long[] free = {7, 49, 392, 3136, 27210, 235633};
+        assertPerft(Variant.MAK_HOS, true, forced);
+        assertPerft(Variant.MAK_HOS, false, free);
+        assertPerft(Variant.MAK_HOS_SHORT, true, forced); // No king can appear this early
+        assertPerft(Variant.MAK_HOS_SHORT, false, free);
+    }
+
+    @Test
+    void perftRussian() {
+        assertPerft(Variant.RUSSIAN, true, new long[] {7, 49, 302, 1469, 7350, 36644});
+        assertPerft(Variant.RUSSIAN, false, new long[] {7, 49, 379, 2872, 23611, 189661});
+    }
+
+    @Test
+    void perftInternational() {
+        assertPerft(Variant.INTERNATIONAL, true, new long[] {9, 81, 658, 4265, 26860});
+        assertPerft(Variant.INTERNATIONAL, false, new long[] {9, 81, 793, 7654, 79051});
+    }
+
+    @Test
+    void sameMovesAsTheOriginalRules() {
+        SplittableRandom random = new SplittableRandom(34);
+        int positions = 0;
+        for (int game = 0; game < RANDOM_GAMES; game++) {
+            int kingMoveRule = 1 + game % 2;
+            boolean forceCapture = game % 4 < 2;
+            GameEngine engine = new GameEngine(forceCapture, kingMoveRule);
+            Piece[][] b = engine.getBoard();
+            int color = Piece.RED;
+            for (int ply = 0; ply < MAX_GAME_PLIES; ply++) {
+                List<int[]> expected = referenceMoves(b, color, forceCapture, kingMoveRule);
+                MoveList moves = new MoveList();
+                engine.generateMoves(b, color, moves);
+                String where = "game " + game + " ply " + ply;
+                assertEquals(expected.size(), moves.size(), where + ": move count");
+                for (int i = 0; i < moves.size(); i++) {
+                    int m = moves.get(i);
+                    int[] e = expected.get(i);
+                    assertEquals(squares(MoveList.pack(e[0], e[1], e[2], e[3])), squares(m), where + ": move " + i);
+                    assertEquals(jumpsAPiece(b, e), MoveList.isCapture(m), where + ": capture flag of move " + i);
+                }
+                assertEquals(!expected.isEmpty(), engine.hasAnyLegalMove(b, color), where + ": hasAnyLegalMove");
+                positions++;
+                if (expected.isEmpty()) break;
+
+                int[] m = expected.get(random.nextInt(expected.size()));
+                engine.executeMove(b, m[0], m[1], m[2], m[3]);
+                color = color == Piece.RED ? Piece.WHITE : Piece.RED;
+            }
+        }
+        assertTrue(positions > RANDOM_GAMES * 20, "too few positions checked: " + positions);
+    }
+
+    @Test
+    void packedMovesRoundTrip() {
+        for (int r1 = 0; r1 < 10; r1++) {
+            for (int c1 = 0; c1 < 10; c1++) {
+                int m = MoveList.pack(r1, c1, 9 - r1, 9 - c1);
+                assertEquals(r1, MoveList.fromRow(m));
+                assertEquals(c1, MoveList.fromCol(m));
+                assertEquals(9 - r1, MoveList.toRow(m));
+                assertEquals(9 - c1, MoveList.toCol(m));
+            }
+        }
+    }
+
+    private static void assertPerft(Variant variant, boolean forceCapture, long[] expected) {
+        GameEngine engine = new GameEngine(variant, forceCapture);
+        for (int depth = 1; depth <= expected.length; depth++) {
+            assertEquals(expected[depth - 1], perft(engine, engine.getBoard(), Piece.RED, depth),
+                    variant.getKey() + (forceCapture ? " forced" : "") + " perft " + depth);
+        }
+    }
+
+    private static long perft(GameEngine engine, Piece[][] b, int color, int depth) {
+        MoveList moves = new MoveList();
+        engine.generateMoves(b, color, moves);
+        if (depth == 1) return moves.size();
+        long leaves = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int m = moves.get(i);
+            Piece[][] child = engine.cloneBoard(b);
+            engine.executeMove(child, MoveList.fromRow(m), MoveList.fromCol(m), MoveList.toRow(m), MoveList.toCol(m));
+            leaves += perft(engine, child, color == Piece.RED ? Piece.WHITE : Piece.RED, depth - 1);
+        }
+        return leaves;
+    }
+
+    private static int squares(int move) {
+        return move & ~(MoveList.JUMP | MoveList.CAPTURE);
+    }
+
+    private static boolean jumpsAPiece(Piece[][] b, int[] m) {
+        int rDir = Integer.signum(m[2] - m[0]), cDir = Integer.signum(m[3] - m[1]);
+        for (int r = m[0] + rDir, c = m[1] + cDir; r != m[2]; r += rDir, c += cDir) {
+            if (b[r][c] != null) return true;
+        }
+        return false;
+    }
+
+    // --- The original CheckersBoard rules (8x8 Mak Hos), as the reference ---
+
+    private static List<int[]> referenceMoves(Piece[][] b, int color, boolean forceCapture, int kingMoveRule) {
+        List<int[]> moves = new ArrayList<>();
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                if (b[r][c] == null || b[r][c].getColor() != color) continue;
+                for (int tr = 0; tr < 8; tr++) {
+                    for (int tc = 0; tc < 8; tc++) {
+                        if (referenceValid(b, r, c, tr, tc, kingMoveRule)) moves.add(new int[] {r, c, tr, tc});
+                    }
+                }
+            }
+        }
+        List<int[]> captures = new ArrayList<>();
+        for (int[] m : moves) {
+            if (Math.abs(m[2] - m[0]) >= 2) captures.add(m);
+        }
+        return forceCapture && !captures.isEmpty() ? captures : moves;
+    }
+
+    private static boolean referenceValid(Piece[][] b, int r1, int c1, int r2, int c2, int kingMoveRule) {
+        if (b[r2][c2] != null || (r2 + c2) % 2 == 0) return false;
+        Piece p = b[r1][c1];
+        int dr = r2 - r1, dc = c2 - c1;
+        if (Math.abs(dr) != Math.abs(dc)) return false;
+
+        if (p.isKing()) {
+            if (kingMoveRule == 1) { // Flying king: any distance, over at most one enemy piece
+                int rDir = Integer.signum(dr), cDir = Integer.signum(dc);
+                int obstacles = 0;
+                for (int r = r1 + rDir, c = c1 + cDir; r != r2; r += rDir, c += cDir) {
+                    if (b[r][c] == null) continue;
+                    if (b[r][c].getColor() == p.getColor()) return false;
+                    obstacles++;
+                }
+                return obstacles <= 1;
+            }
+            if (Math.abs(dr) == 1) return true;
+            if (Math.abs(dr) == 2) {
+                Piece mid = b[(r1 + r2) / 2][(c1 + c2) / 2];
+                return mid != null && mid.getColor() != p.getColor();
+            }
+            return false;
+        }
+        boolean forward = p.getColor() == Piece.RED ? dr < 0 : dr > 0;
+        if (Math.abs(dr) == 1) return forward;
+        if (Math.abs(dr) == 2 && forward) {
+            Piece mid = b[(r1 + r2) / 2][(c1 + c2) / 2];
+            return mid != null && mid.getColor() != p.getColor();
+        }
+        return false;
+    }
+}
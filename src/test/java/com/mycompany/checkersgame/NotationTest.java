@@ -0,0 +1,166 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * NotationTest.java
+ * Round trips through the text and record formats on positions and moves from random games:
+ * move text in every rule set (1-32 on 8x8, 1-50 on 10x10), FEN, PDN and game record files
+ * in the offered variants. Rule sets that are not offered (Variant.all()) must not be read
+ * from FEN or PDN, and 10x10 games cannot be recorded (GameRecord packs 32 squares).
+ */
+public class NotationTest {
+
+    @Test
+    void fenAndMovesRoundTrip() {
+        SplittableRandom random = new SplittableRandom(44);
+        for (Variant variant : Variant.all()) {
+            boolean offered = Variant.byKey(variant.getKey()) != null;
+            for (int game = 0; game < 20; game++) {
+                GameEngine engine = new GameEngine(variant, game % 2 == 0);
+                int color = Piece.RED;
+                for (int ply = 0; ply < 80; ply++) {
+                    if (offered) {
+                        Position p = Position.of(engine, color);
+                        Position parsed = Notation.parseFen(Notation.toFen(p), !p.isForceCapture(), Variant.MAK_HOS);
+                        assertEquals(Notation.toFen(p), Notation.toFen(parsed), variant.getKey() + " game " + game + " ply " + ply);
+                        assertEquals(variant, parsed.getVariant());
+                    }
+
+                    List<int[]> moves = engine.getAllLegalMoves(engine.getBoard(), color);
+                    if (moves.isEmpty()) break;
+                    for (int[] m : moves) {
+                        String text = Notation.moveToText(engine.getBoard(), m);
+                        assertArrayEquals(m, Notation.parseMove(text, 0, text.length(), variant.getSize()), text);
+                    }
+                    int[] m = moves.get(random.nextInt(moves.size()));
+                    engine.executeMove(engine.getBoard(), m[0], m[1], m[2], m[3]);
+                    color = color == Piece.RED ? Piece.WHITE : Piece.RED;
+                }
+            }
+        }
+    }
+
+    @Test
+    void openingsAndSquareNumbers() {
+        assertEquals("R:W" + squares(1, 8) + ":R" + squares(25, 32), shortFen(Variant.MAK_HOS));
+        assertEquals("R:W" + squares(1, 12) + ":R" + squares(21, 32), shortFen(Variant.RUSSIAN));
+        assertEquals("R:W" + squares(1, 20) + ":R" + squares(31, 50), shortFen(Variant.INTERNATIONAL));
+        assertEquals(Variant.MAK_HOS_SHORT, Notation.parseFen("W:W1:R32:Vmakhos-short").getVariant());
+        for (String key : new String[] {"russian", "international"}) {
+            try {
+                Notation.parseFen("W:W1:R32:V" + key);
+            } catch (IllegalArgumentException expected) {
+                continue;
+            }
+            throw new AssertionError(key + " was read");
+        }
+        assertEquals(Variant.MAK_HOS_SHORT, Notation.parseFen("W:W1:R32:K2", true, Variant.RUSSIAN).getVariant());
+        assertNull(Notation.parseMove("32-51", 0, 5, 10));
+        assertArrayEquals(new int[] {9, 8, 8, 9}, Notation.parseMove("50-45", 0, 5, 10));
+    }
+
+    @Test
+    void recordsKeepTheirVariant() throws IOException {
+        try {
+            GameRecord.forEngine(new GameEngine(Variant.INTERNATIONAL, true));
+            throw new AssertionError("a 10x10 game was recorded");
+        } catch (IllegalArgumentException expected) {
+            // GameRecord packs 32 squares
+        }
+        for (Variant variant : Variant.values()) {
+            GameEngine engine = new GameEngine(variant, true);
+            GameRecord record = GameRecord.forEngine(engine);
+            SplittableRandom random = new SplittableRandom(variant.getId());
+            int color = Piece.RED;
+            for (int ply = 0; ply < 60; ply++) {
+                List<int[]> moves = engine.getAllLegalMoves(engine.getBoard(), color);
+                if (moves.isEmpty()) break;
+                int[] m = moves.get(random.nextInt(moves.size()));
+                record.addMove(engine.getBoard(), m[0], m[1], m[2], m[3]);
+                engine.executeMove(engine.getBoard(), m[0], m[1], m[2], m[3]);
+                color = color == Piece.RED ? Piece.WHITE : Piece.RED;
+            }
+            record.setResult(GameRecord.RESULT_DRAW);
+            String end = Notation.toFen(Position.of(engine, color));
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (GameRecordWriter writer = new GameRecordWriter(bytes)) {
+                writer.write(record);
+            }
+            GameRecord read = new GameRecordReader(new ByteArrayInputStream(bytes.toByteArray())).next();
+            assertEquals(variant, read.getVariant());
+            assertEquals(end, Notation.toFen(Position.of(read.replay(), color)), variant.getKey() + " record");
+
+            StringBuilder pdn = new StringBuilder();
+            Notation.writePdn(pdn, null, null, record);
+            PdnReader.Game game = new PdnReader(new StringReader(pdn.toString())).next();
+            assertNull(game.error, game.error);
+            assertEquals(variant, game.record.getVariant());
+            assertEquals(end, Notation.toFen(Position.of(game.record.replay(), color)), variant.getKey() + " PDN");
+        }
+    }
+
+    @Test
+    void otherVariantsAreNotImported() throws IOException {
+        PdnReader reader = new PdnReader(new StringReader("[Variant \"international\"]\n1. 32-28 19-23 *\n\n"
+                + "[Variant \"russian\"]\n1. 22-17 *\n\n[Variant \"makhos-short\"]\n1. 25-21 *\n"));
+        for (int i = 0; i < 2; i++) {
+            PdnReader.Game game = reader.next();
+            assertTrue(game.error != null && game.error.contains("unknown variant"), String.valueOf(game.error));
+            assertNull(game.record);
+            assertNull(game.start);
+        }
+        PdnReader.Game game = reader.next();
+        assertNull(game.error, game.error);
+        assertEquals(Variant.MAK_HOS_SHORT, game.record.getVariant());
+    }
+
+    @Test
+    void badGamesAreSkippedOneByOne() throws IOException {
+        String pdn = "[FEN \"R:W18:R22,30\"]\n[ForceCapture \"1\"]\n1. 30-26 *\n\n" // 22x15 was required
+                + "[FEN \"R:W18:R22,30\"]\n[ForceCapture \"0\"]\n1. 30-26 *\n\n"
+                + "[KingRule \"x\"]\n1. 25-21 *\n\n"
+                + "[FEN \"R:W99:R30\"]\n1. 30-26 *\n\n"
+                + "[Event \"last\"]\n1. 25-21 *\n";
+        PdnReader reader = new PdnReader(new StringReader(pdn));
+        PdnReader.Game game = reader.next();
+        assertTrue(game.error != null && game.error.startsWith("Illegal move 30-26"), String.valueOf(game.error));
+        game = reader.next();
+        assertNull(game.error, game.error);
+        assertEquals(1, game.record.getMoveCount());
+        for (int i = 0; i < 2; i++) {
+            game = reader.next();
+            assertTrue(game.error != null && game.error.startsWith("Bad header"), String.valueOf(game.error));
+            assertNull(game.record);
+        }
+        game = reader.next();
+        assertNull(game.error, game.error);
+        assertEquals("last", game.tags.get("Event"));
+        assertEquals(1, game.record.getMoveCount());
+        assertNull(reader.next());
+    }
+
+    // "from,...,to", as toFen lists squares
+    private static String squares(int from, int to) {
+        StringBuilder sb = new StringBuilder();
+        for (int sq = from; sq <= to; sq++) sb.append(sq == from ? "" : ",").append(sq);
+        return sb.toString();
+    }
+
+    // The FEN without its rule fields
+    private static String shortFen(Variant variant) {
+        String fen = Notation.toFen(Position.of(new GameEngine(variant, true), Piece.RED));
+        return fen.substring(0, fen.indexOf(":F"));
+    }
+}
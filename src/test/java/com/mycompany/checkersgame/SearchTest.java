@@ -0,0 +1,130 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * SearchTest.java
+ * Checks the PVS search against plain negamax (no pruning at all, kept here as the reference)
+ * at low depths, on positions from random games:
+ * - full width (SearchOptions.fullWidth()), the score is the negamax score exactly, and the
+ *   move played reaches it; with a transposition table, and with iterative deepening and
+ *   aspiration windows on top, the score is still the same;
+ * - with the selective parts on (the default options) the score may differ, as reductions
+ *   can miss a deep refutation, but the move is always a legal one.
+ */
+public class SearchTest {
+
+    private static final int RANDOM_GAMES = 40;
+    private static final int MAX_DEPTH = 4;
+
+    @Test
+    void fullWidthMatchesNegamax() {
+        int compared = 0;
+        for (Case c : positions()) {
+            for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+                int expected = negamax(c.engine, c.board, depth, 0, c.color);
+                compared += assertSearch(c, depth, expected, fullWidth(c.engine), "plain");
+                Search withTable = fullWidth(c.engine);
+                withTable.setTranspositionTable(new TranspositionTable(1));
+                compared += assertSearch(c, depth, expected, withTable, "tt");
+                Search iterative = fullWidth(c.engine);
+                iterative.setIterative(true);
+                iterative.setTranspositionTable(new TranspositionTable(1));
+                compared += assertSearch(c, depth, expected, iterative, "iterative");
+            }
+        }
+        assertTrue(compared > 1000, "too few comparisons: " + compared);
+    }
+
+    @Test
+    void selectiveSearchPlaysLegalMoves() {
+        for (Case c : positions()) {
+            Search s = new Search(c.engine);
+            s.setEndgameSolver(null);
+            int[] best = s.search(c.board, c.color, MAX_DEPTH, Search.NO_DEADLINE);
+            assertNotNull(best, c + ": no move");
+            boolean legal = false;
+            for (int[] m : c.engine.getAllLegalMoves(c.board, c.color)) {
+                legal |= Arrays.equals(m, best);
+            }
+            assertTrue(legal, c + ": illegal move " + Arrays.toString(best));
+        }
+    }
+
+    // Returns 1 for the comparison made
+    private static int assertSearch(Case c, int depth, int expected, Search s, String kind) {
+        int[] best = s.search(c.board, c.color, depth, Search.NO_DEADLINE);
+        assertNotNull(best, c + ": no move");
+        String where = c + " depth " + depth + " (" + kind + ")";
+        int score = c.color == Piece.WHITE ? s.getBestScore() : -s.getBestScore();
+        assertEquals(expected, score, where + ": score");
+
+        Piece[][] child = c.engine.cloneBoard(c.board);
+        c.engine.executeMove(child, best[0], best[1], best[2], best[3]);
+        assertEquals(expected, -negamax(c.engine, child, depth - 1, 1, opponent(c.color)), where + ": move " + best[0] + best[1] + best[2] + best[3]);
+        return 1;
+    }
+
+    private static Search fullWidth(GameEngine engine) {
+        Search s = new Search(engine);
+        s.setOptions(SearchOptions.fullWidth());
+        s.setEndgameSolver(null); // The reference does not know the solver's exact endings
+        return s;
+    }
+
+    // Plain negamax over the same rules, scores and terminal test as Search
+    private static int negamax(GameEngine engine, Piece[][] b, int depth, int ply, int color) {
+        if (!engine.hasAnyLegalMove(b, color)) return -(Search.WIN_SCORE - ply);
+        if (depth == 0) {
+            int eval = engine.evaluateBoard(b);
+            return color == Piece.WHITE ? eval : -eval;
+        }
+        MoveList moves = new MoveList();
+        engine.generateMoves(b, color, moves);
+        int best = -Integer.MAX_VALUE;
+        for (int i = 0; i < moves.size(); i++) {
+            int m = moves.get(i);
+            Piece[][] child = engine.cloneBoard(b);
+            engine.executeMove(child, MoveList.fromRow(m), MoveList.fromCol(m), MoveList.toRow(m), MoveList.toCol(m));
+            best = Math.max(best, -negamax(engine, child, depth - 1, ply + 1, opponent(color)));
+        }
+        return best;
+    }
+
+    private record Case(GameEngine engine, Piece[][] board, int color, int game, int ply) {
+        @Override
+        public String toString() { return "game " + game + " ply " + ply; }
+    }
+
+    // Every fourth position of some random games (both king rules), with at least two moves
+    // to choose from (with one, Search plays it without searching)
+    private static List<Case> positions() {
+        SplittableRandom random = new SplittableRandom(36);
+        List<Case> cases = new ArrayList<>();
+        for (int game = 0; game < RANDOM_GAMES; game++) {
+            GameEngine engine = new GameEngine(game % 4 < 2, 1 + game % 2);
+            Piece[][] b = engine.getBoard();
+            int color = Piece.RED;
+            for (int ply = 0; ply < 100; ply++) {
+                List<int[]> moves = engine.getAllLegalMoves(b, color);
+                if (moves.isEmpty()) break;
+                if (ply % 4 == 0 && moves.size() > 1) cases.add(new Case(engine, engine.cloneBoard(b), color, game, ply));
+                int[] m = moves.get(random.nextInt(moves.size()));
+                engine.executeMove(b, m[0], m[1], m[2], m[3]);
+                color = opponent(color);
+            }
+        }
+        return cases;
+    }
+
+    private static int opponent(int color) {
+        return color == Piece.RED ? Piece.WHITE : Piece.RED;
+    }
+}